@@ -0,0 +1,114 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.benchmarks;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.tyrus.core.RequestContext;
+import org.glassfish.tyrus.spi.HandshakeResponse;
+import org.glassfish.tyrus.spi.WebSocketEngine;
+import org.glassfish.tyrus.websockets.Handshake;
+import org.glassfish.tyrus.websockets.TyrusWebSocketEngine;
+import org.glassfish.tyrus.websockets.WebSocketApplication;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Throughput of the server side opening handshake: validation of the upgrade request headers, computation of the
+ * accept key and creation of the response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HandshakeBenchmark {
+
+    private RequestContext request;
+    private WebSocketApplication application;
+
+    @Setup
+    public void setup() {
+        request = createUpgradeRequest("/chat");
+        request.getHeaders().put(TyrusWebSocketEngine.ORIGIN_HEADER, Arrays.asList("http://localhost:8025"));
+        request.getHeaders().put(TyrusWebSocketEngine.SEC_WS_PROTOCOL_HEADER, Arrays.asList("chat", "superchat"));
+        application = new PathApplication("/chat");
+    }
+
+    @Benchmark
+    public Handshake handshake(final Blackhole blackhole) {
+        return TyrusWebSocketEngine.DEFAULT_VERSION.createHandler(false).handshake(new WebSocketEngine.ResponseWriter() {
+            @Override
+            public void write(HandshakeResponse response) {
+                blackhole.consume(response);
+            }
+        }, application, request);
+    }
+
+    /**
+     * Create upgrade request as sent by a client.
+     *
+     * @param path request path.
+     * @return upgrade request.
+     */
+    static RequestContext createUpgradeRequest(String path) {
+        final RequestContext request = RequestContext.Builder.create().requestURI(URI.create(path)).build();
+        request.getHeaders().put(TyrusWebSocketEngine.HOST, Arrays.asList("localhost:8025"));
+        request.getHeaders().put(TyrusWebSocketEngine.UPGRADE, Arrays.asList("websocket"));
+        request.getHeaders().put(TyrusWebSocketEngine.CONNECTION, Arrays.asList("Upgrade"));
+        request.getHeaders().put(TyrusWebSocketEngine.SEC_WS_KEY_HEADER, Arrays.asList("dGhlIHNhbXBsZSBub25jZQ=="));
+        request.getHeaders().put(TyrusWebSocketEngine.SEC_WS_VERSION, Arrays.asList("13"));
+        return request;
+    }
+}
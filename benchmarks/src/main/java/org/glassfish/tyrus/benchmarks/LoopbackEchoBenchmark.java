@@ -0,0 +1,252 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.benchmarks;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.DeploymentException;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpointConfig;
+
+import org.glassfish.tyrus.core.TyrusEndpoint;
+import org.glassfish.tyrus.server.ServerContainerFactory;
+import org.glassfish.tyrus.server.TyrusServerContainer;
+import org.glassfish.tyrus.spi.AbstractWriter;
+import org.glassfish.tyrus.spi.EndpointWrapper;
+import org.glassfish.tyrus.spi.HandshakeResponse;
+import org.glassfish.tyrus.spi.ServerContainer;
+import org.glassfish.tyrus.spi.WebSocketEngine;
+import org.glassfish.tyrus.spi.Writer;
+import org.glassfish.tyrus.websockets.DataFrame;
+import org.glassfish.tyrus.websockets.ProtocolHandler;
+import org.glassfish.tyrus.websockets.TyrusWebSocketEngine;
+import org.glassfish.tyrus.websockets.frame.TextFrame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of an in-JVM echo: a masked client text frame is passed to
+ * {@link TyrusWebSocketEngine#processData(Writer, ByteBuffer)}, dispatched to an endpoint which sends it back through
+ * the basic remote endpoint, and the echoed frame is written to a {@link Writer} which completes immediately.
+ * <p/>
+ * Covers parsing, UTF-8 decoding, message handler dispatch, encoding and framing without any network I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoopbackEchoBenchmark {
+
+    @Param({"16", "1024", "65536"})
+    private int payloadSize;
+
+    private TyrusWebSocketEngine engine;
+    private TyrusServerContainer serverContainer;
+    private LoopbackWriter writer;
+    private byte[] frame;
+    private ByteBuffer readBuffer;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException, DeploymentException {
+        engine = new TyrusWebSocketEngine();
+        serverContainer = ServerContainerFactory.create(new org.glassfish.tyrus.spi.ServerContainerFactory() {
+            @Override
+            public ServerContainer createServerContainer(String rootPath, int port) {
+                return new EngineServerContainer(engine);
+            }
+        }, "", 0, null, Collections.<Class<?>>emptySet(),
+                Collections.singleton(ServerEndpointConfig.Builder.create(EchoEndpoint.class, "/echo").build()));
+        serverContainer.start();
+
+        writer = new LoopbackWriter();
+        if (!engine.upgrade(writer, HandshakeBenchmark.createUpgradeRequest("/echo"), new WebSocketEngine.ResponseWriter() {
+            @Override
+            public void write(HandshakeResponse response) {
+            }
+        })) {
+            throw new IllegalStateException("Upgrade to /echo failed.");
+        }
+
+        final StringBuilder text = new StringBuilder(payloadSize);
+        for (int i = 0; i < payloadSize; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        final ProtocolHandler clientHandler = TyrusWebSocketEngine.DEFAULT_VERSION.createHandler(true);
+        final ByteBuffer[] buffers = clientHandler.frame(new DataFrame(new TextFrame(), text.toString()));
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+        frame = new byte[length];
+        final ByteBuffer target = ByteBuffer.wrap(frame);
+        for (ByteBuffer buffer : buffers) {
+            target.put(buffer);
+        }
+        readBuffer = ByteBuffer.allocate(length);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        engine.close(writer, 1000, null);
+        serverContainer.stop();
+    }
+
+    @Benchmark
+    public long echo() {
+        // the payload is unmasked in place, so the read buffer is refilled for every message.
+        readBuffer.clear();
+        readBuffer.put(frame);
+        readBuffer.flip();
+
+        engine.processData(writer, readBuffer);
+        if (writer.writtenBytes == 0) {
+            throw new IllegalStateException("Message was not echoed.");
+        }
+        return writer.reset();
+    }
+
+    public static class EchoEndpoint extends Endpoint {
+        @Override
+        public void onOpen(final Session session, EndpointConfig config) {
+            session.addMessageHandler(new MessageHandler.Whole<String>() {
+                @Override
+                public void onMessage(String message) {
+                    try {
+                        session.getBasicRemote().sendText(message);
+                    } catch (IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Connection which counts written bytes and completes every write immediately.
+     */
+    private static class LoopbackWriter extends AbstractWriter {
+
+        private long writtenBytes;
+
+        @Override
+        public void write(byte[] bytes, CompletionHandler<byte[]> completionHandler) {
+            writtenBytes += bytes.length;
+            if (completionHandler != null) {
+                completionHandler.completed(bytes);
+            }
+        }
+
+        @Override
+        public void write(ByteBuffer[] buffers, CompletionHandler<ByteBuffer[]> completionHandler) {
+            for (ByteBuffer buffer : buffers) {
+                writtenBytes += buffer.remaining();
+            }
+            if (completionHandler != null) {
+                completionHandler.completed(buffers);
+            }
+        }
+
+        @Override
+        public boolean isWritable() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        long reset() {
+            final long result = writtenBytes;
+            writtenBytes = 0;
+            return result;
+        }
+    }
+
+    /**
+     * Registers deployed endpoints to the engine, as the Servlet container does.
+     */
+    private static class EngineServerContainer implements ServerContainer {
+
+        private final TyrusWebSocketEngine engine;
+
+        EngineServerContainer(TyrusWebSocketEngine engine) {
+            this.engine = engine;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void register(EndpointWrapper endpoint) throws DeploymentException {
+            engine.register(new TyrusEndpoint(endpoint));
+        }
+
+        @Override
+        public void unregister(EndpointWrapper endpoint) {
+            engine.unregister(new TyrusEndpoint(endpoint));
+        }
+    }
+}
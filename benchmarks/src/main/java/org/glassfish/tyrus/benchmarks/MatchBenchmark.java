@@ -0,0 +1,129 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.benchmarks;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.glassfish.tyrus.websockets.WebSocketApplication;
+import org.glassfish.tyrus.websockets.uri.Match;
+import org.glassfish.tyrus.websockets.uri.PathRouter;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link Match#getAllMatches(String, Set)} and {@link PathRouter#getAllMatches(String)} resolving request
+ * paths against deployed endpoints, half of them with path templates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MatchBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int endpoints;
+
+    private final Set<WebSocketApplication> applications = new HashSet<WebSocketApplication>();
+    private final PathRouter router = new PathRouter();
+    private String exactPath;
+    private String templatePath;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < endpoints; i++) {
+            if (i % 2 == 0) {
+                applications.add(new PathApplication("/app/endpoint" + i + "/chat"));
+            } else {
+                applications.add(new PathApplication("/app/endpoint" + i + "/{room}/{user}"));
+            }
+        }
+        for (WebSocketApplication application : applications) {
+            router.add(application);
+        }
+        exactPath = "/app/endpoint" + (endpoints - 2) + "/chat";
+        templatePath = "/app/endpoint" + (endpoints - 1) + "/lobby/duke";
+    }
+
+    @Benchmark
+    public List<Match> matchExact() {
+        return Match.getAllMatches(exactPath, applications);
+    }
+
+    @Benchmark
+    public List<Match> matchTemplate() {
+        return Match.getAllMatches(templatePath, applications);
+    }
+
+    @Benchmark
+    public List<Match> noMatch() {
+        return Match.getAllMatches("/app/unknown/path", applications);
+    }
+
+    @Benchmark
+    public List<Match> routeExact() {
+        return router.getAllMatches(exactPath);
+    }
+
+    @Benchmark
+    public List<Match> routeTemplate() {
+        return router.getAllMatches(templatePath);
+    }
+
+    @Benchmark
+    public List<Match> routeNoMatch() {
+        return router.getAllMatches("/app/unknown/path");
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.benchmarks;
+
+import org.glassfish.tyrus.spi.HandshakeRequest;
+import org.glassfish.tyrus.websockets.ProtocolHandler;
+import org.glassfish.tyrus.websockets.WebSocket;
+import org.glassfish.tyrus.websockets.WebSocketApplication;
+import org.glassfish.tyrus.websockets.WebSocketListener;
+import org.glassfish.tyrus.websockets.WebSocketResponse;
+
+/**
+ * {@link WebSocketApplication} which only has a path; used where the benchmarked code needs an application but does
+ * not create sockets.
+ */
+class PathApplication extends WebSocketApplication {
+
+    private final String path;
+
+    PathApplication(String path) {
+        this.path = path;
+    }
+
+    @Override
+    public WebSocket createSocket(ProtocolHandler handler, WebSocketListener... listeners) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void onHandShakeResponse(HandshakeRequest request, WebSocketResponse response) {
+    }
+
+    @Override
+    protected boolean isApplicationRequest(HandshakeRequest request) {
+        return true;
+    }
+
+    @Override
+    public void onMessage(WebSocket socket, String text) {
+    }
+
+    @Override
+    public void onMessage(WebSocket socket, byte[] bytes) {
+    }
+
+    @Override
+    public void onPing(WebSocket socket, byte[] bytes) {
+    }
+
+    @Override
+    public void onPong(WebSocket socket, byte[] bytes) {
+    }
+
+    @Override
+    public void onFragment(WebSocket socket, String fragment, boolean last) {
+    }
+
+    @Override
+    public void onFragment(WebSocket socket, byte[] fragment, boolean last) {
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.core;
+
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.DeploymentException;
+import javax.websocket.Extension;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.PathParam;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.spi.RemoteEndpoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of message dispatch to {@link OnMessage} methods of an annotated endpoint through
+ * {@link TyrusEndpointWrapper}: a whole text message to a method taking the {@link Session} and a path parameter and
+ * a partial binary message to a method taking the {@code last} flag.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AnnotatedEndpointBenchmark {
+
+    private static final String TEXT = "hello";
+
+    private TyrusEndpointWrapper endpointWrapper;
+    private RemoteEndpoint remoteEndpoint;
+    private ByteBuffer binary;
+
+    @Setup
+    public void setup() throws DeploymentException {
+        final ErrorCollector collector = new ErrorCollector();
+        final ComponentProviderService componentProvider = ComponentProviderService.create();
+        final AnnotatedEndpoint endpoint = AnnotatedEndpoint.fromClass(BenchmarkEndpoint.class, componentProvider,
+                true, collector);
+        endpointWrapper = new TyrusEndpointWrapper(endpoint, endpoint.getEndpointConfig(), componentProvider, null,
+                "/", collector, null);
+        remoteEndpoint = new CoderBenchmark.NullRemoteEndpoint();
+        endpointWrapper.onConnect(remoteEndpoint, null, Collections.<Extension>emptyList());
+        binary = ByteBuffer.wrap(new byte[]{1, 2, 3});
+    }
+
+    @Benchmark
+    public void wholeText() {
+        endpointWrapper.onMessage(remoteEndpoint, TEXT);
+    }
+
+    @Benchmark
+    public void partialBinary() {
+        binary.rewind();
+        endpointWrapper.onPartialMessage(remoteEndpoint, binary, true);
+    }
+
+    @ServerEndpoint("/annotated/{id}")
+    public static class BenchmarkEndpoint {
+        private int received;
+
+        @OnMessage
+        public void onText(String message, Session session, @PathParam("id") String id) {
+            received += message.length();
+        }
+
+        @OnMessage
+        public void onBinary(ByteBuffer message, boolean last) {
+            received += message.remaining();
+        }
+    }
+}
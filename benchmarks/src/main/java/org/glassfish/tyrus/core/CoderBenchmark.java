@@ -0,0 +1,291 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.core;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.CloseReason;
+import javax.websocket.DecodeException;
+import javax.websocket.Decoder;
+import javax.websocket.EncodeException;
+import javax.websocket.Encoder;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpointConfig;
+
+import org.glassfish.tyrus.spi.RemoteEndpoint;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of encoder and decoder selection in {@link TyrusEndpointWrapper}: {@code doEncode} of a message with a
+ * user encoder, a {@link String} handled by the built-in encoder and an object falling back to
+ * {@link Object#toString()}; {@code findApplicableDecoders} for text and binary messages.
+ * <p/>
+ * Lives in the package of {@link TyrusEndpointWrapper}, which does not expose the coder lookup.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoderBenchmark {
+
+    private static final String TEXT = "point:12,34";
+
+    private TyrusEndpointWrapper endpointWrapper;
+    private TyrusSession session;
+    private Point point;
+    private ByteBuffer binary;
+
+    @Setup
+    public void setup() {
+        final ServerEndpointConfig config = ServerEndpointConfig.Builder.create(BenchmarkEndpoint.class, "/coders")
+                .encoders(Arrays.<Class<? extends Encoder>>asList(PointEncoder.class, BinaryPointEncoder.class))
+                .decoders(Arrays.<Class<? extends Decoder>>asList(TextMarkerDecoder.class, PointDecoder.class,
+                        BinaryPointDecoder.class))
+                .build();
+        endpointWrapper = new TyrusEndpointWrapper(BenchmarkEndpoint.class, config, ComponentProviderService.create(),
+                null, "/", new ErrorCollector(), null);
+        session = (TyrusSession) endpointWrapper.createSessionForRemoteEndpoint(new NullRemoteEndpoint(), null, null);
+        point = new Point(12, 34);
+        binary = ByteBuffer.wrap(new byte[]{1, 12, 34});
+    }
+
+    @Benchmark
+    public Object encodeCustom() throws EncodeException {
+        return endpointWrapper.doEncode(session, point);
+    }
+
+    @Benchmark
+    public Object encodeString() throws EncodeException {
+        return endpointWrapper.doEncode(session, TEXT);
+    }
+
+    @Benchmark
+    public Object encodeToString() throws EncodeException {
+        return endpointWrapper.doEncode(session, 42L);
+    }
+
+    @Benchmark
+    public Object findTextDecoders() {
+        return endpointWrapper.findApplicableDecoders(session, TEXT, true);
+    }
+
+    @Benchmark
+    public Object findBinaryDecoders() {
+        return endpointWrapper.findApplicableDecoders(session, binary, false);
+    }
+
+    public static class BenchmarkEndpoint extends Endpoint {
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+        }
+    }
+
+    public static class Point {
+        final int x;
+        final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    public static class PointEncoder implements Encoder.Text<Point> {
+        @Override
+        public String encode(Point point) {
+            return "point:" + point.x + "," + point.y;
+        }
+
+        @Override
+        public void init(EndpointConfig config) {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    public static class BinaryPointEncoder implements Encoder.Binary<int[]> {
+        @Override
+        public ByteBuffer encode(int[] coordinates) {
+            return ByteBuffer.wrap(new byte[]{1, (byte) coordinates[0], (byte) coordinates[1]});
+        }
+
+        @Override
+        public void init(EndpointConfig config) {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    public static class TextMarkerDecoder implements Decoder.Text<Boolean> {
+        @Override
+        public Boolean decode(String s) {
+            return Boolean.TRUE;
+        }
+
+        @Override
+        public boolean willDecode(String s) {
+            return s.startsWith("marker:");
+        }
+
+        @Override
+        public void init(EndpointConfig config) {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    public static class PointDecoder implements Decoder.Text<Point> {
+        @Override
+        public Point decode(String s) throws DecodeException {
+            final String[] coordinates = s.substring("point:".length()).split(",");
+            return new Point(Integer.parseInt(coordinates[0]), Integer.parseInt(coordinates[1]));
+        }
+
+        @Override
+        public boolean willDecode(String s) {
+            return s.startsWith("point:");
+        }
+
+        @Override
+        public void init(EndpointConfig config) {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    public static class BinaryPointDecoder implements Decoder.Binary<Point> {
+        @Override
+        public Point decode(ByteBuffer bytes) {
+            return new Point(bytes.get(1), bytes.get(2));
+        }
+
+        @Override
+        public boolean willDecode(ByteBuffer bytes) {
+            return bytes.remaining() == 3 && bytes.get(0) == 1;
+        }
+
+        @Override
+        public void init(EndpointConfig config) {
+        }
+
+        @Override
+        public void destroy() {
+        }
+    }
+
+    static class NullRemoteEndpoint extends RemoteEndpoint {
+        @Override
+        public Future<?> sendText(String text) throws IOException {
+            return null;
+        }
+
+        @Override
+        public Future<?> sendBinary(ByteBuffer data) throws IOException {
+            return null;
+        }
+
+        @Override
+        public void sendText(String text, SendHandler handler) {
+            handler.onResult(new SendResult());
+        }
+
+        @Override
+        public void sendBinary(ByteBuffer data, SendHandler handler) {
+            handler.onResult(new SendResult());
+        }
+
+        @Override
+        public Future<?> sendText(String fragment, boolean isLast) throws IOException {
+            return null;
+        }
+
+        @Override
+        public Future<?> sendBinary(ByteBuffer partialByte, boolean isLast) throws IOException {
+            return null;
+        }
+
+        @Override
+        public Future<?> sendPing(ByteBuffer applicationData) throws IOException {
+            return null;
+        }
+
+        @Override
+        public Future<?> sendPong(ByteBuffer applicationData) throws IOException {
+            return null;
+        }
+
+        @Override
+        public void close(CloseReason closeReason) {
+        }
+
+        @Override
+        public void setWriteTimeout(long timeoutMs) {
+        }
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of UTF-8 decoding of text payloads: {@link StrictUtf8} decoder compared to {@link Utf8Validator}
+ * followed by the JDK decoder, which is how incoming text frames are decoded.
+ * <p/>
+ * Lives in the package of {@link Utf8Validator}, which is not public.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class Utf8DecodingBenchmark {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    @Param({"16", "1024", "65536"})
+    private int length;
+
+    @Param({"ascii", "mixed"})
+    private String text;
+
+    private byte[] bytes;
+    private CharsetDecoder strictDecoder;
+    private Utf8Validator validator;
+
+    @Setup
+    public void setup() {
+        final String alphabet = "ascii".equals(text) ? "abcdefghijklmnopqrstuvwxyz" : "abc\u00e9\u00fe\u20ac\u4e2d\ud834\udd1e";
+        final StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append(alphabet);
+        }
+        bytes = sb.toString().getBytes(UTF8);
+        strictDecoder = new StrictUtf8().newDecoder();
+        validator = new Utf8Validator();
+    }
+
+    @Benchmark
+    public CharBuffer strictUtf8() throws CharacterCodingException {
+        return strictDecoder.decode(ByteBuffer.wrap(bytes));
+    }
+
+    @Benchmark
+    public String validateAndDecode() {
+        validator.validate(bytes, 0, bytes.length);
+        validator.reset();
+        return new String(bytes, UTF8);
+    }
+}
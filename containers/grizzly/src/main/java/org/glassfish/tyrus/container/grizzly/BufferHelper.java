@@ -41,7 +41,11 @@ package org.glassfish.tyrus.container.grizzly;
 
 import java.nio.ByteBuffer;
 
+import org.glassfish.tyrus.spi.WebSocketEngine;
+import org.glassfish.tyrus.spi.Writer;
+
 import org.glassfish.grizzly.Buffer;
+import org.glassfish.grizzly.memory.ByteBufferArray;
 
 /**
  * @author Pavel Bucek (pavel.bucek at oracle.com)
@@ -49,12 +53,34 @@ import org.glassfish.grizzly.Buffer;
 class BufferHelper {
 
     /**
-     * Converts {@link Buffer} to {@link ByteBuffer}.
+     * Pass content of the {@link Buffer} to the engine without copying it.
+     * <p/>
+     * {@link Buffer#toByteBuffer()} copies composite buffers to a new {@link ByteBuffer}. Segments of composite
+     * buffers are passed to the engine one by one instead, the engine parses them in place and copies only
+     * frames which span the segment boundary.
      *
-     * @param buffer buffer to be converted.
-     * @return converted buffer.
+     * @param engine engine processing the data.
+     * @param writer connection the data were read from.
+     * @param buffer buffer to be processed.
      */
-    public static ByteBuffer convertBuffer(Buffer buffer) {
-        return buffer.toByteBuffer();
+    public static void processData(WebSocketEngine engine, Writer writer, Buffer buffer) {
+        if (!buffer.isComposite()) {
+            engine.processData(writer, buffer.toByteBuffer());
+            return;
+        }
+
+        final ByteBufferArray byteBufferArray = buffer.toByteBufferArray();
+        try {
+            final ByteBuffer[] byteBuffers = byteBufferArray.getArray();
+            final int size = byteBufferArray.size();
+            for (int i = 0; i < size; i++) {
+                if (byteBuffers[i].hasRemaining()) {
+                    engine.processData(writer, byteBuffers[i]);
+                }
+            }
+        } finally {
+            byteBufferArray.restore();
+            byteBufferArray.recycle();
+        }
     }
 }
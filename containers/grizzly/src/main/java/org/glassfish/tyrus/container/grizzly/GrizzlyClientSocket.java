@@ -75,6 +75,8 @@ import org.glassfish.tyrus.websockets.DataFrame;
 import org.glassfish.tyrus.websockets.Extension;
 import org.glassfish.tyrus.websockets.Handshake;
 import org.glassfish.tyrus.websockets.HandshakeException;
+import org.glassfish.tyrus.websockets.MaskingKeyGenerator;
+import org.glassfish.tyrus.websockets.PreparedFrame;
 import org.glassfish.tyrus.websockets.ProtocolHandler;
 import org.glassfish.tyrus.websockets.TyrusWebSocketEngine;
 import org.glassfish.tyrus.websockets.WebSocket;
@@ -127,6 +129,9 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
      * Client-side property to set custom worker {@link ThreadPoolConfig}.
      * <p/>
      * Value is expected to be instance of {@link ThreadPoolConfig}, can be {@code null} (it won't be used).
+     * <p/>
+     * When this or {@link #SELECTOR_THREAD_POOL_CONFIG} is set, the connection gets its own transport instead of the
+     * transport shared by all connections of the container.
      */
     public static final String WORKER_THREAD_POOL_CONFIG = "org.glassfish.tyrus.client.grizzly.workerThreadPoolConfig";
 
@@ -134,9 +139,20 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
      * Client-side property to set custom selector {@link ThreadPoolConfig}.
      * <p/>
      * Value is expected to be instance of {@link ThreadPoolConfig}, can be {@code null} (it won't be used).
+     * <p/>
+     * When this or {@link #WORKER_THREAD_POOL_CONFIG} is set, the connection gets its own transport instead of the
+     * transport shared by all connections of the container.
      */
     public static final String SELECTOR_THREAD_POOL_CONFIG = "org.glassfish.tyrus.client.grizzly.selectorThreadPoolConfig";
 
+    /**
+     * Client-side property to set custom {@link MaskingKeyGenerator}.
+     * <p/>
+     * Value is expected to be instance of {@link MaskingKeyGenerator}, can be {@code null} ({@link
+     * org.glassfish.tyrus.websockets.DefaultMaskingKeyGenerator} will be used).
+     */
+    public static final String MASKING_KEY_GENERATOR = "org.glassfish.tyrus.client.maskingKeyGenerator";
+
     private static final Logger LOGGER = Logger.getLogger(GrizzlyClientSocket.class.getName());
 
     private final EnumSet<State> connected = EnumSet.range(State.CONNECTED, State.CLOSING);
@@ -156,11 +172,15 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
     private final SSLEngineConfigurator clientSSLEngineConfigurator;
     private final ThreadPoolConfig workerThreadPoolConfig;
     private final ThreadPoolConfig selectorThreadPoolConfig;
+    private final SharedClientTransport sharedTransport;
     private final TyrusWebSocketEngine engine;
+    private final Object transportLock = new Object();
 
     private SocketAddress socketAddress;
 
     private TCPNIOTransport transport;
+    private boolean transportShared;
+    private Connection connection;
     private Session session = null;
 
     enum State {
@@ -176,24 +196,30 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
      * @param listener                    listener called when response is received.
      * @param engine                      engine used for this websocket communication
      * @param clientSSLEngineConfigurator ssl engine configurator
+     * @param sharedTransport             transport used when no custom thread pool configuration is set.
+     * @param maskingKeyGenerator         generator of masking keys, can be {@code null}.
      */
     GrizzlyClientSocket(EndpointWrapper endpoint, URI uri, ClientEndpointConfig configuration, long timeoutMs,
                         ClientContainer.ClientHandshakeListener listener, TyrusWebSocketEngine engine,
                         SSLEngineConfigurator clientSSLEngineConfigurator,
                         String proxyString,
                         ThreadPoolConfig workerThreadPoolConfig,
-                        ThreadPoolConfig selectorThreadPoolConfig) {
+                        ThreadPoolConfig selectorThreadPoolConfig,
+                        SharedClientTransport sharedTransport,
+                        MaskingKeyGenerator maskingKeyGenerator) {
         this.endpoint = endpoint;
         this.uri = uri;
         this.configuration = configuration;
         protocolHandler = TyrusWebSocketEngine.DEFAULT_VERSION.createHandler(true);
         protocolHandler.setContainer(endpoint.getWebSocketContainer());
+        protocolHandler.setMaskingKeyGenerator(maskingKeyGenerator);
         remoteEndpoint = new TyrusRemoteEndpoint(this);
         this.timeoutMs = timeoutMs;
         this.listener = listener;
         this.clientSSLEngineConfigurator = clientSSLEngineConfigurator;
         this.workerThreadPoolConfig = workerThreadPoolConfig;
         this.selectorThreadPoolConfig = selectorThreadPoolConfig;
+        this.sharedTransport = sharedTransport;
         if (session == null) {
             session = endpoint.createSessionForRemoteEndpoint(remoteEndpoint, null, null);
         }
@@ -207,19 +233,33 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
      */
     public void connect() throws DeploymentException {
         for (Proxy proxy : proxies) {
+            final TCPNIOTransport connectTransport;
+
             try {
-                transport = createTransport(workerThreadPoolConfig, selectorThreadPoolConfig);
-                transport.start();
+                connectTransport = openTransport();
             } catch (Exception e) {
                 LOGGER.log(Level.SEVERE, "Transport failed to start.", e);
                 throw new HandshakeException(e.getMessage());
             }
 
-            final TCPNIOConnectorHandler connectorHandler = new TCPNIOConnectorHandler(transport) {
+            final TCPNIOConnectorHandler connectorHandler = new TCPNIOConnectorHandler(connectTransport) {
                 @Override
                 protected void preConfigure(Connection conn) {
                     super.preConfigure(conn);
 
+                    final boolean released;
+                    synchronized (transportLock) {
+                        released = transport == null;
+                        if (!released) {
+                            connection = conn;
+                        }
+                    }
+
+                    // connect timed out and the transport has already been given up
+                    if (released) {
+                        conn.close();
+                    }
+
                     final Writer writer = getConnection(conn);
 
                     protocolHandler.setWriter(writer);
@@ -276,17 +316,39 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
                     ProxySelector.getDefault().connectFailed(uri, socketAddress, (IOException) cause);
                 }
 
-                try {
-                    transport.stop();
-                } catch (IOException e1) {
-                    LOGGER.log(Level.WARNING, "Transport failed to stop.", e);
-                }
+                closeTransport();
             }
         }
 
         throw new HandshakeException("Connection failed.");
     }
 
+    /**
+     * Get a started transport for this connection: the shared one, or a new one when a custom thread pool
+     * configuration is set.
+     *
+     * @return started transport.
+     * @throws IOException when the transport cannot be started.
+     */
+    private TCPNIOTransport openTransport() throws IOException {
+        final boolean shared = workerThreadPoolConfig == null && selectorThreadPoolConfig == null;
+        final TCPNIOTransport newTransport;
+
+        if (shared) {
+            newTransport = sharedTransport.acquire();
+        } else {
+            newTransport = createTransport(workerThreadPoolConfig, selectorThreadPoolConfig);
+            newTransport.start();
+        }
+
+        synchronized (transportLock) {
+            transport = newTransport;
+            transportShared = shared;
+        }
+
+        return newTransport;
+    }
+
     private TCPNIOTransport createTransport(ThreadPoolConfig workerThreadPoolConfig, ThreadPoolConfig selectorThreadPoolConfig) {
 
         // TYRUS-188: lots of threads were created for every single client instance.
@@ -340,6 +402,7 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
             public void onError(HandshakeException exception) {
                 listener.onError(exception);
                 onConnectLatch.countDown();
+                closeTransport();
             }
         });
 
@@ -365,6 +428,42 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
         }
     }
 
+    @Override
+    public Future<DataFrame> send(ByteBuffer byteBuffer) {
+        if (isConnected()) {
+            return protocolHandler.send(byteBuffer);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
+    @Override
+    public void send(String data, Writer.CompletionHandler<DataFrame> completionHandler) {
+        if (isConnected()) {
+            protocolHandler.send(data, completionHandler);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer data, Writer.CompletionHandler<DataFrame> completionHandler) {
+        if (isConnected()) {
+            protocolHandler.send(data, completionHandler);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
+    @Override
+    public void send(PreparedFrame frame, Writer.CompletionHandler<DataFrame> completionHandler) {
+        if (isConnected()) {
+            protocolHandler.send(frame, completionHandler);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
     @Override
     public Future<DataFrame> sendPing(byte[] bytes) {
         DataFrame df = new DataFrame(new PingFrame(), bytes);
@@ -397,6 +496,15 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
 
     }
 
+    @Override
+    public Future<DataFrame> stream(boolean b, ByteBuffer byteBuffer) {
+        if (isConnected()) {
+            return protocolHandler.stream(b, byteBuffer);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
     @Override
     public void close() {
         close(CloseReason.CloseCodes.NORMAL_CLOSURE.getCode(), "Closing");
@@ -497,6 +605,28 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
         protocolHandler.setWriteTimeout(timeoutMs);
     }
 
+    @Override
+    public Future<DataFrame> setBatchingAllowed(boolean allowed, int bufferSize, long lingerTimeMs) {
+        protocolHandler.setBatchBufferSize(bufferSize);
+        protocolHandler.setBatchLingerTime(lingerTimeMs);
+        return protocolHandler.setBatchingAllowed(allowed);
+    }
+
+    @Override
+    public boolean getBatchingAllowed() {
+        return protocolHandler.getBatchingAllowed();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return protocolHandler.isWritable();
+    }
+
+    @Override
+    public Future<DataFrame> flushBatch() {
+        return protocolHandler.flushBatch();
+    }
+
     private void setProxy(String proxyString) {
         URI proxyUri;
         try {
@@ -606,10 +736,35 @@ public class GrizzlyClientSocket implements WebSocket, ClientSocket {
         return new GrizzlyWriter(connection);
     }
 
+    /**
+     * Close the connection and give up the transport. Only the first call after the transport was opened has an
+     * effect, so that the shared transport is released exactly once.
+     */
     private void closeTransport() {
-        if (transport != null) {
+        final TCPNIOTransport toClose;
+        final Connection toCloseConnection;
+        final boolean shared;
+
+        synchronized (transportLock) {
+            toClose = transport;
+            toCloseConnection = connection;
+            shared = transportShared;
+            transport = null;
+            connection = null;
+        }
+
+        if (toClose == null) {
+            return;
+        }
+
+        if (shared) {
+            if (toCloseConnection != null) {
+                toCloseConnection.close();
+            }
+            sharedTransport.release(toClose);
+        } else {
             try {
-                transport.stop();
+                toClose.stop();
             } catch (IOException e) {
                 Logger.getLogger(GrizzlyClientSocket.class.getName()).log(Level.FINE, "Transport closing problem.");
             }
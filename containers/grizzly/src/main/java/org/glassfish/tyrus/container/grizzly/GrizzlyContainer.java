@@ -53,6 +53,7 @@ import org.glassfish.tyrus.spi.ClientSocket;
 import org.glassfish.tyrus.spi.EndpointWrapper;
 import org.glassfish.tyrus.spi.ServerContainer;
 import org.glassfish.tyrus.spi.ServerContainerFactory;
+import org.glassfish.tyrus.websockets.MaskingKeyGenerator;
 import org.glassfish.tyrus.websockets.TyrusWebSocketEngine;
 
 import org.glassfish.grizzly.http.server.HttpServer;
@@ -70,6 +71,7 @@ public class GrizzlyContainer implements ServerContainerFactory, ClientContainer
     //The same value Grizzly is using for socket timeout.
     private static final long CLIENT_SOCKET_TIMEOUT = 30000;
     private final TyrusWebSocketEngine engine;
+    private final SharedClientTransport clientTransport = new SharedClientTransport();
 
     /**
      * Creates Grizzly engine.
@@ -129,7 +131,9 @@ public class GrizzlyContainer implements ServerContainerFactory, ClientContainer
                 properties == null ? null : sslEngineConfigurator,
                 properties == null ? null : (String) properties.get(GrizzlyClientSocket.PROXY_URI),
                 properties == null ? null : (ThreadPoolConfig) properties.get(GrizzlyClientSocket.WORKER_THREAD_POOL_CONFIG),
-                properties == null ? null : (ThreadPoolConfig) properties.get(GrizzlyClientSocket.SELECTOR_THREAD_POOL_CONFIG));
+                properties == null ? null : (ThreadPoolConfig) properties.get(GrizzlyClientSocket.SELECTOR_THREAD_POOL_CONFIG),
+                clientTransport,
+                properties == null ? null : (MaskingKeyGenerator) properties.get(GrizzlyClientSocket.MASKING_KEY_GENERATOR));
         clientSocket.connect();
         return clientSocket;
     }
@@ -39,25 +39,30 @@
  */
 package org.glassfish.tyrus.container.grizzly;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 
 import org.glassfish.tyrus.core.Utils;
+import org.glassfish.tyrus.spi.AbstractWriter;
 import org.glassfish.tyrus.spi.HandshakeResponse;
 import org.glassfish.tyrus.spi.WebSocketEngine;
-import org.glassfish.tyrus.spi.Writer;
 
+import org.glassfish.grizzly.Buffer;
 import org.glassfish.grizzly.EmptyCompletionHandler;
 import org.glassfish.grizzly.filterchain.FilterChainContext;
 import org.glassfish.grizzly.http.HttpContent;
 import org.glassfish.grizzly.http.HttpRequestPacket;
 import org.glassfish.grizzly.http.HttpResponsePacket;
 import org.glassfish.grizzly.http.Protocol;
+import org.glassfish.grizzly.memory.Buffers;
+import org.glassfish.grizzly.memory.MemoryManager;
 
 /**
  * @author Pavel Bucek (pavel.bucek at oracle.com)
  */
-class GrizzlyWriter implements Writer, WebSocketEngine.ResponseWriter {
+class GrizzlyWriter extends AbstractWriter implements WebSocketEngine.ResponseWriter {
 
     private final FilterChainContext ctx;
     private final HttpContent httpContent;
@@ -106,6 +111,48 @@ class GrizzlyWriter implements Writer, WebSocketEngine.ResponseWriter {
         });
     }
 
+    @Override
+    public void write(final ByteBuffer[] buffers, final CompletionHandler<ByteBuffer[]> completionHandler) {
+        if (!connection.isOpen()) {
+            if (completionHandler != null) {
+                completionHandler.failed(new IOException("Connection is closed."));
+            }
+            return;
+        }
+
+        // wrapped buffers share content with the original ones, nothing is copied here.
+        final MemoryManager memoryManager = connection.getTransport().getMemoryManager();
+        Buffer buffer = null;
+        for (ByteBuffer byteBuffer : buffers) {
+            final Buffer wrapped = Buffers.wrap(memoryManager, byteBuffer);
+            buffer = (buffer == null ? wrapped : Buffers.appendBuffers(memoryManager, buffer, wrapped));
+        }
+
+        //noinspection unchecked
+        connection.write(buffer, new EmptyCompletionHandler() {
+            @Override
+            public void cancelled() {
+                if (completionHandler != null) {
+                    completionHandler.cancelled();
+                }
+            }
+
+            @Override
+            public void completed(Object result) {
+                if (completionHandler != null) {
+                    completionHandler.completed(buffers);
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                if (completionHandler != null) {
+                    completionHandler.failed(throwable);
+                }
+            }
+        });
+    }
+
     @Override
     public void write(HandshakeResponse response) {
         if (ctx == null) {
@@ -124,6 +171,11 @@ class GrizzlyWriter implements Writer, WebSocketEngine.ResponseWriter {
         ctx.write(HttpContent.builder(responsePacket).build());
     }
 
+    @Override
+    public boolean isWritable() {
+        return connection.isOpen() && connection.canWrite();
+    }
+
     @Override
     public void close() {
         connection.closeSilently();
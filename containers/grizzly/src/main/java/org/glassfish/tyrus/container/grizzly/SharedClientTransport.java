@@ -0,0 +1,111 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.container.grizzly;
+
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransportBuilder;
+
+/**
+ * Reference counted {@link TCPNIOTransport} shared by client connections opened by one {@link GrizzlyContainer}.
+ * <p/>
+ * The transport is created and started when the first connection acquires it and stopped when the last connection
+ * releases it, so connections opened while others are open neither start nor stop a transport. Thread pools use
+ * Grizzly defaults, which are sized to the number of available processors, and all connections are multiplexed
+ * over them.
+ *
+ * @see GrizzlyClientSocket#WORKER_THREAD_POOL_CONFIG
+ * @see GrizzlyClientSocket#SELECTOR_THREAD_POOL_CONFIG
+ */
+class SharedClientTransport {
+
+    private static final Logger LOGGER = Logger.getLogger(SharedClientTransport.class.getName());
+
+    private final Object lock = new Object();
+
+    private TCPNIOTransport transport;
+    private int references;
+
+    /**
+     * Get the shared transport, starting it if it is not running. Every call has to be paired with
+     * {@link #release(TCPNIOTransport)}.
+     *
+     * @return started transport.
+     * @throws IOException when the transport cannot be started.
+     */
+    TCPNIOTransport acquire() throws IOException {
+        synchronized (lock) {
+            if (transport == null) {
+                final TCPNIOTransport newTransport = TCPNIOTransportBuilder.newInstance().build();
+                newTransport.start();
+                transport = newTransport;
+            }
+
+            references++;
+            return transport;
+        }
+    }
+
+    /**
+     * Release a transport obtained from {@link #acquire()}. The transport is stopped when this was the last
+     * reference.
+     *
+     * @param released transport to be released.
+     */
+    void release(TCPNIOTransport released) {
+        synchronized (lock) {
+            if (released != transport || --references > 0) {
+                return;
+            }
+
+            transport = null;
+        }
+
+        try {
+            released.stop();
+        } catch (IOException e) {
+            LOGGER.log(Level.FINE, "Transport closing problem.", e);
+        }
+    }
+}
@@ -42,7 +42,6 @@ package org.glassfish.tyrus.container.grizzly;
 
 import java.io.IOException;
 import java.net.URI;
-import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -309,18 +308,17 @@ class WebSocketFilter extends BaseFilter {
 
             Buffer buffer = message.getContent();
             message.recycle();
-            ByteBuffer webSocketBuffer = BufferHelper.convertBuffer(buffer);
-            // check if we're currently parsing a frame
 
-            engine.processData(writer, webSocketBuffer);
+            // segments of composite buffers are parsed in place, no copy is made here.
+            BufferHelper.processData(engine, writer, buffer);
         }
         return ctx.getStopAction();
     }
 
     /**
      * Handle Grizzly {@link Connection} write phase. If the {@link Connection} has associated {@link WebSocket} object
-     * (websocket connection), we assume that message is websocket {@link DataFrame} and serialize it into a {@link
-     * Buffer}.
+     * (websocket connection), we assume that message is serialized websocket {@link DataFrame} and make sure it is
+     * represented as a {@link Buffer}.
      *
      * @param ctx {@link FilterChainContext}
      * @return {@link NextAction} instruction for {@link FilterChain}, how it should continue the execution
@@ -333,9 +331,12 @@ class WebSocketFilter extends BaseFilter {
         final WebSocket websocket = getWebSocket(writer);
         // if there is one
         if (websocket != null) {
-            final byte[] bytes = ctx.getMessage();
-            final Buffer wrap = Buffers.wrap(ctx.getMemoryManager(), bytes);
-            ctx.setMessage(wrap);
+            final Object message = ctx.getMessage();
+            // frames written as ByteBuffers are already wrapped by GrizzlyWriter.
+            if (message instanceof byte[]) {
+                final Buffer wrap = Buffers.wrap(ctx.getMemoryManager(), (byte[]) message);
+                ctx.setMessage(wrap);
+            }
             ctx.flush(null);
         }
         // invoke next filter in the chain
@@ -371,6 +372,7 @@ class WebSocketFilter extends BaseFilter {
         try {
             final HandshakeResponse handshakeResponse = getWebSocketResponse((HttpResponsePacket) content.getHttpHeader());
             holder.handshake.validateServerResponse(handshakeResponse);
+            holder.handler.setFrameTransformers(holder.handshake.getFrameTransformers());
             holder.handshake.getResponseListener().onHandShakeResponse(handshakeResponse);
             holder.webSocket.onConnect();
         } catch (HandshakeException e) {
@@ -56,6 +56,7 @@ import javax.servlet.http.WebConnection;
 import org.glassfish.tyrus.core.TyrusWebSocket;
 import org.glassfish.tyrus.spi.WebSocketEngine;
 import org.glassfish.tyrus.spi.Writer;
+import org.glassfish.tyrus.websockets.ByteBufferPool;
 import org.glassfish.tyrus.websockets.TyrusWebSocketEngine;
 import org.glassfish.tyrus.websockets.WebSocket;
 
@@ -72,10 +73,29 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
 
     public static final String FRAME_BUFFER_SIZE = "org.glassfish.tyrus.servlet.incoming-buffer-size";
 
+    /**
+     * Context init parameter; when set to {@code true}, incomplete incoming frames are kept in direct buffers.
+     */
+    public static final String FRAME_BUFFER_DIRECT = "org.glassfish.tyrus.servlet.incoming-buffer-direct";
+
+    /**
+     * Context init parameter; number of queued outgoing bytes at which the connection stops being writable.
+     */
+    public static final String OUTGOING_QUEUE_HIGH_WATERMARK = "org.glassfish.tyrus.servlet.outgoing-queue-high-watermark";
+
+    /**
+     * Context init parameter; number of queued outgoing bytes below which the connection becomes writable again.
+     */
+    public static final String OUTGOING_QUEUE_LOW_WATERMARK = "org.glassfish.tyrus.servlet.outgoing-queue-low-watermark";
+
+    /**
+     * Context init parameter; maximal number of queued outgoing bytes, frames which do not fit are not sent.
+     */
+    public static final String OUTGOING_QUEUE_MAX_SIZE = "org.glassfish.tyrus.servlet.outgoing-queue-max-size";
+
     private ServletInputStream is;
     private ServletOutputStream os;
     private WebConnection wc;
-    private ByteBuffer buf;
 
     private volatile boolean closed = false;
     private boolean initiated = false;
@@ -83,6 +103,16 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
 
     private static final Logger LOGGER = Logger.getLogger(TyrusHttpUpgradeHandler.class.getName());
 
+    /**
+     * Size of the buffer data are read from {@link ServletInputStream} to.
+     */
+    private static final int READ_BUFFER_SIZE = 16384;
+
+    /**
+     * Read buffers shared by all connections.
+     */
+    private static final ByteBufferPool READ_BUFFER_POOL = new ByteBufferPool();
+
     private WebSocketEngine engine;
     private Writer writer;
 
@@ -115,83 +145,34 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
 
     @Override
     public void onDataAvailable() {
-        do {
-            try {
-                int available = is.available();
-                while (available > 0) {
-                    int toRead = (buf == null ?
-                            (available > incomingBufferSize ? incomingBufferSize : available) :
-                            buf.remaining() + available > incomingBufferSize ? incomingBufferSize - buf.remaining() : buf.remaining() + available
-                    );
-
-                    if (toRead == 0) {
-                        throw new IOException(String.format("Tyrus input buffer exceeded. Current buffer size is %s bytes.",
-                                incomingBufferSize));
-                    }
-
-                    available -= fillBuf(toRead);
+        // read buffer is held only while data is being read, idle connections do not keep any.
+        final ByteBuffer buffer = READ_BUFFER_POOL.acquire(Math.min(READ_BUFFER_SIZE, incomingBufferSize));
+        try {
+            final byte[] array = buffer.array();
+            final int offset = buffer.arrayOffset();
+            final int capacity = buffer.capacity();
+
+            do {
+                final int len = is.read(array, offset, capacity);
+                if (len < 0) {
+                    // end of stream, onAllDataRead will follow.
+                    break;
+                }
 
-                    LOGGER.finest(String.format("Remaining Data = %d", buf.remaining()));
+                LOGGER.finest(String.format("Read Data = %d", len));
 
-                    if (buf.hasRemaining()) {
-                        engine.processData(writer, buf);
-                    }
+                if (len > 0) {
+                    // engine consumes whole buffer, incomplete frames are copied to its own buffer.
+                    buffer.clear();
+                    buffer.limit(len);
+                    engine.processData(writer, buffer);
                 }
-            } catch (IOException e) {
-                engine.close(writer, WebSocket.INVALID_DATA, null);
-            }
-        } while (!closed && is.isReady());
-    }
-
-    /**
-     * Fill the buf with some more websocket protocol data.
-     *
-     * @param length length of data available to read.
-     * @return legth of actually read data.
-     * @throws IOException if some other I/O error occurs.
-     */
-    private int fillBuf(int length) throws IOException {
-        byte[] data = new byte[length];
-        int len = is.read(data);
-        if (len == 0) {
-            throw new RuntimeException("No data available.");
-        }
-        if (buf == null) {
-            LOGGER.finest("No Buffer. Allocating new one");
-            buf = ByteBuffer.wrap(data);
-            buf.limit(len);
-        } else {
-            int limit = buf.limit();
-            int capacity = buf.capacity();
-            int remaining = buf.remaining();
-
-            if (capacity - limit >= len) {
-                // Remaining data need not be changed. New data is just appended
-                LOGGER.finest("Remaining data need not be moved. New data is just appended");
-                buf.mark();
-                buf.position(limit);
-                buf.limit(capacity);
-                buf.put(data, 0, len);
-                buf.limit(limit + len);
-                buf.reset();
-            } else if (remaining + len < capacity) {
-                // Remaining data is moved to left. Then new data is appended
-                LOGGER.finest("Remaining data is moved to left. Then new data is appended");
-                buf.compact();
-                buf.put(data, 0, len);
-                buf.flip();
-            } else {
-                // Remaining data + new > capacity. So allocate new one
-                LOGGER.finest("Remaining data + new > capacity. So allocate new one");
-                byte[] array = new byte[remaining + len];
-                buf.get(array, 0, remaining);
-                System.arraycopy(data, 0, array, remaining, len);
-                buf = ByteBuffer.wrap(array);
-                buf.limit(remaining + len);
-            }
+            } while (!closed && is.isReady());
+        } catch (IOException e) {
+            engine.close(writer, WebSocket.INVALID_DATA, null);
+        } finally {
+            READ_BUFFER_POOL.release(buffer);
         }
-
-        return len;
     }
 
     @Override
@@ -250,6 +231,25 @@ public class TyrusHttpUpgradeHandler implements HttpUpgradeHandler, ReadListener
         this.incomingBufferSize = incomingBufferSize;
     }
 
+    /**
+     * Close the connection with given close code, for example when the peer does not read data fast enough.
+     * <p/>
+     * Close frame is written after frames which are already being written, the underlying connection is closed when
+     * the close frame is written.
+     *
+     * @param closeCode   close code.
+     * @param closeReason close reason.
+     */
+    void initiateClose(int closeCode, String closeReason) {
+        if (!closed && engine != null) {
+            try {
+                engine.close(writer, closeCode, closeReason);
+            } catch (Exception e) {
+                LOGGER.log(Level.CONFIG, e.getMessage(), e);
+            }
+        }
+    }
+
     private void httpSessionForcedClose(int closeCode, String closeReason) {
         if (!closed) {
             try {
@@ -71,6 +71,7 @@ import org.glassfish.tyrus.core.Utils;
 import org.glassfish.tyrus.server.ServerContainerFactory;
 import org.glassfish.tyrus.spi.WebSocketEngine;
 import org.glassfish.tyrus.spi.Writer;
+import org.glassfish.tyrus.websockets.ByteBufferPool;
 import org.glassfish.tyrus.websockets.HandshakeException;
 import org.glassfish.tyrus.websockets.TyrusWebSocketEngine;
 
@@ -95,6 +96,10 @@ public class TyrusServletFilter implements Filter, HttpSessionListener {
     private final Set<Class<?>> dynamicallyDeployedClasses = new HashSet<Class<?>>();
     private final Set<ServerEndpointConfig> dynamicallyDeployedServerEndpointConfigs = new HashSet<ServerEndpointConfig>();
 
+    private int outgoingHighWatermark = TyrusServletWriter.DEFAULT_HIGH_WATERMARK;
+    private int outgoingLowWatermark = TyrusServletWriter.DEFAULT_LOW_WATERMARK;
+    private int outgoingMaxQueueSize = TyrusServletWriter.DEFAULT_MAX_QUEUE_SIZE;
+
     // I don't like this map, but it seems like it is necessary. I am forced to handle subscriptions
     // for HttpSessionListener because the listener itself must be registered *before* ServletContext
     // initialization.
@@ -126,6 +131,12 @@ public class TyrusServletFilter implements Filter, HttpSessionListener {
         if (frameBufferSize != null) {
             engine.setIncomingBufferSize(Integer.parseInt(frameBufferSize));
         }
+        if (Boolean.parseBoolean(filterConfig.getServletContext().getInitParameter(TyrusHttpUpgradeHandler.FRAME_BUFFER_DIRECT))) {
+            engine.setBufferPool(new ByteBufferPool(true, ByteBufferPool.DEFAULT_MAX_POOLED_BUFFER_SIZE, ByteBufferPool.DEFAULT_MAX_POOLED_BUFFERS));
+        }
+        outgoingHighWatermark = getIntInitParameter(filterConfig, TyrusHttpUpgradeHandler.OUTGOING_QUEUE_HIGH_WATERMARK, outgoingHighWatermark);
+        outgoingLowWatermark = getIntInitParameter(filterConfig, TyrusHttpUpgradeHandler.OUTGOING_QUEUE_LOW_WATERMARK, outgoingLowWatermark);
+        outgoingMaxQueueSize = getIntInitParameter(filterConfig, TyrusHttpUpgradeHandler.OUTGOING_QUEUE_MAX_SIZE, outgoingMaxQueueSize);
 
         String contextRoot = filterConfig.getServletContext().getContextPath();
         this.serverContainer = ServerContainerFactory.create(new ServletServerFactory(engine), contextRoot, INFORMATIONAL_FIXED_PORT, classes, dynamicallyDeployedClasses, dynamicallyDeployedServerEndpointConfigs);
@@ -143,6 +154,19 @@ public class TyrusServletFilter implements Filter, HttpSessionListener {
         }
     }
 
+    private static int getIntInitParameter(FilterConfig filterConfig, String name, int defaultValue) {
+        final String value = filterConfig.getServletContext().getInitParameter(name);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            LOGGER.log(Level.CONFIG, String.format("Invalid value of %s: %s, using %d.", name, value, defaultValue));
+            return defaultValue;
+        }
+    }
+
     @Override
     public void sessionCreated(HttpSessionEvent se) {
         // do nothing.
@@ -206,6 +230,11 @@ public class TyrusServletFilter implements Filter, HttpSessionListener {
             return handler.getWebConnection();
         }
 
+        @Override
+        void initiateClose(int closeCode, String closeReason) {
+            handler.initiateClose(closeCode, closeReason);
+        }
+
         void setHandler(TyrusHttpUpgradeHandler handler) {
             this.handler = handler;
         }
@@ -223,13 +252,20 @@ public class TyrusServletFilter implements Filter, HttpSessionListener {
 
             final TyrusHttpUpgradeHandlerProxy handler = new TyrusHttpUpgradeHandlerProxy();
 
-            final TyrusServletWriter webSocketConnection = new TyrusServletWriter(handler, httpServletResponse);
+            final TyrusServletWriter webSocketConnection = new TyrusServletWriter(handler, httpServletResponse,
+                    outgoingHighWatermark, outgoingLowWatermark, outgoingMaxQueueSize);
 
             final RequestContext requestContext = RequestContext.Builder.create()
                     .requestURI(URI.create(httpServletRequest.getRequestURI()))
                     .queryString(httpServletRequest.getQueryString())
                     .requestPath(httpServletRequest.getServletPath())
-                    .httpSession(httpServletRequest.getSession())
+                    .httpSessionDelegate(new RequestContext.Builder.HttpSessionDelegate() {
+                        @Override
+                        public Object getHttpSession() {
+                            // created only when endpoint (configurator) asks for it.
+                            return httpServletRequest.getSession();
+                        }
+                    })
                     .secure(httpServletRequest.isSecure())
                     .userPrincipal(httpServletRequest.getUserPrincipal())
                     .isUserInRoleDelegate(new RequestContext.Builder.IsUserInRoleDelegate() {
@@ -271,7 +307,12 @@ public class TyrusServletFilter implements Filter, HttpSessionListener {
 
                         // calls engine.onConnect()
                         handler.postInit(engine, webSocketConnection, httpServletRequest.getUserPrincipal() != null);
-                        sessionToHandler.put(httpServletRequest.getSession(), handler);
+
+                        // close on invalidation only when the handshake request is part of http session.
+                        final HttpSession httpSession = httpServletRequest.getSession(false);
+                        if (httpSession != null) {
+                            sessionToHandler.put(httpSession, handler);
+                        }
                     }
                 };
 
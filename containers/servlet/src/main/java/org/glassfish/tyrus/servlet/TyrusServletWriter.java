@@ -41,31 +41,65 @@ package org.glassfish.tyrus.servlet;
 
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ArrayBlockingQueue;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletOutputStream;
 import javax.servlet.WriteListener;
 import javax.servlet.http.HttpServletResponse;
+import javax.websocket.CloseReason;
 
 import org.glassfish.tyrus.core.Utils;
+import org.glassfish.tyrus.spi.AbstractWriter;
 import org.glassfish.tyrus.spi.HandshakeResponse;
 import org.glassfish.tyrus.spi.WebSocketEngine;
 import org.glassfish.tyrus.spi.Writer;
 
 /**
  * {@link org.glassfish.tyrus.spi.Writer} implementation used in Servlet integration.
+ * <p/>
+ * Frames which cannot be written right away are kept in a per-connection queue bounded by
+ * {@link TyrusHttpUpgradeHandler#OUTGOING_QUEUE_MAX_SIZE} bytes. The connection stops being {@link #isWritable()
+ * writable} when the queue reaches the high watermark and becomes writable again when it drains below the low
+ * watermark. Queued frames are written together and flushed once when the container signals that writing is possible.
+ * <p/>
+ * Control frames are always queued. When a data frame does not fit into the queue, frames which were not started to be
+ * written are failed and the connection is closed with {@link CloseReason.CloseCodes#VIOLATED_POLICY}; failing just the
+ * one frame would leave the peer with a corrupted message.
  *
  * @author Pavel Bucek (pavel.bucek at oracle.com)
  */
-class TyrusServletWriter implements Writer, WriteListener, WebSocketEngine.ResponseWriter {
+class TyrusServletWriter extends AbstractWriter implements WriteListener, WebSocketEngine.ResponseWriter {
+
+    /**
+     * Default high watermark of the outgoing queue in bytes.
+     */
+    static final int DEFAULT_HIGH_WATERMARK = 64 * 1024;
+
+    /**
+     * Default low watermark of the outgoing queue in bytes.
+     */
+    static final int DEFAULT_LOW_WATERMARK = 32 * 1024;
+
+    /**
+     * Default maximal size of the outgoing queue in bytes.
+     */
+    static final int DEFAULT_MAX_QUEUE_SIZE = 4 * 1024 * 1024;
 
     private final TyrusHttpUpgradeHandler tyrusHttpUpgradeHandler;
     private final HttpServletResponse httpServletResponse;
-    private final ArrayBlockingQueue<QueuedFrame> queue = new ArrayBlockingQueue<QueuedFrame>(32);
+    private final int highWatermark;
+    private final int lowWatermark;
+    private final int maxQueueSize;
+
+    // guarded by outputStreamLock
+    private final ArrayDeque<QueuedFrame> queue = new ArrayDeque<QueuedFrame>();
+    private long queuedBytes = 0;
 
     private final Object outputStreamLock = new Object();
 
@@ -73,15 +107,26 @@ class TyrusServletWriter implements Writer, WriteListener, WebSocketEngine.Respo
 
     // servlet output stream is not thread safe, we need to ensure it is not accessed from multiple threads at once.
     private ServletOutputStream servletOutputStream = null;
-    private volatile boolean isReady = false;
+    private volatile boolean writable = true;
+    // set when the outgoing queue overflows, only control frames are written afterwards; guarded by outputStreamLock.
+    private boolean overflowed = false;
 
     private static class QueuedFrame {
-        public final CompletionHandler<byte[]> completionHandler;
-        public final byte[] dataFrame;
+        public final CompletionHandler<ByteBuffer[]> completionHandler;
+        public final ByteBuffer[] dataFrame;
+        public final long length;
+        // index of the first buffer which was not written yet.
+        public int next = 0;
 
-        QueuedFrame(CompletionHandler<byte[]> completionHandler, byte[] dataFrame) {
+        QueuedFrame(CompletionHandler<ByteBuffer[]> completionHandler, ByteBuffer[] dataFrame) {
             this.completionHandler = completionHandler;
             this.dataFrame = dataFrame;
+
+            long length = 0;
+            for (ByteBuffer buffer : dataFrame) {
+                length += buffer.remaining();
+            }
+            this.length = length;
         }
     }
 
@@ -92,22 +137,67 @@ class TyrusServletWriter implements Writer, WriteListener, WebSocketEngine.Respo
      * @param httpServletResponse     response instance - upgrade process should set proper headers and status (101 or 5xx).
      */
     public TyrusServletWriter(TyrusHttpUpgradeHandler tyrusHttpUpgradeHandler, HttpServletResponse httpServletResponse) {
+        this(tyrusHttpUpgradeHandler, httpServletResponse, DEFAULT_HIGH_WATERMARK, DEFAULT_LOW_WATERMARK, DEFAULT_MAX_QUEUE_SIZE);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param tyrusHttpUpgradeHandler encapsulated {@link TyrusHttpUpgradeHandler} instance.
+     * @param httpServletResponse     response instance - upgrade process should set proper headers and status (101 or 5xx).
+     * @param highWatermark           queued bytes at which the writer stops being writable.
+     * @param lowWatermark            queued bytes below which the writer becomes writable again.
+     * @param maxQueueSize            maximal number of queued bytes, connection is closed when a frame does not fit.
+     */
+    TyrusServletWriter(TyrusHttpUpgradeHandler tyrusHttpUpgradeHandler, HttpServletResponse httpServletResponse,
+                       int highWatermark, int lowWatermark, int maxQueueSize) {
         this.tyrusHttpUpgradeHandler = tyrusHttpUpgradeHandler;
         this.httpServletResponse = httpServletResponse;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = Math.min(lowWatermark, highWatermark);
+        this.maxQueueSize = Math.max(maxQueueSize, highWatermark);
     }
 
     @Override
     public void onWritePossible() throws IOException {
         LOGGER.log(Level.FINEST, "OnWritePossible called");
 
-        QueuedFrame queuedFrame = queue.poll();
-        isReady = servletOutputStream.isReady();
+        final List<QueuedFrame> written = new ArrayList<QueuedFrame>();
+        List<QueuedFrame> failed = null;
+        Exception failure = null;
+
+        synchronized (outputStreamLock) {
+            try {
+                // gather as many queued frames as the container accepts, flush them once.
+                while (servletOutputStream.isReady()) {
+                    final QueuedFrame queuedFrame = queue.peek();
+                    if (queuedFrame == null) {
+                        servletOutputStream.flush();
+                        break;
+                    }
+
+                    if (queuedFrame.next < queuedFrame.dataFrame.length) {
+                        writeBuffer(queuedFrame.dataFrame[queuedFrame.next++]);
+                    }
+                    if (queuedFrame.next >= queuedFrame.dataFrame.length) {
+                        dequeue();
+                        written.add(queuedFrame);
+                    }
+                }
+            } catch (Exception e) {
+                failure = e;
+                failed = new ArrayList<QueuedFrame>(queue);
+                queue.clear();
+                queuedBytes = 0;
+            }
+        }
 
-        while (isReady && queuedFrame != null) {
-            _write(queuedFrame.dataFrame, queuedFrame.completionHandler);
-            isReady = servletOutputStream.isReady();
-            if (isReady) {
-                queuedFrame = queue.poll();
+        for (QueuedFrame queuedFrame : written) {
+            completed(queuedFrame);
+        }
+        if (failed != null) {
+            for (QueuedFrame queuedFrame : failed) {
+                failed(queuedFrame.completionHandler, failure);
             }
         }
     }
@@ -115,10 +205,49 @@ class TyrusServletWriter implements Writer, WriteListener, WebSocketEngine.Respo
     @Override
     public void onError(Throwable t) {
         LOGGER.log(Level.WARNING, "WriteListener.onError", t);
+
+        final List<QueuedFrame> failed;
+        synchronized (outputStreamLock) {
+            failed = new ArrayList<QueuedFrame>(queue);
+            queue.clear();
+            queuedBytes = 0;
+        }
+
+        for (QueuedFrame queuedFrame : failed) {
+            failed(queuedFrame.completionHandler, t);
+        }
     }
 
     @Override
-    public void write(final byte[] bytes, Writer.CompletionHandler<byte[]> completionHandler) {
+    public void write(final byte[] bytes, final Writer.CompletionHandler<byte[]> completionHandler) {
+        write(new ByteBuffer[]{ByteBuffer.wrap(bytes)}, new Writer.CompletionHandler<ByteBuffer[]>() {
+            @Override
+            public void cancelled() {
+                if (completionHandler != null) {
+                    completionHandler.cancelled();
+                }
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                if (completionHandler != null) {
+                    completionHandler.failed(throwable);
+                }
+            }
+
+            @Override
+            public void completed(ByteBuffer[] result) {
+                if (completionHandler != null) {
+                    completionHandler.completed(bytes);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void write(final ByteBuffer[] buffers, Writer.CompletionHandler<ByteBuffer[]> completionHandler) {
+        List<QueuedFrame> dropped = null;
+        IOException failure = null;
 
         synchronized (outputStreamLock) {
             // first write
@@ -127,45 +256,151 @@ class TyrusServletWriter implements Writer, WriteListener, WebSocketEngine.Respo
                     servletOutputStream = tyrusHttpUpgradeHandler.getWebConnection().getOutputStream();
                 } catch (IOException e) {
                     LOGGER.log(Level.CONFIG, "ServletOutputStream cannot be obtained", e);
-                    completionHandler.failed(e);
+                    failed(completionHandler, e);
                     return;
                 }
-                isReady = servletOutputStream.isReady();
                 servletOutputStream.setWriteListener(this);
+            }
+
+            final boolean controlFrame = isControlFrame(buffers);
+            if (overflowed && !controlFrame) {
+                failed(completionHandler, new IOException("Outgoing queue overflowed, connection is being closed."));
+                return;
+            }
+
+            // frames have to be written in order, nothing can overtake already queued frames.
+            if (!queue.isEmpty() || !servletOutputStream.isReady()) {
+                final QueuedFrame queuedFrame = new QueuedFrame(completionHandler, buffers);
+                if (controlFrame || queue.isEmpty() || queuedBytes + queuedFrame.length <= maxQueueSize) {
+                    enqueue(queuedFrame);
+                    return;
+                }
+
+                LOGGER.log(Level.FINE, "Outgoing queue is full, closing the connection");
+                failure = new IOException(String.format(
+                        "Outgoing queue is full, %d bytes are waiting to be written.", queuedBytes));
+                dropped = overflow();
+                dropped.add(queuedFrame);
             } else {
-                isReady = servletOutputStream.isReady();
+                try {
+                    for (int i = 0; i < buffers.length; i++) {
+                        if (i > 0 && !servletOutputStream.isReady()) {
+                            // rest of the frame is written from onWritePossible.
+                            final QueuedFrame queuedFrame = new QueuedFrame(completionHandler, buffers);
+                            queuedFrame.next = i;
+                            enqueue(queuedFrame);
+                            return;
+                        }
+                        writeBuffer(buffers[i]);
+                    }
+                    if (servletOutputStream.isReady()) {
+                        servletOutputStream.flush();
+                    }
+                } catch (Exception e) {
+                    failed(completionHandler, e);
+                    return;
+                }
             }
         }
 
-        if (isReady) {
-            _write(bytes, completionHandler);
-        } else {
-            final QueuedFrame queuedFrame = new QueuedFrame(completionHandler, bytes);
-            try {
-                queue.put(queuedFrame);
-            } catch (InterruptedException e) {
-                LOGGER.log(Level.CONFIG, "Cannot enqueue frame", e);
-                completionHandler.failed(e);
+        if (dropped != null) {
+            for (QueuedFrame queuedFrame : dropped) {
+                failed(queuedFrame.completionHandler, failure);
             }
+            tyrusHttpUpgradeHandler.initiateClose(CloseReason.CloseCodes.VIOLATED_POLICY.getCode(), "Outgoing queue is full.");
+            return;
+        }
+
+        if (completionHandler != null) {
+            completionHandler.completed(buffers);
         }
     }
 
-    public void _write(final byte[] bytes, Writer.CompletionHandler<byte[]> completionHandler) {
+    @Override
+    public boolean isWritable() {
+        return writable;
+    }
 
-        try {
-            synchronized (outputStreamLock) {
-                servletOutputStream.write(bytes);
-                servletOutputStream.flush();
-            }
+    private void enqueue(QueuedFrame queuedFrame) {
+        queue.add(queuedFrame);
+        queuedBytes += queuedFrame.length;
+        if (writable && queuedBytes >= highWatermark) {
+            writable = false;
+        }
+    }
 
-            if (completionHandler != null) {
-                completionHandler.completed(bytes);
-            }
-        } catch (Exception e) {
-            if (completionHandler != null) {
-                completionHandler.failed(e);
+    private void dequeue() {
+        final QueuedFrame queuedFrame = queue.poll();
+        queuedBytes -= queuedFrame.length;
+        if (!writable && !overflowed && queuedBytes < lowWatermark) {
+            writable = true;
+        }
+    }
+
+    /**
+     * Switch to the overflowed state and remove queued frames which were not started to be written. Partially written
+     * frame stays queued, so frames written later (close frame) are not corrupted.
+     *
+     * @return removed frames.
+     */
+    private List<QueuedFrame> overflow() {
+        overflowed = true;
+        writable = false;
+
+        final List<QueuedFrame> dropped = new ArrayList<QueuedFrame>(queue);
+        queue.clear();
+        queuedBytes = 0;
+
+        if (!dropped.isEmpty() && dropped.get(0).next > 0) {
+            enqueue(dropped.remove(0));
+        }
+        return dropped;
+    }
+
+    /**
+     * Check whether given buffers start with a control frame. Buffers passed to the writer always start at the frame
+     * boundary.
+     *
+     * @param buffers written buffers.
+     * @return {@code true} when the opcode of the first frame is a control frame opcode.
+     */
+    private static boolean isControlFrame(ByteBuffer[] buffers) {
+        for (ByteBuffer buffer : buffers) {
+            if (buffer.hasRemaining()) {
+                return (buffer.get(buffer.position()) & 0x08) != 0;
             }
         }
+        return false;
+    }
+
+    private static void completed(QueuedFrame queuedFrame) {
+        if (queuedFrame.completionHandler != null) {
+            queuedFrame.completionHandler.completed(queuedFrame.dataFrame);
+        }
+    }
+
+    private static void failed(Writer.CompletionHandler<ByteBuffer[]> completionHandler, Throwable throwable) {
+        if (completionHandler != null) {
+            completionHandler.failed(throwable);
+        }
+    }
+
+    /**
+     * Write remaining bytes of given buffer to the servlet output stream. Heap buffers are written directly from
+     * their backing array, other buffers have to be copied.
+     *
+     * @param buffer buffer to be written.
+     * @throws IOException when the write fails.
+     */
+    private void writeBuffer(ByteBuffer buffer) throws IOException {
+        final int length = buffer.remaining();
+        if (buffer.hasArray()) {
+            servletOutputStream.write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+        } else {
+            final byte[] bytes = new byte[length];
+            buffer.duplicate().get(bytes);
+            servletOutputStream.write(bytes);
+        }
     }
 
     @Override
@@ -183,5 +418,19 @@ class TyrusServletWriter implements Writer, WriteListener, WebSocketEngine.Respo
         } catch (Exception e) {
             // do nothing.
         }
+
+        final List<QueuedFrame> failed;
+        synchronized (outputStreamLock) {
+            failed = new ArrayList<QueuedFrame>(queue);
+            queue.clear();
+            queuedBytes = 0;
+        }
+
+        if (!failed.isEmpty()) {
+            final IOException failure = new IOException("Connection is closed.");
+            for (QueuedFrame queuedFrame : failed) {
+                failed(queuedFrame.completionHandler, failure);
+            }
+        }
     }
 }
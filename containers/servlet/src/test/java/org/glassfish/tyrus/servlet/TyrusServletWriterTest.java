@@ -0,0 +1,305 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.servlet;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.WebConnection;
+import javax.websocket.CloseReason;
+
+import org.glassfish.tyrus.spi.Writer;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests queueing of outgoing frames in {@link TyrusServletWriter}.
+ */
+public class TyrusServletWriterTest {
+
+    private static final byte BINARY = (byte) 0x82;
+    private static final byte PING = (byte) 0x89;
+
+    @Test
+    public void testWriteWhenReady() {
+        final TestConnection connection = new TestConnection();
+        final TyrusServletWriter writer = connection.createWriter(10, 5, 100);
+
+        final RecordingHandler handler = new RecordingHandler();
+        writer.write(frame(BINARY, 1, 2), handler);
+
+        assertEquals(1, handler.completed);
+        assertArrayEquals(bytes(BINARY, 2, 1, 2), connection.outputStream.written());
+        assertEquals(1, connection.outputStream.flushes);
+        assertTrue(writer.isWritable());
+    }
+
+    @Test
+    public void testQueueAndWatermarks() throws IOException {
+        final TestConnection connection = new TestConnection();
+        final TyrusServletWriter writer = connection.createWriter(10, 5, 100);
+        connection.outputStream.ready = false;
+
+        final RecordingHandler first = new RecordingHandler();
+        final RecordingHandler second = new RecordingHandler();
+        writer.write(frame(BINARY, 1, 2, 3, 4, 5), first);
+        assertTrue("Below high watermark.", writer.isWritable());
+        writer.write(frame(BINARY, 6, 7, 8, 9, 10), second);
+        assertFalse("High watermark reached.", writer.isWritable());
+
+        assertEquals(0, first.completed);
+        assertEquals(0, second.completed);
+        assertEquals(0, connection.outputStream.written().length);
+
+        connection.outputStream.ready = true;
+        writer.onWritePossible();
+
+        assertEquals(1, first.completed);
+        assertEquals(1, second.completed);
+        assertTrue(writer.isWritable());
+        assertArrayEquals(bytes(BINARY, 5, 1, 2, 3, 4, 5, BINARY, 5, 6, 7, 8, 9, 10), connection.outputStream.written());
+        assertEquals("Queued frames are flushed once.", 1, connection.outputStream.flushes);
+    }
+
+    @Test
+    public void testPartiallyWrittenFrameIsResumed() throws IOException {
+        final TestConnection connection = new TestConnection();
+        final TyrusServletWriter writer = connection.createWriter(10, 5, 100);
+        connection.outputStream.writesUntilNotReady = 1;
+
+        final RecordingHandler first = new RecordingHandler();
+        final RecordingHandler second = new RecordingHandler();
+        writer.write(new ByteBuffer[]{ByteBuffer.wrap(bytes(BINARY, 2)), ByteBuffer.wrap(bytes(1, 2))}, first);
+        writer.write(frame(BINARY, 3), second);
+
+        assertEquals(0, first.completed);
+        assertArrayEquals("Only the frame header was accepted.", bytes(BINARY, 2), connection.outputStream.written());
+
+        connection.outputStream.ready = true;
+        writer.onWritePossible();
+
+        assertEquals(1, first.completed);
+        assertEquals(1, second.completed);
+        assertArrayEquals(bytes(BINARY, 2, 1, 2, BINARY, 1, 3), connection.outputStream.written());
+    }
+
+    @Test
+    public void testOverflowClosesConnection() throws IOException {
+        final TestConnection connection = new TestConnection();
+        final TyrusServletWriter writer = connection.createWriter(10, 5, 20);
+        connection.outputStream.writesUntilNotReady = 1;
+
+        // first frame is partially written, second one waits in the queue.
+        final RecordingHandler partial = new RecordingHandler();
+        final RecordingHandler queued = new RecordingHandler();
+        final RecordingHandler overflowing = new RecordingHandler();
+        writer.write(new ByteBuffer[]{ByteBuffer.wrap(bytes(BINARY, 2)), ByteBuffer.wrap(bytes(1, 2))}, partial);
+        writer.write(frame(BINARY, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), queued);
+        writer.write(frame(BINARY, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10), overflowing);
+
+        assertEquals(1, queued.failed);
+        assertEquals(1, overflowing.failed);
+        assertEquals(0, partial.failed);
+        assertEquals(CloseReason.CloseCodes.VIOLATED_POLICY.getCode(), connection.closeCode);
+        assertFalse(writer.isWritable());
+
+        final RecordingHandler afterOverflow = new RecordingHandler();
+        writer.write(frame(BINARY, 1), afterOverflow);
+        assertEquals("Data frames are not accepted after overflow.", 1, afterOverflow.failed);
+
+        final RecordingHandler close = new RecordingHandler();
+        writer.write(frame((byte) 0x88, 0), close);
+        assertEquals(0, close.failed);
+
+        connection.outputStream.ready = true;
+        writer.onWritePossible();
+
+        assertEquals(1, partial.completed);
+        assertEquals(1, close.completed);
+        assertArrayEquals("Partially written frame is finished before the close frame.",
+                bytes(BINARY, 2, 1, 2, 0x88, 1, 0), connection.outputStream.written());
+    }
+
+    @Test
+    public void testControlFrameIsAlwaysQueued() {
+        final TestConnection connection = new TestConnection();
+        final TyrusServletWriter writer = connection.createWriter(10, 5, 20);
+        connection.outputStream.ready = false;
+
+        final RecordingHandler data = new RecordingHandler();
+        final RecordingHandler ping = new RecordingHandler();
+        writer.write(frame(BINARY, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18), data);
+        writer.write(frame(PING, 1, 2, 3, 4), ping);
+
+        assertEquals(0, data.failed);
+        assertEquals(0, ping.failed);
+        assertEquals(-1, connection.closeCode);
+    }
+
+    @Test
+    public void testCloseFailsQueuedFrames() {
+        final TestConnection connection = new TestConnection();
+        final TyrusServletWriter writer = connection.createWriter(10, 5, 100);
+        connection.outputStream.ready = false;
+
+        final RecordingHandler handler = new RecordingHandler();
+        writer.write(frame(BINARY, 1), handler);
+        writer.close();
+
+        assertEquals(1, handler.failed);
+        assertTrue(connection.closed);
+    }
+
+    private static byte[] bytes(int... values) {
+        final byte[] bytes = new byte[values.length];
+        for (int i = 0; i < values.length; i++) {
+            bytes[i] = (byte) values[i];
+        }
+        return bytes;
+    }
+
+    private static ByteBuffer[] frame(byte header, int... payload) {
+        return new ByteBuffer[]{ByteBuffer.wrap(new byte[]{header, (byte) payload.length}), ByteBuffer.wrap(bytes(payload))};
+    }
+
+    private static class RecordingHandler extends Writer.CompletionHandler<ByteBuffer[]> {
+
+        private int completed = 0;
+        private int failed = 0;
+
+        @Override
+        public void completed(ByteBuffer[] result) {
+            completed++;
+        }
+
+        @Override
+        public void failed(Throwable throwable) {
+            failed++;
+        }
+    }
+
+    /**
+     * Output stream which is ready until {@link #writesUntilNotReady} writes are done.
+     */
+    private static class TestOutputStream extends ServletOutputStream {
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private boolean ready = true;
+        private int writesUntilNotReady = -1;
+        private int flushes = 0;
+
+        @Override
+        public boolean isReady() {
+            return ready;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            assertTrue("Written only when ready.", ready);
+            bytes.write(b, off, len);
+            if (writesUntilNotReady > 0 && --writesUntilNotReady == 0) {
+                ready = false;
+            }
+        }
+
+        @Override
+        public void flush() {
+            flushes++;
+        }
+
+        byte[] written() {
+            return bytes.toByteArray();
+        }
+    }
+
+    private static class TestConnection extends TyrusHttpUpgradeHandler implements WebConnection {
+
+        private final TestOutputStream outputStream = new TestOutputStream();
+        private int closeCode = -1;
+        private boolean closed = false;
+
+        TyrusServletWriter createWriter(int highWatermark, int lowWatermark, int maxQueueSize) {
+            return new TyrusServletWriter(this, null, highWatermark, lowWatermark, maxQueueSize);
+        }
+
+        @Override
+        WebConnection getWebConnection() {
+            return this;
+        }
+
+        @Override
+        void initiateClose(int closeCode, String closeReason) {
+            this.closeCode = closeCode;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            return null;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() {
+            return outputStream;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
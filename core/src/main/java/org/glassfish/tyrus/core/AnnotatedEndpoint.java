@@ -42,6 +42,9 @@ package org.glassfish.tyrus.core;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -82,6 +85,7 @@ import javax.websocket.server.ServerEndpointConfig;
  */
 public class AnnotatedEndpoint extends Endpoint {
     private static final Logger LOGGER = Logger.getLogger(AnnotatedEndpoint.class.getName());
+    private static final Object[] NO_ARGUMENTS = new Object[0];
 
     private final Object annotatedInstance;
     private final Class<?> annotatedClass;
@@ -149,6 +153,9 @@ public class AnnotatedEndpoint extends Endpoint {
 
         // TODO: how about methods from the superclass?
         for (Method m : annotatedClass.getDeclaredMethods()) {
+            if (m.getAnnotations().length > 0 && isPublic(m)) {
+                makeAccessible(m);
+            }
             for (Annotation a : m.getAnnotations()) {
                 // TODO: should we support multiple annotations on the same method?
                 if (a instanceof OnOpen) {
@@ -355,7 +362,7 @@ public class AnnotatedEndpoint extends Endpoint {
                     final Decoder.Text<?> decoder = PrimitiveDecoders.ALL_INSTANCES.get(PrimitivesToWrappers.getPrimitiveWrapper(type));
 
                     @Override
-                    public Object value(Session session, Object... values) throws DecodeException {
+                    public Object value(Session session, Object first, Object second) throws DecodeException {
                         Object result = null;
 
                         if (decoder != null) {
@@ -375,25 +382,25 @@ public class AnnotatedEndpoint extends Endpoint {
                 }
                 result[i] = new ParameterExtractor() {
                     @Override
-                    public Object value(Session session, Object... values) {
+                    public Object value(Session session, Object first, Object second) {
                         return session;
                     }
                 };
             } else if (type == EndpointConfig.class) {
                 result[i] = new ParameterExtractor() {
                     @Override
-                    public Object value(Session session, Object... values) {
+                    public Object value(Session session, Object first, Object second) {
                         return getEndpointConfig();
                     }
                 };
             } else if (params.contains(type)) {
                 result[i] = new ParameterExtractor() {
                     @Override
-                    public Object value(Session session, Object... values) {
-                        for (Object value : values) {
-                            if (value != null && type.isAssignableFrom(value.getClass())) {
-                                return value;
-                            }
+                    public Object value(Session session, Object first, Object second) {
+                        if (type.isInstance(first)) {
+                            return first;
+                        } else if (type.isInstance(second)) {
+                            return second;
                         }
 
                         return null;
@@ -416,15 +423,63 @@ public class AnnotatedEndpoint extends Endpoint {
         return null;
     }
 
-    private Object callMethod(Method method, ParameterExtractor[] extractors, Session session, boolean callOnError, Object... params) {
-        Object[] paramValues = new Object[extractors.length];
+    /**
+     * Check whether the method and its class are public, so the Java language access checks permit the invocation
+     * anyway. Other methods are not made accessible and their invocation keeps failing as before.
+     *
+     * @param method annotated method.
+     * @return {@code true} if the method can be made accessible without changing which methods can be invoked.
+     */
+    private static boolean isPublic(Method method) {
+        return Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers());
+    }
+
+    /**
+     * Suppress the Java language access checks for an annotated method, so that they are not repeated on each
+     * invocation. Access checks are kept if the security manager does not permit that.
+     *
+     * @param method public method to be made accessible.
+     */
+    private static void makeAccessible(final Method method) {
+        try {
+            AccessController.doPrivileged(new PrivilegedAction<Object>() {
+                @Override
+                public Object run() {
+                    method.setAccessible(true);
+                    return null;
+                }
+            });
+        } catch (SecurityException e) {
+            LOGGER.log(Level.FINE, String.format("Method '%s' cannot be made accessible", method), e);
+        }
+    }
+
+    /**
+     * Get the endpoint instance the annotated methods are invoked on for the given session.
+     *
+     * @param session session the instance is coupled to.
+     * @return endpoint instance or {@code null} if the component provider failed to provide one.
+     */
+    private Object getEndpoint(Session session) {
+        return annotatedInstance != null ? annotatedInstance :
+                componentProvider.getInstance(annotatedClass, (TyrusSession) session, TyrusEndpointWrapper.ENDPOINT_SLOT, collector);
+    }
 
-        final Object endpoint = annotatedInstance != null ? annotatedInstance :
-                componentProvider.getInstance(annotatedClass, session, collector);
+    private Object callMethod(Method method, ParameterExtractor[] extractors, Session session, boolean callOnError, Object first) {
+        return callMethod(getEndpoint(session), method, extractors, session, callOnError, first, null);
+    }
 
+    private Object callMethod(Object endpoint, Method method, ParameterExtractor[] extractors, Session session, boolean callOnError, Object first, Object second) {
         try {
-            for (int i = 0; i < paramValues.length; i++) {
-                paramValues[i] = extractors[i].value(session, params);
+            final Object[] paramValues;
+
+            if (extractors.length == 0) {
+                paramValues = NO_ARGUMENTS;
+            } else {
+                paramValues = new Object[extractors.length];
+                for (int i = 0; i < paramValues.length; i++) {
+                    paramValues[i] = extractors[i].value(session, first, second);
+                }
             }
 
             return method.invoke(endpoint, paramValues);
@@ -444,7 +499,7 @@ public class AnnotatedEndpoint extends Endpoint {
             callMethod(onCloseMethod, onCloseParameters, session, true, closeReason);
         }
 
-        componentProvider.removeSession(session);
+        componentProvider.removeSession((TyrusSession) session);
     }
 
     @Override
@@ -473,12 +528,19 @@ public class AnnotatedEndpoint extends Endpoint {
         }
 
         if (onOpenMethod != null) {
-            callMethod(onOpenMethod, onOpenParameters, session, true);
+            callMethod(onOpenMethod, onOpenParameters, session, true, null);
         }
     }
 
+    /**
+     * Provides the value of one parameter of an annotated method.
+     * <p/>
+     * The callback arguments are passed as fixed parameters to avoid creating an array on each invocation:
+     * {@code first} is the message, {@link CloseReason} or {@link Throwable}, {@code second} is the {@code last}
+     * flag of a partial message. Unused arguments are {@code null}.
+     */
     static interface ParameterExtractor {
-        Object value(Session session, Object... paramValues) throws DecodeException;
+        Object value(Session session, Object first, Object second) throws DecodeException;
     }
 
     static class ParamValue implements ParameterExtractor {
@@ -489,8 +551,8 @@ public class AnnotatedEndpoint extends Endpoint {
         }
 
         @Override
-        public Object value(Session session, Object... paramValues) {
-            return paramValues[index];
+        public Object value(Session session, Object first, Object second) {
+            return index == 0 ? first : second;
         }
     }
 
@@ -518,9 +580,14 @@ public class AnnotatedEndpoint extends Endpoint {
         @Override
         public MessageHandler create(final Session session) {
             return new BasicMessageHandler() {
+                private Object endpoint;
+
                 @Override
                 public void onMessage(Object message) {
-                    Object result = callMethod(method, extractors, session, true, message);
+                    if (endpoint == null) {
+                        endpoint = getEndpoint(session);
+                    }
+                    Object result = callMethod(endpoint, method, extractors, session, true, message, null);
                     if (result != null) {
                         try {
                             session.getBasicRemote().sendObject(result);
@@ -551,10 +618,14 @@ public class AnnotatedEndpoint extends Endpoint {
         @Override
         public MessageHandler create(final Session session) {
             return new AsyncMessageHandler() {
+                private Object endpoint;
 
                 @Override
                 public void onMessage(Object partialMessage, boolean last) {
-                    Object result = callMethod(method, extractors, session, true, partialMessage, last);
+                    if (endpoint == null) {
+                        endpoint = getEndpoint(session);
+                    }
+                    Object result = callMethod(endpoint, method, extractors, session, true, partialMessage, last);
                     if (result != null) {
                         try {
                             session.getBasicRemote().sendObject(result);
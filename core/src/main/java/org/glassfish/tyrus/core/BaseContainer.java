@@ -58,10 +58,11 @@ import org.glassfish.tyrus.websockets.ExecutorServiceProvider;
  *
  * @author Jitendra Kotamraju
  */
-public abstract class BaseContainer extends ExecutorServiceProvider implements WebSocketContainer {
+public abstract class BaseContainer extends ExecutorServiceProvider implements WebSocketContainer, IdleTimeoutWheelProvider {
     private final ExecutorService executorService;
     private final ScheduledExecutorService scheduledExecutorService;
     private ThreadFactory threadFactory = null;
+    private volatile IdleTimeoutWheel idleTimeoutWheel = null;
 
     public BaseContainer() {
         this.executorService = newExecutorService();
@@ -78,6 +79,32 @@ public abstract class BaseContainer extends ExecutorServiceProvider implements W
         return scheduledExecutorService;
     }
 
+    @Override
+    public IdleTimeoutWheel getIdleTimeoutWheel() {
+        IdleTimeoutWheel wheel = idleTimeoutWheel;
+        if (wheel == null) {
+            synchronized (this) {
+                wheel = idleTimeoutWheel;
+                if (wheel == null) {
+                    wheel = new IdleTimeoutWheel(scheduledExecutorService);
+                    idleTimeoutWheel = wheel;
+                }
+            }
+        }
+        return wheel;
+    }
+
+    /**
+     * Stop tracking idle timeouts of sessions created by this container. Should be called when the container is
+     * stopped.
+     */
+    protected void stopIdleTimeoutWheel() {
+        final IdleTimeoutWheel wheel = idleTimeoutWheel;
+        if (wheel != null) {
+            wheel.stop();
+        }
+    }
+
     private ExecutorService newExecutorService() {
         ExecutorService es = null;
 
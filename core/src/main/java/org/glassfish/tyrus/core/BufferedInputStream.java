@@ -42,6 +42,7 @@ package org.glassfish.tyrus.core;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 
 /**
  * Passed to the (@link MessageHandler.Whole} in case that partial messages are being received.
@@ -50,24 +51,76 @@ import java.io.InputStream;
  * @author Stepan Kopriva (stepan.kopriva at oracle.com)
  */
 class BufferedInputStream extends InputStream {
-    private final InputStreamBuffer buffer;
+    private final FragmentQueue<ByteBuffer> fragments;
+    private ByteBuffer current = null;
+    private boolean finished = false;
 
     /**
      * Constructor.
      *
-     * @param buffer underlying buffer.
+     * @param fragments fragments of the message.
      */
-    public BufferedInputStream(InputStreamBuffer buffer) {
-        this.buffer = buffer;
+    public BufferedInputStream(FragmentQueue<ByteBuffer> fragments) {
+        this.fragments = fragments;
     }
 
     @Override
     public int read() throws IOException {
-        return buffer.getNextByte();
+        final ByteBuffer buffer = nextBytes();
+        return buffer == null ? -1 : buffer.get() & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (b == null) {
+            throw new NullPointerException();
+        } else if (off < 0 || len < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        } else if (len == 0) {
+            return 0;
+        }
+
+        final ByteBuffer buffer = nextBytes();
+        if (buffer == null) {
+            return -1;
+        }
+
+        final int n = Math.min(len, buffer.remaining());
+        buffer.get(b, off, n);
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current == null ? 0 : current.remaining();
     }
 
     @Override
     public void close() {
-        this.buffer.finishReading();
+        finished = true;
+        current = null;
+        fragments.close();
+    }
+
+    /**
+     * Get the fragment with unread bytes, waiting for the next one when the current fragment is read.
+     *
+     * @return fragment with unread bytes or {@code null} at the end of the message.
+     * @throws IOException when interrupted while waiting.
+     */
+    private ByteBuffer nextBytes() throws IOException {
+        while (current == null || !current.hasRemaining()) {
+            if (finished) {
+                return null;
+            }
+
+            current = fragments.take();
+            if (current == null) {
+                finished = true;
+                return null;
+            }
+        }
+
+        return current;
     }
-}
\ No newline at end of file
+}
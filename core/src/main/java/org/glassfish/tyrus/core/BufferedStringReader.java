@@ -40,6 +40,7 @@
 
 package org.glassfish.tyrus.core;
 
+import java.io.IOException;
 import java.io.Reader;
 
 /**
@@ -49,30 +50,75 @@ import java.io.Reader;
  * @author Stepan Kopriva (stepan.kopriva at oracle.com)
  */
 class BufferedStringReader extends Reader {
-    private final ReaderBuffer readerBuffer;
+    private final FragmentQueue<String> fragments;
+    private String current = null;
+    private int position = 0;
+    private boolean finished = false;
 
     /**
      * Constructor.
      *
-     * @param readerBuffer underlying buffer.
+     * @param fragments fragments of the message.
      */
-    public BufferedStringReader(ReaderBuffer readerBuffer) {
-        this.readerBuffer = readerBuffer;
+    public BufferedStringReader(FragmentQueue<String> fragments) {
+        this.fragments = fragments;
     }
 
     @Override
-    public int read(char[] destination, int offsetToStart, int numberOfChars) {
-        char[] got = readerBuffer.getNextChars(numberOfChars);
-        if (got != null) {
-            System.arraycopy(got, 0, destination, offsetToStart, got.length);
-            return got.length;
-        } else {
+    public int read() throws IOException {
+        return nextChars() ? current.charAt(position++) : -1;
+    }
+
+    @Override
+    public int read(char[] destination, int offsetToStart, int numberOfChars) throws IOException {
+        if (offsetToStart < 0 || numberOfChars < 0 || numberOfChars > destination.length - offsetToStart) {
+            throw new IndexOutOfBoundsException();
+        } else if (numberOfChars == 0) {
+            return 0;
+        }
+
+        if (!nextChars()) {
             return -1;
         }
+
+        final int n = Math.min(numberOfChars, current.length() - position);
+        current.getChars(position, position + n, destination, offsetToStart);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public boolean ready() {
+        return current != null && position < current.length();
     }
 
     @Override
     public void close() {
-        this.readerBuffer.finishReading();
+        finished = true;
+        current = null;
+        fragments.close();
+    }
+
+    /**
+     * Make sure the current fragment has unread characters, waiting for the next one when it is read.
+     *
+     * @return {@code false} at the end of the message.
+     * @throws IOException when interrupted while waiting.
+     */
+    private boolean nextChars() throws IOException {
+        while (current == null || position == current.length()) {
+            if (finished) {
+                return false;
+            }
+
+            current = fragments.take();
+            position = 0;
+            if (current == null) {
+                finished = true;
+                return false;
+            }
+        }
+
+        return true;
     }
-}
\ No newline at end of file
+}
@@ -60,16 +60,23 @@ class CoderWrapper<T> extends CoderAdapter implements Decoder, Encoder {
      */
     private final Class<?> type;
 
+    /**
+     * Index of the {@link TyrusSession} slot holding coder instance.
+     */
+    private final int slot;
+
     /**
      * Construct new coder wrapper.
      *
      * @param coderClass coder class.
      * @param type       return type provided by the encode / decode method. Cannot be {@code null}.
+     * @param slot       index of the session slot holding instances of the coder class.
      */
-    public CoderWrapper(Class<? extends T> coderClass, Class<?> type) {
+    public CoderWrapper(Class<? extends T> coderClass, Class<?> type, int slot) {
         this.coderClass = coderClass;
         this.coder = null;
         this.type = type;
+        this.slot = slot;
     }
 
     /**
@@ -82,6 +89,7 @@ class CoderWrapper<T> extends CoderAdapter implements Decoder, Encoder {
         this.coder = coder;
         this.coderClass = (Class<T>) coder.getClass();
         this.type = type;
+        this.slot = -1;
     }
 
     /**
@@ -102,6 +110,15 @@ class CoderWrapper<T> extends CoderAdapter implements Decoder, Encoder {
         return coderClass;
     }
 
+    /**
+     * Get index of the session slot holding coder instance.
+     *
+     * @return slot index, {@code -1} if registered using coder instance.
+     */
+    int getSlot() {
+        return slot;
+    }
+
     /**
      * Get coder instance.
      *
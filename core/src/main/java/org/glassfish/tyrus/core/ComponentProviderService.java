@@ -41,10 +41,7 @@ package org.glassfish.tyrus.core;
 
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.websocket.Decoder;
 import javax.websocket.DeploymentException;
@@ -61,7 +58,6 @@ import javax.websocket.Session;
  */
 public class ComponentProviderService {
 
-    private final Map<Session, Map<Class<?>, Object>> sessionToObject;
     private final List<ComponentProvider> providers;
 
     /**
@@ -87,7 +83,6 @@ public class ComponentProviderService {
 
     private ComponentProviderService(List<ComponentProvider> providers) {
         this.providers = providers;
-        this.sessionToObject = new ConcurrentHashMap<Session, Map<Class<?>, Object>>();
     }
 
     /**
@@ -97,120 +92,123 @@ public class ComponentProviderService {
      */
     public ComponentProviderService(ComponentProviderService componentProviderService) {
         this.providers = componentProviderService.providers;
-        this.sessionToObject = componentProviderService.sessionToObject;
     }
 
     /**
      * Provide an instance of class which is coupled to {@link Session}.
      * </p>
-     * The first time the method is called the provider creates an instance and caches it.
-     * Next time the method is called the cached instance is returned.
+     * The first time the method is called the provider creates an instance and stores it to the given slot of the
+     * session. Next time the method is called the stored instance is returned.
      *
      * @param c         {@link Class} whose instance will be provided.
+     * @param session   session the instance is coupled to.
+     * @param slot      index of the session slot assigned to the class by the endpoint.
      * @param collector error collector.
      * @param <T>       type of the provided instance.
      * @return instance
      */
-    public <T> T getInstance(Class<T> c, Session session, ErrorCollector collector) {
-        T loaded = null;
+    public <T> T getInstance(Class<T> c, TyrusSession session, int slot, ErrorCollector collector) {
+        Object loaded = session.getComponent(slot);
 
-        final Map<Class<?>, Object> classObjectMap = sessionToObject.get(session);
-
-        if (classObjectMap != null && classObjectMap.containsKey(c)) {
-            Object fromMap = classObjectMap.get(c);
-            loaded = c.isAssignableFrom(fromMap.getClass()) ? (T) fromMap : null;
-        } else {
+        if (loaded == null) {
             try {
                 // returns not-null value
-                loaded = getEndpointInstance(c);
-                if (classObjectMap == null) {
-                    sessionToObject.put(session, new HashMap<Class<?>, Object>());
-                }
-                sessionToObject.get(session).put(c, loaded);
+                loaded = session.putComponent(slot, getEndpointInstance(c));
             } catch (Exception e) {
                 collector.addException(new DeploymentException(String.format("Component provider threw exception when providing instance of class %s",
                         c.getName()), e));
+                return null;
             }
         }
 
-        return loaded;
+        return c.isInstance(loaded) ? c.cast(loaded) : null;
     }
 
     /**
      * Provide an instance of {@link javax.websocket.Encoder} or {@link javax.websocket.Decoder} descendant which is coupled to {@link Session}.
      * </p>
      * The first time the method is called the provider creates an instance, calls {@link javax.websocket.Encoder#init(javax.websocket.EndpointConfig)}
-     * or {@link javax.websocket.Decoder#init(javax.websocket.EndpointConfig)} and caches it.
-     * Next time the method is called the cached instance is returned.
+     * or {@link javax.websocket.Decoder#init(javax.websocket.EndpointConfig)} and stores it to the given slot of the session.
+     * Next time the method is called the stored instance is returned.
      *
      * @param c              {@link Class} whose instance will be provided.
-     * @param collector      error collector.
+     * @param session        session the instance is coupled to.
+     * @param slot           index of the session slot assigned to the class by the endpoint.
      * @param endpointConfig configuration corresponding to current context. Used for
      *                       {@link javax.websocket.Encoder#init(javax.websocket.EndpointConfig)} and
      *                       {@link javax.websocket.Decoder#init(javax.websocket.EndpointConfig)}
+     * @param collector      error collector.
      * @param <T>            type of the provided instance.
      * @return instance
      */
-    public <T> T getCoderInstance(Class<T> c, Session session, EndpointConfig endpointConfig, ErrorCollector collector) {
-        T loaded = null;
-
-        final Map<Class<?>, Object> classObjectMap = sessionToObject.get(session);
-
-        if (classObjectMap != null && classObjectMap.containsKey(c)) {
-            Object fromMap = classObjectMap.get(c);
-            loaded = c.isAssignableFrom(fromMap.getClass()) ? (T) fromMap : null;
-        } else {
-            for (ComponentProvider componentProvider : providers) {
-                if (componentProvider.isApplicable(c)) {
-                    try {
-                        loaded = componentProvider.create(c);
-                        if (loaded != null) {
-                            if (loaded instanceof Encoder) {
-                                ((Encoder) loaded).init(endpointConfig);
-                            } else if (loaded instanceof Decoder) {
-                                ((Decoder) loaded).init(endpointConfig);
-                            }
-                            if (classObjectMap == null) {
-                                sessionToObject.put(session, new HashMap<Class<?>, Object>());
-                            }
-                            sessionToObject.get(session).put(c, loaded);
-                            break;
+    public <T> T getCoderInstance(Class<T> c, TyrusSession session, int slot, EndpointConfig endpointConfig, ErrorCollector collector) {
+        Object loaded = session.getComponent(slot);
+
+        if (loaded == null) {
+            final T created = createCoderInstance(c, endpointConfig, collector);
+            if (created == null) {
+                return null;
+            }
+
+            loaded = session.putComponent(slot, created);
+            if (loaded != created) {
+                // instance was concurrently provided by another thread
+                destroy(created);
+            }
+        }
+
+        return c.isInstance(loaded) ? c.cast(loaded) : null;
+    }
+
+    private <T> T createCoderInstance(Class<T> c, EndpointConfig endpointConfig, ErrorCollector collector) {
+        for (ComponentProvider componentProvider : providers) {
+            if (componentProvider.isApplicable(c)) {
+                try {
+                    final T loaded = componentProvider.create(c);
+                    if (loaded != null) {
+                        if (loaded instanceof Encoder) {
+                            ((Encoder) loaded).init(endpointConfig);
+                        } else if (loaded instanceof Decoder) {
+                            ((Decoder) loaded).init(endpointConfig);
                         }
-                    } catch (Exception e) {
-                        collector.addException(new DeploymentException(String.format("Component provider %s threw exception when providing instance of class %s",
-                                componentProvider.getClass().getName(), c.getName()), e));
+                        return loaded;
                     }
+                } catch (Exception e) {
+                    collector.addException(new DeploymentException(String.format("Component provider %s threw exception when providing instance of class %s",
+                            componentProvider.getClass().getName(), c.getName()), e));
                 }
             }
         }
 
-        return loaded;
+        return null;
     }
 
     /**
-     * Remove {@link Session} from cache.
+     * Destroy instances coupled to {@link Session} and remove them from the session.
      *
      * @param session to be removed.
      */
-    public void removeSession(Session session) {
-        final Map<Class<?>, Object> classObjectMap = sessionToObject.get(session);
-        if (classObjectMap != null) {
-            for (Object o : classObjectMap.values()) {
-                if (o instanceof Encoder) {
-                    ((Encoder) o).destroy();
-                } else if (o instanceof Decoder) {
-                    ((Decoder) o).destroy();
-                }
-
-                for (ComponentProvider componentProvider : providers) {
-                    if(componentProvider.destroy(o)){
-                        break;
-                    }
-                }
+    public void removeSession(TyrusSession session) {
+        for (int i = 0; i < session.getComponentSlotCount(); i++) {
+            final Object o = session.removeComponent(i);
+            if (o != null) {
+                destroy(o);
             }
         }
+    }
 
-        sessionToObject.remove(session);
+    private void destroy(Object o) {
+        if (o instanceof Encoder) {
+            ((Encoder) o).destroy();
+        } else if (o instanceof Decoder) {
+            ((Decoder) o).destroy();
+        }
+
+        for (ComponentProvider componentProvider : providers) {
+            if (componentProvider.destroy(o)) {
+                break;
+            }
+        }
     }
 
     /**
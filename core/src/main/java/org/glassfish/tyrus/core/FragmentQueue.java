@@ -0,0 +1,121 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.core;
+
+import java.io.InterruptedIOException;
+import java.util.ArrayDeque;
+
+/**
+ * Fragments of one message passed from the thread receiving the message to the thread reading it.
+ * <p/>
+ * There is a single producer and a single consumer. The consumer takes whole fragments and reads their content
+ * without synchronization, so both sides synchronize once per fragment instead of once per byte or character.
+ *
+ * @param <T> type of the fragments.
+ */
+class FragmentQueue<T> {
+
+    private final ArrayDeque<T> fragments = new ArrayDeque<T>();
+    private final Object lock = new Object();
+
+    private boolean receivedLast = false;
+    private boolean closed = false;
+
+    /**
+     * Add a fragment. Fragments added after the queue was closed by the consumer are dropped.
+     *
+     * @param fragment fragment of the message.
+     * @param last     {@code true} iff this is the last fragment of the message.
+     */
+    void add(T fragment, boolean last) {
+        synchronized (lock) {
+            if (!closed) {
+                fragments.add(fragment);
+            }
+
+            receivedLast |= last;
+            lock.notify();
+        }
+    }
+
+    /**
+     * End the message without adding a fragment. The consumer reads the fragments added so far and then gets the
+     * end of the message.
+     */
+    void end() {
+        synchronized (lock) {
+            receivedLast = true;
+            lock.notify();
+        }
+    }
+
+    /**
+     * Take the next fragment, waiting until it is received.
+     *
+     * @return next fragment or {@code null} when the whole message was taken or the queue was closed.
+     * @throws InterruptedIOException when the consumer was interrupted while waiting.
+     */
+    T take() throws InterruptedIOException {
+        synchronized (lock) {
+            while (fragments.isEmpty() && !receivedLast && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the next part of the message.");
+                }
+            }
+
+            return fragments.poll();
+        }
+    }
+
+    /**
+     * Close the queue. Fragments not yet taken are released and subsequent fragments are dropped.
+     */
+    void close() {
+        synchronized (lock) {
+            closed = true;
+            fragments.clear();
+            lock.notify();
+        }
+    }
+}
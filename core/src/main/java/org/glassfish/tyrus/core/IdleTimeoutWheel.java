@@ -0,0 +1,227 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.core;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.websocket.CloseReason;
+
+/**
+ * Hashed timer wheel closing idle {@link TyrusSession sessions}.
+ * <p/>
+ * Session activity only updates the session last activity timestamp. Each tick the wheel checks sessions in one
+ * bucket; sessions which have been idle for too long are closed, others are moved to the bucket of their current
+ * deadline. Sessions with deadline more than one wheel round ahead are checked again after each round.
+ * <p/>
+ * The periodic sweep runs only while some sessions are tracked and is cancelled by {@link #stop()}.
+ */
+public class IdleTimeoutWheel {
+
+    private static final Logger LOGGER = Logger.getLogger(IdleTimeoutWheel.class.getName());
+
+    /**
+     * Wheel tick in milliseconds.
+     */
+    static final long TICK_MS = 50;
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final ScheduledExecutorService service;
+    private final AtomicReferenceArray<Entry> buckets = new AtomicReferenceArray<Entry>(WHEEL_SIZE);
+    private final Object startLock = new Object();
+    private final AtomicInteger size = new AtomicInteger(0);
+    private volatile int currentTick = 0;
+    // guarded by startLock
+    private ScheduledFuture<?> sweeper;
+
+    /**
+     * Create new wheel.
+     *
+     * @param service executor used for the periodic sweep.
+     */
+    IdleTimeoutWheel(ScheduledExecutorService service) {
+        this.service = service;
+    }
+
+    /**
+     * Start tracking idle timeout of given session.
+     *
+     * @param session session to be tracked.
+     * @return wheel entry, can be used to stop tracking.
+     */
+    Entry register(TyrusSession session) {
+        final Entry entry = new Entry(session);
+        size.incrementAndGet();
+        startSweeper();
+        // sweeper might be just moving to the next bucket, so skip it
+        push(entry, System.currentTimeMillis() + session.getMaxIdleTimeout(), 2);
+        return entry;
+    }
+
+    private void startSweeper() {
+        synchronized (startLock) {
+            if (sweeper == null) {
+                sweeper = service.scheduleAtFixedRate(new Runnable() {
+                    @Override
+                    public void run() {
+                        sweep();
+                    }
+                }, TICK_MS, TICK_MS, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * Cancel the periodic sweep and stop tracking all sessions.
+     */
+    void stop() {
+        synchronized (startLock) {
+            cancelSweeper();
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                buckets.set(i, null);
+            }
+            size.set(0);
+        }
+    }
+
+    /**
+     * Check whether the periodic sweep is scheduled.
+     *
+     * @return {@code true} when the sweep is scheduled.
+     */
+    boolean isSweeping() {
+        synchronized (startLock) {
+            return sweeper != null;
+        }
+    }
+
+    private void cancelSweeper() {
+        if (sweeper != null) {
+            sweeper.cancel(false);
+            sweeper = null;
+        }
+    }
+
+    private void push(Entry entry, long deadline, int minTicks) {
+        final long ticks = Math.max(minTicks, (deadline - System.currentTimeMillis() + TICK_MS - 1) / TICK_MS);
+        final int index = (int) ((currentTick + Math.min(ticks, WHEEL_SIZE)) & WHEEL_MASK);
+
+        Entry head;
+        do {
+            head = buckets.get(index);
+            entry.next = head;
+        } while (!buckets.compareAndSet(index, head, entry));
+    }
+
+    void sweep() {
+        final int tick = (currentTick + 1) & WHEEL_MASK;
+        currentTick = tick;
+
+        Entry entry = buckets.getAndSet(tick, null);
+        final long now = System.currentTimeMillis();
+
+        while (entry != null) {
+            final Entry next = entry.next;
+            entry.next = null;
+
+            final TyrusSession session = entry.session;
+            final long timeout = session.getMaxIdleTimeout();
+
+            if (!entry.cancelled && timeout > 0 && session.isOpen()) {
+                final long deadline = session.getLastActivity() + timeout;
+                if (deadline <= now) {
+                    size.decrementAndGet();
+                    close(session);
+                } else {
+                    push(entry, deadline, 1);
+                }
+            } else {
+                size.decrementAndGet();
+            }
+
+            entry = next;
+        }
+
+        if (size.get() <= 0) {
+            synchronized (startLock) {
+                // sessions registered concurrently increment the size before starting the sweeper.
+                if (size.get() <= 0) {
+                    cancelSweeper();
+                }
+            }
+        }
+    }
+
+    private void close(TyrusSession session) {
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "Session closed by the container because of the idle timeout."));
+        } catch (Exception e) {
+            LOGGER.log(Level.FINE, "Session could not been closed. " + e.getMessage());
+        }
+    }
+
+    /**
+     * Tracked session.
+     */
+    static class Entry {
+        private final TyrusSession session;
+        private volatile boolean cancelled = false;
+        private Entry next;
+
+        private Entry(TyrusSession session) {
+            this.session = session;
+        }
+
+        /**
+         * Stop tracking the session; the entry is dropped by the next sweep of its bucket.
+         */
+        void cancel() {
+            cancelled = true;
+        }
+    }
+}
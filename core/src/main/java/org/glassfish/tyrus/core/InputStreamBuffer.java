@@ -42,8 +42,6 @@ package org.glassfish.tyrus.core;
 
 import java.io.InputStream;
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -60,11 +58,8 @@ import javax.websocket.MessageHandler;
  */
 class InputStreamBuffer {
 
-    private List<ByteBuffer> bufferedFragments = new ArrayList<ByteBuffer>();
-    private boolean receivedLast = false;
-    private BufferedInputStream inputStream = null;
+    private FragmentQueue<ByteBuffer> fragments = null;
     private MessageHandler.Whole<InputStream> messageHandler;
-    private final Object lock;
     private int bufferSize;
     private int currentlyBuffered;
     private static final Logger LOGGER = Logger.getLogger(InputStreamBuffer.class.getName());
@@ -75,60 +70,9 @@ class InputStreamBuffer {
      */
     public InputStreamBuffer(ExecutorService executorService) {
         this.executorService = executorService;
-        this.lock = new Object();
         currentlyBuffered = 0;
     }
 
-    private void blockOnReaderThread() {
-        try {
-            this.lock.wait();
-        } catch (InterruptedException e) {
-            // thread unblocked
-        }
-    }
-
-    /**
-     * Get next received bytes.
-     *
-     * @return next received bytes.
-     */
-    public byte getNextByte() {
-        synchronized (lock) {
-            if (this.bufferedFragments.isEmpty()) {
-                if (receivedLast) {
-                    this.inputStream = null;
-                    this.currentlyBuffered = 0;
-                    return -1;
-                } else { // there's more to come...so wait here...
-                    blockOnReaderThread();
-                }
-            }
-
-            if (bufferedFragments.size() == 1 && !bufferedFragments.get(0).hasRemaining() && receivedLast){
-                this.inputStream = null;
-                this.currentlyBuffered = 0;
-                return -1;
-            }
-
-            ByteBuffer firstBuffer = bufferedFragments.get(0);
-            byte result = firstBuffer.get();
-
-            if (!firstBuffer.hasRemaining()) {
-                bufferedFragments.remove(0);
-            }
-
-            return result;
-        }
-    }
-
-    /**
-     * Finish reading of the buffer.
-     */
-    public void finishReading() {
-        this.bufferedFragments = new ArrayList<ByteBuffer>();
-        this.inputStream = null;
-    }
-
     /**
      * Append next message part to the buffer.
      *
@@ -136,29 +80,30 @@ class InputStreamBuffer {
      * @param last    should be {@code true} iff this is the last part of the message, {@code false} otherwise.
      */
     public void appendMessagePart(ByteBuffer message, boolean last) {
-        synchronized (lock) {
-            currentlyBuffered += message.remaining();
-            if (currentlyBuffered <= bufferSize) {
-                bufferedFragments.add(message);
-            } else {
-                final MessageTooBigException messageTooBigException = new MessageTooBigException("Partial message could not be delivered due to buffer overflow.");
-                LOGGER.log(Level.FINE, "Partial message could not be delivered due to buffer overflow.", messageTooBigException);
-                receivedLast = true;
-                throw messageTooBigException;
+        currentlyBuffered += message.remaining();
+        if (currentlyBuffered > bufferSize) {
+            final MessageTooBigException messageTooBigException = new MessageTooBigException("Partial message could not be delivered due to buffer overflow.");
+            LOGGER.log(Level.FINE, "Partial message could not be delivered due to buffer overflow.", messageTooBigException);
+            if (fragments != null) {
+                fragments.end();
             }
-
-            this.receivedLast = last;
-            this.lock.notifyAll();
+            throw messageTooBigException;
         }
 
-        if (this.inputStream == null) {
-            this.inputStream = new BufferedInputStream(this);
-            executorService.execute( new Runnable() {
+        if (fragments == null) {
+            fragments = new FragmentQueue<ByteBuffer>();
+            fragments.add(message, last);
+
+            final InputStream inputStream = new BufferedInputStream(fragments);
+            final MessageHandler.Whole<InputStream> handler = messageHandler;
+            executorService.execute(new Runnable() {
                 @Override
                 public void run() {
-                    messageHandler.onMessage(inputStream);
+                    handler.onMessage(inputStream);
                 }
             });
+        } else {
+            fragments.add(message, last);
         }
     }
 
@@ -172,13 +117,13 @@ class InputStreamBuffer {
     }
 
     /**
-     * Reset the buffer size.
+     * Reset the buffer size and start buffering of a new message.
      *
      * @param bufferSize the size to be set.
      */
     public void resetBuffer(int bufferSize) {
         this.bufferSize = bufferSize;
         currentlyBuffered = 0;
-        bufferedFragments.clear();
+        fragments = null;
     }
 }
@@ -42,10 +42,13 @@ package org.glassfish.tyrus.core;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.io.Serializable;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -84,6 +87,7 @@ class MessageHandlerManager {
     private final List<Class<? extends Decoder>> decoders;
 
     private Set<MessageHandler> messageHandlerCache;
+    private volatile DispatchTable dispatchTable = DispatchTable.EMPTY;
 
     /**
      * Construct manager with no decoders.
@@ -210,6 +214,7 @@ class MessageHandlerManager {
         }
 
         messageHandlerCache = null;
+        dispatchTable = new DispatchTable(registeredHandlers.values());
     }
 
     private void throwException(String text) throws IllegalStateException {
@@ -231,6 +236,7 @@ class MessageHandlerManager {
             if (next.getValue().equals(handler)) {
                 iterator.remove();
                 messageHandlerCache = null;
+                dispatchTable = new DispatchTable(registeredHandlers.values());
                 wasRegistered = true;
                 break;
             }
@@ -284,6 +290,17 @@ class MessageHandlerManager {
         return messageHandlerCache;
     }
 
+    /**
+     * Get registered {@link MessageHandler}s prepared for dispatching of incoming messages.
+     * <p/>
+     * The table is rebuilt when a handler is added or removed and can be used without synchronization.
+     *
+     * @return current dispatch table.
+     */
+    DispatchTable getDispatchTable() {
+        return dispatchTable;
+    }
+
     static Class<?> getHandlerType(MessageHandler handler) {
         Class<?> root;
         if (handler instanceof AsyncMessageHandler) {
@@ -354,4 +371,80 @@ class MessageHandlerManager {
     boolean isPongHandlerPresent() {
         return pongHandlerPresent;
     }
+
+    /**
+     * Registered {@link MessageHandler}s with their resolved types.
+     * <p/>
+     * {@link MessageHandler.Whole} handlers are ordered so that handlers of more specific types come first.
+     * Handlers and their types are stored in parallel arrays.
+     */
+    static class DispatchTable {
+
+        static final DispatchTable EMPTY = new DispatchTable(Collections.<MessageHandler>emptyList());
+
+        final MessageHandler.Whole[] wholeHandlers;
+        final Class<?>[] wholeTypes;
+        final MessageHandler.Partial[] partialHandlers;
+        final Class<?>[] partialTypes;
+        final MessageHandler.Whole<PongMessage> pongHandler;
+
+        @SuppressWarnings("unchecked")
+        DispatchTable(Collection<MessageHandler> handlers) {
+            final List<MessageHandler> ordered = new ArrayList<MessageHandler>(handlers);
+            Collections.sort(ordered, new MessageHandlerComparator());
+
+            final List<MessageHandler.Whole> whole = new ArrayList<MessageHandler.Whole>();
+            final List<Class<?>> wholeTypeList = new ArrayList<Class<?>>();
+            final List<MessageHandler.Partial> partial = new ArrayList<MessageHandler.Partial>();
+            final List<Class<?>> partialTypeList = new ArrayList<Class<?>>();
+            MessageHandler.Whole<PongMessage> pong = null;
+
+            for (MessageHandler handler : ordered) {
+                final Class<?> type = getHandlerType(handler);
+
+                if (handler instanceof MessageHandler.Whole) {
+                    whole.add((MessageHandler.Whole) handler);
+                    wholeTypeList.add(type);
+                    if (type == PONG_HANDLER_TYPE) {
+                        pong = (MessageHandler.Whole<PongMessage>) handler;
+                    }
+                } else {
+                    partial.add((MessageHandler.Partial) handler);
+                    partialTypeList.add(type);
+                }
+            }
+
+            wholeHandlers = whole.toArray(new MessageHandler.Whole[whole.size()]);
+            wholeTypes = wholeTypeList.toArray(new Class<?>[wholeTypeList.size()]);
+            partialHandlers = partial.toArray(new MessageHandler.Partial[partial.size()]);
+            partialTypes = partialTypeList.toArray(new Class<?>[partialTypeList.size()]);
+            pongHandler = pong;
+        }
+    }
+
+    private static class MessageHandlerComparator implements Comparator<MessageHandler>, Serializable {
+
+        @Override
+        public int compare(MessageHandler o1, MessageHandler o2) {
+            if (o1 instanceof MessageHandler.Whole) {
+                if (o2 instanceof MessageHandler.Whole) {
+                    Class<?> type1 = MessageHandlerManager.getHandlerType(o1);
+                    Class<?> type2 = MessageHandlerManager.getHandlerType(o2);
+
+                    if (type1.isAssignableFrom(type2)) {
+                        return 1;
+                    } else if (type2.isAssignableFrom(type1)) {
+                        return -1;
+                    } else {
+                        return 0;
+                    }
+                } else {
+                    return 1;
+                }
+            } else if (o2 instanceof MessageHandler.Whole) {
+                return 1;
+            }
+            return 0;
+        }
+    }
 }
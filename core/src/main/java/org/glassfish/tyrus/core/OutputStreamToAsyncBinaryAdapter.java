@@ -42,21 +42,36 @@ package org.glassfish.tyrus.core;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 
 import org.glassfish.tyrus.spi.RemoteEndpoint;
 
 /**
- * Simple Writer that writes its data to
- * an async sink.
+ * {@link OutputStream} which sends its data to an async sink as fragments of one binary message.
+ * <p/>
+ * Written data is collected in a buffer which is sent as a fragment when it gets full or when the stream is flushed.
+ * Closing the stream sends the last fragment. The buffer is reused, so sending a fragment waits until it is written.
  *
  * @author Danny Coward (danny.coward at oracle.com)
  */
 public class OutputStreamToAsyncBinaryAdapter extends OutputStream {
     private final RemoteEndpoint re;
+    private final byte[] buffer;
+    private int count = 0;
+    private boolean closed = false;
 
     public OutputStreamToAsyncBinaryAdapter(RemoteEndpoint re) {
+        this(re, RemoteEndpointWrapper.DEFAULT_STREAM_BUFFER_SIZE);
+    }
+
+    /**
+     * Create new adapter.
+     *
+     * @param re         sink the fragments are sent to.
+     * @param bufferSize size of the fragment buffer in bytes.
+     */
+    public OutputStreamToAsyncBinaryAdapter(RemoteEndpoint re, int bufferSize) {
         this.re = re;
+        this.buffer = new byte[Math.max(bufferSize, 1)];
     }
 
     @Override
@@ -66,28 +81,67 @@ public class OutputStreamToAsyncBinaryAdapter extends OutputStream {
         } else if ((off < 0) || (off > b.length) || (len < 0) ||
                 ((off + len) > b.length) || ((off + len) < 0)) {
             throw new IndexOutOfBoundsException();
-        } else if (len == 0) {
-            return;
         }
 
-        ByteBuffer result = ByteBuffer.allocate(len);
-        result.put(Arrays.copyOfRange(b, off, len));
-        result.flip();
-        re.sendBinary(result, false);
+        checkClosed();
+
+        while (len > 0) {
+            if (count == 0 && len >= buffer.length) {
+                // nothing is buffered, send the data without copying
+                send(ByteBuffer.wrap(b, off, len), false);
+                return;
+            }
+
+            final int n = Math.min(len, buffer.length - count);
+            System.arraycopy(b, off, buffer, count, n);
+            count += n;
+            off += n;
+            len -= n;
+
+            if (count == buffer.length) {
+                sendBuffer(false);
+            }
+        }
     }
 
     @Override
     public void write(int i) throws IOException {
-        re.sendBinary(ByteBuffer.wrap(new byte[]{(byte) i}), false);
+        checkClosed();
+
+        buffer[count++] = (byte) i;
+        if (count == buffer.length) {
+            sendBuffer(false);
+        }
     }
 
     @Override
     public void flush() throws IOException {
-        // do nothing.
+        if (!closed && count > 0) {
+            sendBuffer(false);
+        }
     }
 
     @Override
     public void close() throws IOException {
-        re.sendBinary(ByteBuffer.wrap(new byte[]{}), true);
+        if (!closed) {
+            closed = true;
+            sendBuffer(true);
+        }
+    }
+
+    private void sendBuffer(boolean last) throws IOException {
+        final int length = count;
+        count = 0;
+        send(ByteBuffer.wrap(buffer, 0, length), last);
+    }
+
+    private void send(ByteBuffer data, boolean last) throws IOException {
+        RemoteEndpointWrapper.Basic.awaitSent(re.sendBinary(data, last));
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed.");
+        }
     }
 }
@@ -42,7 +42,6 @@ package org.glassfish.tyrus.core;
 
 import java.io.Reader;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -58,14 +57,11 @@ import javax.websocket.MessageHandler;
  */
 class ReaderBuffer {
 
-    private StringBuffer buffer;
-    private boolean receivedLast = false;
-    private BufferedStringReader reader = null;
+    private FragmentQueue<String> fragments = null;
     private MessageHandler.Whole<Reader> messageHandler;
-    private final Object lock;
     private int bufferSize;
     private int currentlyBuffered;
-    private AtomicBoolean buffering;
+    private boolean buffering;
     private final ExecutorService executorService;
     private static final Logger LOGGER = Logger.getLogger(ReaderBuffer.class.getName());
 
@@ -73,57 +69,11 @@ class ReaderBuffer {
      * Constructor.
      */
     public ReaderBuffer(ExecutorService executorService) {
-        this.buffer = new StringBuffer();
         this.executorService = executorService;
-        this.lock = new Object();
-        buffering = new AtomicBoolean(true);
+        buffering = true;
         currentlyBuffered = 0;
     }
 
-    private void blockOnReaderThread() {
-        try {
-            this.lock.wait();
-        } catch (InterruptedException e) {
-            // thread unblocked
-        }
-    }
-
-    /**
-     * Get next received chars.
-     *
-     * @return next received chars.
-     */
-    public char[] getNextChars(int number) {
-        synchronized (lock) {
-            if (buffer.length() == 0) {
-                if (receivedLast) {
-                    this.reader = null;
-                    buffering.set(true);
-                    this.currentlyBuffered = 0;
-                    return null;
-                } else { // there's more to come...so wait here...
-                    blockOnReaderThread();
-                }
-            }
-
-            int size = number > buffer.length() ? buffer.length() : number;
-
-            char[] result = new char[size];
-            buffer.getChars(0, size, result,0);
-            buffer.delete(0, size);
-
-            return result;
-        }
-    }
-
-    /**
-     * Finish reading of the buffer.
-     */
-    public void finishReading() {
-        buffer = new StringBuffer();
-        reader = null;
-    }
-
     /**
      * Append next message part to the buffer.
      *
@@ -131,32 +81,34 @@ class ReaderBuffer {
      * @param last    should be {@code true} iff this is the last part of the message, {@code false} otherwise.
      */
     public void appendMessagePart(String message, boolean last) {
-        synchronized (lock) {
-            currentlyBuffered += message.length();
-            if (currentlyBuffered <= bufferSize) {
-                buffer.append(message);
-            } else {
-                if (buffering.get()) {
-                    buffering.set(false);
-                    final MessageTooBigException messageTooBigException = new MessageTooBigException("Partial message could not be delivered due to buffer overflow.");
-                    LOGGER.log(Level.FINE, "Partial message could not be delivered due to buffer overflow.", messageTooBigException);
-                    receivedLast = true;
-                    throw messageTooBigException;
+        currentlyBuffered += message.length();
+        if (currentlyBuffered > bufferSize) {
+            if (buffering) {
+                buffering = false;
+                final MessageTooBigException messageTooBigException = new MessageTooBigException("Partial message could not be delivered due to buffer overflow.");
+                LOGGER.log(Level.FINE, "Partial message could not be delivered due to buffer overflow.", messageTooBigException);
+                if (fragments != null) {
+                    fragments.end();
                 }
+                throw messageTooBigException;
             }
-
-            this.receivedLast = last;
-            this.lock.notifyAll();
+            return;
         }
 
-        if (this.reader == null) {
-            this.reader = new BufferedStringReader(this);
-            executorService.execute( new Runnable() {
+        if (fragments == null) {
+            fragments = new FragmentQueue<String>();
+            fragments.add(message, last);
+
+            final Reader reader = new BufferedStringReader(fragments);
+            final MessageHandler.Whole<Reader> handler = messageHandler;
+            executorService.execute(new Runnable() {
                 @Override
                 public void run() {
-                    messageHandler.onMessage(reader);
+                    handler.onMessage(reader);
                 }
             });
+        } else {
+            fragments.add(message, last);
         }
     }
 
@@ -170,14 +122,14 @@ class ReaderBuffer {
     }
 
     /**
-     * Reset the buffer size.
+     * Reset the buffer size and start buffering of a new message.
      *
      * @param bufferSize the size to be set.
      */
     public void resetBuffer(int bufferSize) {
         this.bufferSize = bufferSize;
-        buffering.set(true);
+        buffering = true;
         currentlyBuffered = 0;
-        buffer.delete(0,buffer.length());
+        fragments = null;
     }
-}
\ No newline at end of file
+}
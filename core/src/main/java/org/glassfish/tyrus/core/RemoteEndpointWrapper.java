@@ -45,6 +45,8 @@ import java.io.OutputStream;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
@@ -65,6 +67,36 @@ import org.glassfish.tyrus.spi.RemoteEndpoint;
  */
 public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEndpoint {
 
+    /**
+     * Endpoint configuration user property for maximal size of the batch in bytes, used when batching is allowed.
+     * Value can be {@link Number} or {@link String}.
+     */
+    public static final String BATCH_BUFFER_SIZE = "org.glassfish.tyrus.batchBufferSize";
+
+    /**
+     * Endpoint configuration user property for time in milliseconds after which the batch is sent even if it is not
+     * full and {@link #flushBatch()} was not called. Batch is sent only when full or flushed when not set.
+     * Value can be {@link Number} or {@link String}.
+     */
+    public static final String BATCH_LINGER_TIME = "org.glassfish.tyrus.batchLingerTime";
+
+    /**
+     * Endpoint configuration user property for size of the buffer of the stream and the writer returned by
+     * {@link javax.websocket.RemoteEndpoint.Basic#getSendStream()} and
+     * {@link javax.websocket.RemoteEndpoint.Basic#getSendWriter()}, in bytes or characters respectively. A message
+     * fragment is sent when the buffer is full or flushed. Value can be {@link Number} or {@link String}.
+     */
+    public static final String STREAM_BUFFER_SIZE = "org.glassfish.tyrus.streamBufferSize";
+
+    /**
+     * Default size of the buffer of the stream and the writer used for sending partial messages.
+     *
+     * @see #STREAM_BUFFER_SIZE
+     */
+    public static final int DEFAULT_STREAM_BUFFER_SIZE = 8192;
+
+    private static final Logger LOGGER = Logger.getLogger(RemoteEndpointWrapper.class.getName());
+
     protected final RemoteEndpoint remoteEndpoint;
     protected final TyrusSession session;
     protected final TyrusEndpointWrapper tyrusEndpointWrapper;
@@ -84,41 +116,69 @@ public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEnd
         @Override
         public void sendText(String text) throws IOException {
             super.sendSyncText(text);
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
         }
 
         @Override
         public void sendBinary(ByteBuffer data) throws IOException {
-            super.sendSyncBinary(data);
-            session.restartIdleTimeoutExecutor();
+            awaitSent(super.sendSyncBinary(data));
+            session.restartIdleTimeout();
         }
 
         @Override
         public void sendText(String partialMessage, boolean isLast) throws IOException {
             remoteEndpoint.sendText(partialMessage, isLast);
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
         }
 
         @Override
         public void sendBinary(ByteBuffer partialByte, boolean isLast) throws IOException {
-            remoteEndpoint.sendBinary(partialByte, isLast);
-            session.restartIdleTimeoutExecutor();
+            awaitSent(remoteEndpoint.sendBinary(partialByte, isLast));
+            session.restartIdleTimeout();
         }
 
         @Override
         public void sendObject(Object data) throws IOException, EncodeException {
-            super.sendSyncObject(data);
-            session.restartIdleTimeoutExecutor();
+            awaitSent(super.sendSyncObject(data));
+            session.restartIdleTimeout();
         }
 
         @Override
         public OutputStream getSendStream() throws IOException {
-            return new OutputStreamToAsyncBinaryAdapter(remoteEndpoint);
+            return new OutputStreamToAsyncBinaryAdapter(remoteEndpoint, getStreamBufferSize());
         }
 
         @Override
         public Writer getSendWriter() throws IOException {
-            return new WriterToAsyncTextAdapter(remoteEndpoint);
+            return new WriterToAsyncTextAdapter(remoteEndpoint, getStreamBufferSize());
+        }
+
+        /**
+         * Wait until the message is written.
+         * <p/>
+         * Binary payloads are written without copying, so the caller cannot get the buffer back before
+         * the write is finished.
+         *
+         * @param future send result, can be {@code null}.
+         * @throws IOException when the message cannot be sent.
+         */
+        static void awaitSent(Future<?> future) throws IOException {
+            if (future == null) {
+                return;
+            }
+
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                final Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            }
         }
     }
 
@@ -131,31 +191,31 @@ public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEnd
 
         @Override
         public void sendText(String text, SendHandler handler) {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             sendAsync(text, handler, AsyncMessageType.TEXT);
         }
 
         @Override
         public Future<Void> sendText(String text) {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             return sendAsync(text, null, AsyncMessageType.TEXT);
         }
 
         @Override
         public Future<Void> sendBinary(ByteBuffer data) {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             return sendAsync(data, null, AsyncMessageType.BINARY);
         }
 
         @Override
         public void sendBinary(ByteBuffer data, SendHandler handler) {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             sendAsync(data, handler, AsyncMessageType.BINARY);
         }
 
         @Override
         public void sendObject(Object data, SendHandler handler) {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             sendAsync(data, handler, AsyncMessageType.OBJECT);
         }
 
@@ -172,12 +232,13 @@ public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEnd
 
         @Override
         public Future<Void> sendObject(Object data) {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             return sendAsync(data, null, AsyncMessageType.OBJECT);
         }
 
         /**
-         * Sends the message asynchronously (from separate {@link Thread}).
+         * Sends the message asynchronously. Returned {@link Future} and the handler are completed from the thread
+         * which completes the write.
          *
          * @param message message to be sent
          * @param handler message sending callback handler
@@ -186,46 +247,44 @@ public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEnd
          */
         private Future<Void> sendAsync(final Object message, final SendHandler handler, final AsyncMessageType type) {
             final FutureSendResult fsr = new FutureSendResult();
-
-            tyrusEndpointWrapper.container.getExecutorService().execute(new Runnable() {
-
+            final SendHandler completionHandler = new SendHandler() {
                 @Override
-                public void run() {
-                    Future<?> result = null;
-                    SendResult sr = null;
-
-                    try {
-                        switch (type) {
-                            case TEXT:
-                                result = sendSyncText((String) message);
-                                break;
-
-                            case BINARY:
-                                result = sendSyncBinary((ByteBuffer) message);
-                                break;
-
-                            case OBJECT:
-                                result = sendSyncObject(message);
-                                break;
-                        }
-
-                        if (result != null) {
-                            result.get();
-                        }
-                    } catch (Throwable thw) {
-                        sr = new SendResult(thw);
-                        fsr.setFailure(thw);
-                    } finally {
-                        if (sr == null) {
-                            sr = new SendResult();
-                        }
-                        if (handler != null) {
-                            handler.onResult(sr);
-                        }
+                public void onResult(SendResult result) {
+                    if (handler != null) {
+                        handler.onResult(result);
+                    }
+                    if (result.isOK()) {
                         fsr.setDone();
+                    } else {
+                        fsr.setFailure(result.getException());
                     }
                 }
-            });
+            };
+
+            try {
+                switch (type) {
+                    case TEXT:
+                        remoteEndpoint.sendText((String) message, completionHandler);
+                        break;
+
+                    case BINARY:
+                        remoteEndpoint.sendBinary((ByteBuffer) message, completionHandler);
+                        break;
+
+                    case OBJECT:
+                        final Object toSend = encode(message);
+                        if (toSend instanceof String) {
+                            remoteEndpoint.sendText((String) toSend, completionHandler);
+                        } else if (toSend instanceof ByteBuffer) {
+                            remoteEndpoint.sendBinary((ByteBuffer) toSend, completionHandler);
+                        } else {
+                            completionHandler.onResult(new SendResult());
+                        }
+                        break;
+                }
+            } catch (Throwable thw) {
+                completionHandler.onResult(new SendResult(thw));
+            }
 
             return fsr;
         }
@@ -245,26 +304,41 @@ public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEnd
         return remoteEndpoint.sendBinary(buf);
     }
 
-    @SuppressWarnings("unchecked")
     protected Future<?> sendSyncObject(Object o) throws IOException, EncodeException {
+        final Object toSend = encode(o);
+        if (toSend instanceof String) {
+            return remoteEndpoint.sendText((String) toSend);
+        } else if (toSend instanceof ByteBuffer) {
+            return remoteEndpoint.sendBinary((ByteBuffer) toSend);
+        }
+
+        return null;
+    }
+
+    /**
+     * Convert the object to the message payload.
+     *
+     * @param o object to be sent.
+     * @return {@link String} or {@link ByteBuffer}, {@code null} when no encoder produced supported result.
+     * @throws EncodeException when the encoder fails.
+     */
+    @SuppressWarnings("unchecked")
+    protected Object encode(Object o) throws EncodeException {
         if (o instanceof String) {
-            return remoteEndpoint.sendText((String) o);
+            return o;
         } else if (isPrimitiveData(o)) {
-            return remoteEndpoint.sendText(o.toString());
+            return o.toString();
         } else {
             Object toSend = tyrusEndpointWrapper.doEncode(session, o);
-            if (toSend instanceof String) {
-                return remoteEndpoint.sendText((String) toSend);
-            } else if (toSend instanceof ByteBuffer) {
-                return remoteEndpoint.sendBinary((ByteBuffer) toSend);
+            if (toSend instanceof String || toSend instanceof ByteBuffer) {
+                return toSend;
             } else if (toSend instanceof StringWriter) {
                 StringWriter writer = (StringWriter) toSend;
                 StringBuffer sb = writer.getBuffer();
-                return remoteEndpoint.sendText(sb.toString());
+                return sb.toString();
             } else if (toSend instanceof ByteArrayOutputStream) {
                 ByteArrayOutputStream baos = (ByteArrayOutputStream) toSend;
-                ByteBuffer buffer = ByteBuffer.wrap(baos.toByteArray());
-                return remoteEndpoint.sendBinary(buffer);
+                return ByteBuffer.wrap(baos.toByteArray());
             }
         }
 
@@ -288,7 +362,7 @@ public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEnd
         if (applicationData != null && applicationData.remaining() > 125) {
             throw new IllegalArgumentException("Ping applicationData exceeded the maximum allowed payload of 125 bytes.");
         }
-        session.restartIdleTimeoutExecutor();
+        session.restartIdleTimeout();
         remoteEndpoint.sendPing(applicationData);
     }
 
@@ -297,7 +371,7 @@ public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEnd
         if (applicationData != null && applicationData.remaining() > 125) {
             throw new IllegalArgumentException("Pong applicationData exceeded the maximum allowed payload of 125 bytes.");
         }
-        session.restartIdleTimeoutExecutor();
+        session.restartIdleTimeout();
         remoteEndpoint.sendPong(applicationData);
     }
 
@@ -307,23 +381,61 @@ public abstract class RemoteEndpointWrapper implements javax.websocket.RemoteEnd
     }
 
     @Override
-    public void setBatchingAllowed(boolean allowed) {
-        // TODO: Implement.
+    public void setBatchingAllowed(boolean allowed) throws IOException {
+        final Map<String, Object> properties = tyrusEndpointWrapper.getEndpointConfig().getUserProperties();
+        final int bufferSize = (int) getLongProperty(properties, BATCH_BUFFER_SIZE, -1);
+        final long lingerTime = getLongProperty(properties, BATCH_LINGER_TIME, -1);
+
+        Basic.awaitSent(remoteEndpoint.setBatchingAllowed(allowed, bufferSize, lingerTime));
+    }
+
+    int getStreamBufferSize() {
+        final Map<String, Object> properties = tyrusEndpointWrapper.getEndpointConfig().getUserProperties();
+        final long bufferSize = getLongProperty(properties, STREAM_BUFFER_SIZE, DEFAULT_STREAM_BUFFER_SIZE);
+
+        return bufferSize > 0 && bufferSize <= Integer.MAX_VALUE ? (int) bufferSize : DEFAULT_STREAM_BUFFER_SIZE;
     }
 
     @Override
     public boolean getBatchingAllowed() {
-        return false;  // TODO: Implement.
+        return remoteEndpoint.getBatchingAllowed();
+    }
+
+    /**
+     * Check whether the connection accepts more outgoing data without queueing it.
+     * <p/>
+     * Messages sent through {@link javax.websocket.RemoteEndpoint.Async} are queued by the container when the peer
+     * does not read them fast enough; producers should stop sending and wait for completion of the pending sends
+     * when this returns {@code false}.
+     *
+     * @return {@code true} when messages can be sent without being queued.
+     */
+    public boolean isWritable() {
+        return remoteEndpoint.isWritable();
     }
 
     @Override
-    public void flushBatch() {
-        // TODO: Implement.
+    public void flushBatch() throws IOException {
+        Basic.awaitSent(remoteEndpoint.flushBatch());
+    }
+
+    private static long getLongProperty(Map<String, Object> properties, String name, long defaultValue) {
+        final Object value = properties.get(name);
+        if (value instanceof Number) {
+            return ((Number) value).longValue();
+        } else if (value instanceof String) {
+            try {
+                return Long.parseLong(((String) value).trim());
+            } catch (NumberFormatException e) {
+                LOGGER.warning(String.format("Invalid value of %s: %s, using default.", name, value));
+            }
+        }
+        return defaultValue;
     }
 
 
     public void close(CloseReason cr) {
-        Logger.getLogger(RemoteEndpointWrapper.class.getName()).fine("Close public void close(CloseReason cr): " + cr);
+        LOGGER.fine("Close public void close(CloseReason cr): " + cr);
         remoteEndpoint.close(cr);
     }
 }
@@ -43,7 +43,6 @@ import java.net.URI;
 import java.security.Principal;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -61,28 +60,25 @@ public final class RequestContext extends WebSocketRequest implements javax.webs
     private final URI requestURI;
     private final String queryString;
     private final Object httpSession;
+    private final Builder.HttpSessionDelegate httpSessionDelegate;
     private final boolean secure;
     private final Principal userPrincipal;
     private final Builder.IsUserInRoleDelegate isUserInRoleDelegate;
 
     private String requestPath;
 
-    private Map<String, List<String>> headers = new TreeMap<String, List<String>>(new Comparator<String>() {
-        @Override
-        public int compare(String o1, String o2) {
-            return o1.toLowerCase().compareTo(o2.toLowerCase());
-        }
-    });
+    private Map<String, List<String>> headers = new TreeMap<String, List<String>>(String.CASE_INSENSITIVE_ORDER);
 
     private Map<String, List<String>> parameterMap;
 
     private RequestContext(URI requestURI, String requestPath, String queryString,
-                           Object httpSession, boolean secure, Principal userPrincipal,
+                           Object httpSession, Builder.HttpSessionDelegate httpSessionDelegate, boolean secure, Principal userPrincipal,
                            Builder.IsUserInRoleDelegate IsUserInRoleDelegate, Map<String, List<String>> parameterMap) {
         this.requestURI = requestURI;
         this.requestPath = requestPath;
         this.queryString = queryString;
         this.httpSession = httpSession;
+        this.httpSessionDelegate = httpSessionDelegate;
         this.secure = secure;
         this.userPrincipal = userPrincipal;
         this.isUserInRoleDelegate = IsUserInRoleDelegate;
@@ -110,6 +106,8 @@ public final class RequestContext extends WebSocketRequest implements javax.webs
         final List<String> stringList = headers.get(name);
         if (stringList == null) {
             return null;
+        } else if (stringList.size() == 1) {
+            return stringList.get(0);
         } else {
             StringBuilder sb = new StringBuilder();
             boolean first = true;
@@ -170,6 +168,10 @@ public final class RequestContext extends WebSocketRequest implements javax.webs
 
     @Override
     public Object getHttpSession() {
+        if (httpSession == null && httpSessionDelegate != null) {
+            return httpSessionDelegate.getHttpSession();
+        }
+
         return httpSession;
     }
 
@@ -202,6 +204,7 @@ public final class RequestContext extends WebSocketRequest implements javax.webs
         private String requestPath;
         private String queryString;
         private Object httpSession;
+        private Builder.HttpSessionDelegate httpSessionDelegate;
         private boolean secure;
         private Principal userPrincipal;
         private Builder.IsUserInRoleDelegate isUserInRoleDelegate;
@@ -261,6 +264,20 @@ public final class RequestContext extends WebSocketRequest implements javax.webs
             return this;
         }
 
+        /**
+         * Set delegate for {@link RequestContext#getHttpSession()} method.
+         * <p/>
+         * Delegate is queried only when no http session was set using {@link #httpSession(Object)}, which allows the
+         * container to obtain (and possibly create) http session only when somebody asks for it.
+         *
+         * @param httpSessionDelegate delegate for {@link RequestContext#getHttpSession()}.
+         * @return updated {@link RequestContext.Builder} instance.
+         */
+        public Builder httpSessionDelegate(HttpSessionDelegate httpSessionDelegate) {
+            this.httpSessionDelegate = httpSessionDelegate;
+            return this;
+        }
+
         /**
          * Set secure state.
          *
@@ -320,7 +337,7 @@ public final class RequestContext extends WebSocketRequest implements javax.webs
          * @return created {@link RequestContext}.
          */
         public RequestContext build() {
-            return new RequestContext(requestURI, requestPath, queryString, httpSession, secure,
+            return new RequestContext(requestURI, requestPath, queryString, httpSession, httpSessionDelegate, secure,
                     userPrincipal, isUserInRoleDelegate,
                     parameterMap != null ? parameterMap : new HashMap<String, List<String>>());
         }
@@ -344,5 +361,21 @@ public final class RequestContext extends WebSocketRequest implements javax.webs
              */
             public boolean isUserInRole(String role);
         }
+
+        /**
+         * Http session delegate.
+         * <p/>
+         * Used by containers which don't want to create http session for every handshake request.
+         */
+        public interface HttpSessionDelegate {
+
+            /**
+             * Get http session associated with the handshake request.
+             *
+             * @return http session or {@code null} when there is none and it could not be created.
+             * @see {@code javax.servlet.http.HttpServletRequest#getSession()}
+             */
+            public Object getHttpSession();
+        }
     }
 }
@@ -60,6 +60,7 @@ import org.glassfish.tyrus.websockets.WebSocket;
 import org.glassfish.tyrus.websockets.WebSocketApplication;
 import org.glassfish.tyrus.websockets.WebSocketListener;
 import org.glassfish.tyrus.websockets.WebSocketResponse;
+import org.glassfish.tyrus.websockets.monitoring.EndpointMetrics;
 
 /**
  * Implementation of {@link org.glassfish.tyrus.websockets.WebSocketApplication}.
@@ -111,6 +112,11 @@ public class TyrusEndpoint extends WebSocketApplication {
         return endpoint.getEndpointPath();
     }
 
+    @Override
+    public EndpointMetrics getMetrics() {
+        return endpoint instanceof TyrusEndpointWrapper ? ((TyrusEndpointWrapper) endpoint).getMetrics() : null;
+    }
+
     @Override
     public WebSocket createSocket(final ProtocolHandler handler, final WebSocketListener... listeners) {
         handler.setContainer(endpoint.getWebSocketContainer());
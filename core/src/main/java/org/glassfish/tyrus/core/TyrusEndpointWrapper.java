@@ -52,6 +52,7 @@ import java.net.URI;
 import java.nio.ByteBuffer;
 import java.security.Principal;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -59,6 +60,9 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -71,6 +75,8 @@ import javax.websocket.Endpoint;
 import javax.websocket.EndpointConfig;
 import javax.websocket.Extension;
 import javax.websocket.PongMessage;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
 import javax.websocket.server.ServerEndpointConfig;
@@ -78,7 +84,12 @@ import javax.websocket.server.ServerEndpointConfig;
 import org.glassfish.tyrus.spi.EndpointWrapper;
 import org.glassfish.tyrus.spi.HandshakeRequest;
 import org.glassfish.tyrus.spi.RemoteEndpoint;
+import org.glassfish.tyrus.websockets.DataFrame;
 import org.glassfish.tyrus.websockets.HandshakeException;
+import org.glassfish.tyrus.websockets.PreparedFrame;
+import org.glassfish.tyrus.websockets.frame.BinaryFrame;
+import org.glassfish.tyrus.websockets.frame.TextFrame;
+import org.glassfish.tyrus.websockets.monitoring.EndpointMetrics;
 
 /**
  * Wraps the registered application class.
@@ -93,6 +104,11 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
 
     private final static Logger LOGGER = Logger.getLogger(TyrusEndpointWrapper.class.getName());
 
+    /**
+     * Index of the {@link TyrusSession} slot holding endpoint instance, coders use the following slots.
+     */
+    static final int ENDPOINT_SLOT = 0;
+
     /**
      * The container for this session.
      */
@@ -102,6 +118,18 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
     private final List<CoderWrapper<Decoder>> decoders = new ArrayList<CoderWrapper<Decoder>>();
     private final List<CoderWrapper<Encoder>> encoders = new ArrayList<CoderWrapper<Encoder>>();
 
+    /**
+     * Decoders applicable to text and binary messages, resolved from {@link #decoders} once.
+     */
+    private final DecoderChain textDecoders = new DecoderChain();
+    private final DecoderChain binaryDecoders = new DecoderChain();
+
+    /**
+     * Encoder selected for the runtime class of sent message, resolved on first use.
+     */
+    private final ConcurrentMap<Class<?>, CoderWrapper<Encoder>> encoderCache =
+            new ConcurrentHashMap<Class<?>, CoderWrapper<Encoder>>();
+
     private final EndpointConfig configuration;
     private final Class<?> endpointClass;
     private final Endpoint endpoint;
@@ -110,6 +138,7 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
     private final ErrorCollector collector;
     private final ComponentProviderService componentProvider;
     private final ServerEndpointConfig.Configurator configurator;
+    private final int componentSlotCount;
 
     // the following is set during the handshake
     private String uri;
@@ -118,6 +147,7 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
     private boolean isSecure;
     private String queryString;
     private Map<String, List<String>> requestParameterMap;
+    private EndpointMetrics metrics;
 
     /**
      * Create {@link TyrusEndpointWrapper} for class that extends {@link Endpoint}.
@@ -190,28 +220,48 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
             }
         } : configuration;
 
+        // instances of the same coder class share one session slot
+        final Map<Class<?>, Integer> slots = new HashMap<Class<?>, Integer>();
+
         for (Class<? extends Decoder> decoderClass : this.configuration.getDecoders()) {
             Class<?> type = getDecoderClassType(decoderClass);
-            decoders.add(new CoderWrapper<Decoder>(decoderClass, type));
+            decoders.add(new CoderWrapper<Decoder>(decoderClass, type, getSlot(slots, decoderClass)));
         }
 
         //this wrapper represents endpoint which is not annotated endpoint
         if (endpoint == null || !(endpoint instanceof AnnotatedEndpoint)) {
             for (Class<? extends Decoder> decoderClass : getDefaultDecoders()) {
                 Class<?> type = getDecoderClassType(decoderClass);
-                decoders.add(new CoderWrapper<Decoder>(decoderClass, type));
+                decoders.add(new CoderWrapper<Decoder>(decoderClass, type, getSlot(slots, decoderClass)));
             }
         }
 
         for (Class<? extends Encoder> encoderClass : this.configuration.getEncoders()) {
             Class<?> type = getEncoderClassType(encoderClass);
-            encoders.add(new CoderWrapper<Encoder>(encoderClass, type));
+            encoders.add(new CoderWrapper<Encoder>(encoderClass, type, getSlot(slots, encoderClass)));
         }
 
-        encoders.add(new CoderWrapper<Encoder>(NoOpTextCoder.class, String.class));
-        encoders.add(new CoderWrapper<Encoder>(NoOpByteBufferCoder.class, ByteBuffer.class));
-        encoders.add(new CoderWrapper<Encoder>(NoOpByteArrayCoder.class, byte[].class));
-        encoders.add(new CoderWrapper<Encoder>(ToStringEncoder.class, Object.class));
+        encoders.add(new CoderWrapper<Encoder>(NoOpTextCoder.class, String.class, getSlot(slots, NoOpTextCoder.class)));
+        encoders.add(new CoderWrapper<Encoder>(NoOpByteBufferCoder.class, ByteBuffer.class, getSlot(slots, NoOpByteBufferCoder.class)));
+        encoders.add(new CoderWrapper<Encoder>(NoOpByteArrayCoder.class, byte[].class, getSlot(slots, NoOpByteArrayCoder.class)));
+        encoders.add(new CoderWrapper<Encoder>(ToStringEncoder.class, Object.class, getSlot(slots, ToStringEncoder.class)));
+        componentSlotCount = ENDPOINT_SLOT + 1 + slots.size();
+
+        for (CoderWrapper<Decoder> dec : decoders) {
+            final Class<? extends Decoder> decoderClass = dec.getCoderClass();
+
+            if (Decoder.Text.class.isAssignableFrom(decoderClass)) {
+                textDecoders.add(dec, true);
+            } else if (Decoder.TextStream.class.isAssignableFrom(decoderClass)) {
+                textDecoders.add(dec, false);
+            }
+
+            if (Decoder.Binary.class.isAssignableFrom(decoderClass)) {
+                binaryDecoders.add(dec, true);
+            } else if (Decoder.BinaryStream.class.isAssignableFrom(decoderClass)) {
+                binaryDecoders.add(dec, false);
+            }
+        }
     }
 
     @Override
@@ -238,6 +288,24 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
         }
     }
 
+    private static int getSlot(Map<Class<?>, Integer> slots, Class<?> coderClass) {
+        Integer slot = slots.get(coderClass);
+        if (slot == null) {
+            slot = ENDPOINT_SLOT + 1 + slots.size();
+            slots.put(coderClass, slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Number of slots of {@link TyrusSession} needed for endpoint and coder instances.
+     *
+     * @return slot count.
+     */
+    int getComponentSlotCount() {
+        return componentSlotCount;
+    }
+
     static List<Class<? extends Decoder>> getDefaultDecoders() {
         final List<Class<? extends Decoder>> classList = new ArrayList<Class<? extends Decoder>>();
         classList.addAll(PrimitiveDecoders.ALL);
@@ -265,16 +333,16 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
         return container;
     }
 
-    private <T> T getCoderInstance(Session session, CoderWrapper<T> wrapper) {
+    private <T> T getCoderInstance(TyrusSession session, CoderWrapper<T> wrapper) {
         final T coder = wrapper.getCoder();
         if (coder == null) {
-            return this.componentProvider.getCoderInstance(wrapper.getCoderClass(), session, getEndpointConfig(), collector);
+            return this.componentProvider.getCoderInstance(wrapper.getCoderClass(), session, wrapper.getSlot(), getEndpointConfig(), collector);
         }
 
         return coder;
     }
 
-    Object decodeCompleteMessage(Session session, Object message, Class<?> type, CoderWrapper<Decoder> selectedDecoder) {
+    Object decodeCompleteMessage(TyrusSession session, Object message, Class<?> type, CoderWrapper<Decoder> selectedDecoder) {
         try {
             final Class<? extends Decoder> decoderClass = selectedDecoder.getCoderClass();
 
@@ -308,65 +376,91 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
         return null;
     }
 
-    private ArrayList<CoderWrapper<Decoder>> findApplicableDecoders(Session session, Object message, boolean isString) {
-        ArrayList<CoderWrapper<Decoder>> result = new ArrayList<CoderWrapper<Decoder>>();
+    ArrayList<CoderWrapper<Decoder>> findApplicableDecoders(TyrusSession session, Object message, boolean isString) {
+        final DecoderChain chain = isString ? textDecoders : binaryDecoders;
+        final ArrayList<CoderWrapper<Decoder>> result = new ArrayList<CoderWrapper<Decoder>>(chain.size());
 
-        for (CoderWrapper<Decoder> dec : decoders) {
-            if (isString && (Decoder.Text.class.isAssignableFrom(dec.getCoderClass()))) {
+        for (int i = 0; i < chain.size(); i++) {
+            final CoderWrapper<Decoder> dec = chain.get(i);
+
+            if (!chain.checksWillDecode(i)) {
+                result.add(dec);
+            } else if (isString) {
                 final Decoder.Text decoder = (Decoder.Text) getCoderInstance(session, dec);
 
                 if (decoder.willDecode((String) message)) {
                     result.add(dec);
                 }
-            } else if (!isString && (Decoder.Binary.class.isAssignableFrom(dec.getCoderClass()))) {
+            } else {
                 final Decoder.Binary decoder = (Decoder.Binary) getCoderInstance(session, dec);
 
                 if (decoder.willDecode((ByteBuffer) message)) {
                     result.add(dec);
                 }
-            } else if (isString && (Decoder.TextStream.class.isAssignableFrom(dec.getCoderClass()))) {
-                result.add(dec);
-            } else if (!isString && (Decoder.BinaryStream.class.isAssignableFrom(dec.getCoderClass()))) {
-                result.add(dec);
             }
         }
 
         return result;
     }
 
-    Object doEncode(Session session, Object message) throws EncodeException {
+    /**
+     * Get the first registered encoder able to encode given type.
+     *
+     * @param type runtime class of the message.
+     * @return applicable encoder or {@code null} when there is none.
+     */
+    CoderWrapper<Encoder> findEncoder(Class<?> type) {
+        CoderWrapper<Encoder> result = encoderCache.get(type);
+        if (result != null) {
+            return result;
+        }
+
         for (CoderWrapper<Encoder> enc : encoders) {
+            final Class<? extends Encoder> encoderClass = enc.getCoderClass();
+
+            if ((Encoder.Binary.class.isAssignableFrom(encoderClass)
+                    || Encoder.Text.class.isAssignableFrom(encoderClass)
+                    || Encoder.BinaryStream.class.isAssignableFrom(encoderClass)
+                    || Encoder.TextStream.class.isAssignableFrom(encoderClass))
+                    && enc.getType().isAssignableFrom(type)) {
+                result = enc;
+                break;
+            }
+        }
+
+        if (result != null) {
+            encoderCache.putIfAbsent(type, result);
+        }
+        return result;
+    }
+
+    Object doEncode(TyrusSession session, Object message) throws EncodeException {
+        final CoderWrapper<Encoder> enc = findEncoder(message.getClass());
+
+        if (enc != null) {
             try {
                 final Class<? extends Encoder> encoderClass = enc.getCoderClass();
 
                 if (Encoder.Binary.class.isAssignableFrom(encoderClass)) {
-                    if (enc.getType().isAssignableFrom(message.getClass())) {
-                        final Encoder.Binary encoder = (Encoder.Binary) getCoderInstance(session, enc);
+                    final Encoder.Binary encoder = (Encoder.Binary) getCoderInstance(session, enc);
 
-                        return encoder.encode(message);
-                    }
+                    return encoder.encode(message);
                 } else if (Encoder.Text.class.isAssignableFrom(encoderClass)) {
-                    if (enc.getType().isAssignableFrom(message.getClass())) {
-                        final Encoder.Text encoder = (Encoder.Text) getCoderInstance(session, enc);
+                    final Encoder.Text encoder = (Encoder.Text) getCoderInstance(session, enc);
 
-                        return encoder.encode(message);
-                    }
+                    return encoder.encode(message);
                 } else if (Encoder.BinaryStream.class.isAssignableFrom(encoderClass)) {
-                    if (enc.getType().isAssignableFrom(message.getClass())) {
-                        final ByteArrayOutputStream stream = new ByteArrayOutputStream();
-                        final Encoder.BinaryStream encoder = (Encoder.BinaryStream) getCoderInstance(session, enc);
-
-                        encoder.encode(message, stream);
-                        return stream;
-                    }
-                } else if (Encoder.TextStream.class.isAssignableFrom(encoderClass)) {
-                    if (enc.getType().isAssignableFrom(message.getClass())) {
-                        final Writer writer = new StringWriter();
-                        final Encoder.TextStream encoder = (Encoder.TextStream) getCoderInstance(session, enc);
-
-                        encoder.encode(message, writer);
-                        return writer;
-                    }
+                    final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+                    final Encoder.BinaryStream encoder = (Encoder.BinaryStream) getCoderInstance(session, enc);
+
+                    encoder.encode(message, stream);
+                    return stream;
+                } else {
+                    final Writer writer = new StringWriter();
+                    final Encoder.TextStream encoder = (Encoder.TextStream) getCoderInstance(session, enc);
+
+                    encoder.encode(message, writer);
+                    return writer;
                 }
             } catch (EncodeException ee) {
                 throw ee;
@@ -396,6 +490,52 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
         }
     }
 
+    /**
+     * Send already encoded message to all open sessions of this endpoint. The message is framed only once and the
+     * same frame is written to all connections.
+     *
+     * @param message {@link String} or {@link ByteBuffer} message; buffer must not be modified until the handler
+     *                is notified.
+     * @param handler handler notified when the message is sent to all sessions or when some sends failed.
+     */
+    void broadcast(Object message, SendHandler handler) {
+        final Map<RemoteEndpoint, TyrusSession> sessions;
+        synchronized (remoteEndpointToSession) {
+            sessions = new HashMap<RemoteEndpoint, TyrusSession>(remoteEndpointToSession);
+        }
+
+        final PreparedFrame frame;
+        if (message instanceof String) {
+            frame = new PreparedFrame(new DataFrame(new TextFrame(), (String) message));
+        } else {
+            frame = new PreparedFrame(new DataFrame(new BinaryFrame(), (ByteBuffer) message, true));
+        }
+
+        final BroadcastSendHandler broadcastHandler = new BroadcastSendHandler(handler);
+        for (Map.Entry<RemoteEndpoint, TyrusSession> entry : sessions.entrySet()) {
+            final RemoteEndpoint remoteEndpoint = entry.getKey();
+            final TyrusSession session = entry.getValue();
+            if (!session.isOpen()) {
+                continue;
+            }
+
+            broadcastHandler.add();
+            session.restartIdleTimeout();
+            try {
+                if (remoteEndpoint instanceof TyrusRemoteEndpoint) {
+                    ((TyrusRemoteEndpoint) remoteEndpoint).sendFrame(frame, broadcastHandler);
+                } else if (message instanceof String) {
+                    remoteEndpoint.sendText((String) message, broadcastHandler);
+                } else {
+                    remoteEndpoint.sendBinary(((ByteBuffer) message).duplicate(), broadcastHandler);
+                }
+            } catch (Throwable t) {
+                broadcastHandler.onResult(new SendResult(t));
+            }
+        }
+        broadcastHandler.done();
+    }
+
     @Override
     public Set<Session> getOpenSessions() {
         Set<Session> result = new HashSet<Session>();
@@ -427,6 +567,10 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
 
     @Override
     public void onConnect(RemoteEndpoint gs, String subprotocol, List<Extension> extensions) {
+        if (metrics != null) {
+            metrics.onSessionOpened();
+        }
+
         synchronized (remoteEndpointToSession) {
             TyrusSession session = remoteEndpointToSession.get(gs);
             if (session == null) {
@@ -441,7 +585,7 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
             session.setNegotiatedSubprotocol(subprotocol);
 
             final Endpoint toCall = endpoint != null ? endpoint :
-                    (Endpoint) componentProvider.getInstance(endpointClass, session, collector);
+                    (Endpoint) componentProvider.getInstance(endpointClass, session, ENDPOINT_SLOT, collector);
             try {
                 toCall.onOpen(session, configuration);
             } catch (Throwable t) {
@@ -454,12 +598,43 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
         }
     }
 
+    /**
+     * Count a received message or message part. Messages are counted before the handlers are notified, because the
+     * handlers can reply before the message processing finishes.
+     *
+     * @param localMetrics endpoint statistics, {@code null} when monitoring is disabled.
+     * @param text         {@code true} for text messages.
+     * @param last         {@code true} when the whole message or its last part was received.
+     * @return start of the message processing in nanoseconds, {@code 0} when monitoring is disabled.
+     */
+    private static long countMessageReceived(EndpointMetrics localMetrics, boolean text, boolean last) {
+        if (localMetrics == null) {
+            return 0;
+        }
+        localMetrics.onMessageReceived(text, last);
+        return System.nanoTime();
+    }
+
+    /**
+     * Record the time spent processing a message or message part.
+     *
+     * @param localMetrics endpoint statistics, {@code null} when monitoring is disabled.
+     * @param start        value returned by {@link #countMessageReceived(EndpointMetrics, boolean, boolean)}.
+     */
+    private static void recordMessageProcessed(EndpointMetrics localMetrics, long start) {
+        if (localMetrics != null) {
+            localMetrics.onMessageProcessed(System.nanoTime() - start);
+        }
+    }
+
     @Override
     public void onMessage(RemoteEndpoint gs, ByteBuffer messageBytes) {
         TyrusSession session = getSession(gs);
+        final EndpointMetrics localMetrics = metrics;
+        final long start = countMessageReceived(localMetrics, false, true);
 
         try {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             session.setState(TyrusSession.State.RUNNING);
             if (session.isWholeBinaryHandlerPresent()) {
                 session.notifyMessageHandlers(messageBytes, findApplicableDecoders(session, messageBytes, false));
@@ -469,14 +644,19 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
                 throw new IllegalStateException(String.format("Binary messageHandler not found. Session: '%s'.", session));
             }
         } catch (Throwable t) {
+            if (localMetrics != null) {
+                localMetrics.onError();
+            }
             if (!processThrowable(t, session)) {
                 final Endpoint toCall = endpoint != null ? endpoint :
-                        (Endpoint) componentProvider.getInstance(endpointClass, session, collector);
+                        (Endpoint) componentProvider.getInstance(endpointClass, session, ENDPOINT_SLOT, collector);
                 if (toCall != null) {
                     toCall.onError(session, t);
                 }
             }
         }
+
+        recordMessageProcessed(localMetrics, start);
     }
 
     @Override
@@ -487,9 +667,11 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
             LOGGER.log(Level.FINE, "Message received on already closed connection.");
             return;
         }
+        final EndpointMetrics localMetrics = metrics;
+        final long start = countMessageReceived(localMetrics, true, true);
 
         try {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             session.setState(TyrusSession.State.RUNNING);
             if (session.isWholeTextHandlerPresent()) {
                 session.notifyMessageHandlers(messageString, findApplicableDecoders(session, messageString, true));
@@ -499,22 +681,29 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
                 throw new IllegalStateException(String.format("Text messageHandler not found. Session: '%s'.", session));
             }
         } catch (Throwable t) {
+            if (localMetrics != null) {
+                localMetrics.onError();
+            }
             if (!processThrowable(t, session)) {
                 final Endpoint toCall = endpoint != null ? endpoint :
-                        (Endpoint) componentProvider.getInstance(endpointClass, session, collector);
+                        (Endpoint) componentProvider.getInstance(endpointClass, session, ENDPOINT_SLOT, collector);
                 if (toCall != null) {
                     toCall.onError(session, t);
                 }
             }
         }
+
+        recordMessageProcessed(localMetrics, start);
     }
 
     @Override
     public void onPartialMessage(RemoteEndpoint gs, String partialString, boolean last) {
         TyrusSession session = getSession(gs);
+        final EndpointMetrics localMetrics = metrics;
+        final long start = countMessageReceived(localMetrics, true, last);
 
         try {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             if (session.isPartialTextHandlerPresent()) {
                 session.notifyMessageHandlers(partialString, last);
                 session.setState(TyrusSession.State.RUNNING);
@@ -562,22 +751,29 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
                 }
             }
         } catch (Throwable t) {
+            if (localMetrics != null) {
+                localMetrics.onError();
+            }
             if (!processThrowable(t, session)) {
                 final Endpoint toCall = endpoint != null ? endpoint :
-                        (Endpoint) componentProvider.getInstance(endpointClass, session, collector);
+                        (Endpoint) componentProvider.getInstance(endpointClass, session, ENDPOINT_SLOT, collector);
                 if (toCall != null) {
                     toCall.onError(session, t);
                 }
             }
         }
+
+        recordMessageProcessed(localMetrics, start);
     }
 
     @Override
     public void onPartialMessage(RemoteEndpoint gs, ByteBuffer partialBytes, boolean last) {
         TyrusSession session = getSession(gs);
+        final EndpointMetrics localMetrics = metrics;
+        final long start = countMessageReceived(localMetrics, false, last);
 
         try {
-            session.restartIdleTimeoutExecutor();
+            session.restartIdleTimeout();
             if (session.isPartialBinaryHandlerPresent()) {
                 session.notifyMessageHandlers(partialBytes, last);
                 session.setState(TyrusSession.State.RUNNING);
@@ -625,14 +821,19 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
                 }
             }
         } catch (Throwable t) {
+            if (localMetrics != null) {
+                localMetrics.onError();
+            }
             if (!processThrowable(t, session)) {
                 final Endpoint toCall = endpoint != null ? endpoint :
-                        (Endpoint) componentProvider.getInstance(endpointClass, session, collector);
+                        (Endpoint) componentProvider.getInstance(endpointClass, session, ENDPOINT_SLOT, collector);
                 if (toCall != null) {
                     toCall.onError(session, t);
                 }
             }
         }
+
+        recordMessageProcessed(localMetrics, start);
     }
 
     /**
@@ -663,7 +864,7 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
     @Override
     public void onPong(RemoteEndpoint gs, final ByteBuffer bytes) {
         TyrusSession session = getSession(gs);
-        session.restartIdleTimeoutExecutor();
+        session.restartIdleTimeout();
 
         if (session.isPongHandlerPreset()) {
             session.notifyPongHandler(new PongMessage() {
@@ -682,7 +883,7 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
     @Override
     public void onPing(RemoteEndpoint gs, ByteBuffer bytes) {
         TyrusSession session = getSession(gs);
-        session.restartIdleTimeoutExecutor();
+        session.restartIdleTimeout();
         try {
             session.getBasicRemote().sendPong(bytes);
         } catch (IOException e) {
@@ -699,9 +900,14 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
             return;
         }
 
+        if (metrics != null) {
+            metrics.onSessionClosed(closeReason == null ? CloseReason.CloseCodes.NO_STATUS_CODE.getCode() :
+                    closeReason.getCloseCode().getCode());
+        }
+
         session.setState(TyrusSession.State.CLOSING);
         final Endpoint toCall = endpoint != null ? endpoint :
-                (Endpoint) componentProvider.getInstance(endpointClass, session, collector);
+                (Endpoint) componentProvider.getInstance(endpointClass, session, ENDPOINT_SLOT, collector);
 
         try {
             toCall.onClose(session, closeReason);
@@ -725,6 +931,24 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
         return configuration;
     }
 
+    /**
+     * Set runtime statistics of this endpoint.
+     *
+     * @param metrics endpoint statistics, {@code null} when monitoring is disabled.
+     */
+    public void setMetrics(EndpointMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Get runtime statistics of this endpoint.
+     *
+     * @return endpoint statistics, {@code null} when monitoring is disabled.
+     */
+    public EndpointMetrics getMetrics() {
+        return metrics;
+    }
+
     // TODO: remove?
     boolean isOpen(TyrusSession session) {
         return remoteEndpointToSession.values().contains(session);
@@ -786,4 +1010,79 @@ public class TyrusEndpointWrapper extends EndpointWrapper {
         sb.append('}');
         return sb.toString();
     }
+
+    /**
+     * Decoders of one message kind (text or binary) in the order of registration. Decoders which have to be asked
+     * whether they will decode the message are marked, stream decoders are applicable to any message.
+     */
+    private static final class DecoderChain {
+        private final List<CoderWrapper<Decoder>> decoders = new ArrayList<CoderWrapper<Decoder>>();
+        private boolean[] willDecode = new boolean[0];
+
+        void add(CoderWrapper<Decoder> decoder, boolean checkWillDecode) {
+            willDecode = Arrays.copyOf(willDecode, decoders.size() + 1);
+            willDecode[decoders.size()] = checkWillDecode;
+            decoders.add(decoder);
+        }
+
+        int size() {
+            return decoders.size();
+        }
+
+        CoderWrapper<Decoder> get(int index) {
+            return decoders.get(index);
+        }
+
+        boolean checksWillDecode(int index) {
+            return willDecode[index];
+        }
+    }
+
+    /**
+     * Notifies the broadcast handler once all sends are finished.
+     */
+    private static class BroadcastSendHandler implements SendHandler {
+
+        private final SendHandler handler;
+        // one for the broadcast itself, so the handler is not notified before all sends are started
+        private final AtomicInteger pending = new AtomicInteger(1);
+        private final AtomicInteger failures = new AtomicInteger(0);
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<Throwable>();
+        private int sessions = 0;
+
+        BroadcastSendHandler(SendHandler handler) {
+            this.handler = handler;
+        }
+
+        void add() {
+            sessions++;
+            pending.incrementAndGet();
+        }
+
+        void done() {
+            complete();
+        }
+
+        @Override
+        public void onResult(SendResult result) {
+            if (!result.isOK()) {
+                failures.incrementAndGet();
+                firstFailure.compareAndSet(null, result.getException());
+            }
+            complete();
+        }
+
+        private void complete() {
+            if (pending.decrementAndGet() == 0) {
+                final int failed = failures.get();
+                if (failed == 0) {
+                    handler.onResult(new SendResult());
+                } else {
+                    handler.onResult(new SendResult(new IOException(
+                            String.format("Message could not be sent to %d of %d sessions.", failed, sessions),
+                            firstFailure.get())));
+                }
+            }
+        }
+    }
 }
@@ -44,9 +44,13 @@ import java.nio.ByteBuffer;
 import java.util.concurrent.Future;
 
 import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 
 import org.glassfish.tyrus.spi.RemoteEndpoint;
+import org.glassfish.tyrus.spi.Writer;
 import org.glassfish.tyrus.websockets.DataFrame;
+import org.glassfish.tyrus.websockets.PreparedFrame;
 import org.glassfish.tyrus.websockets.WebSocket;
 
 /**
@@ -75,7 +79,27 @@ public class TyrusRemoteEndpoint extends RemoteEndpoint {
 
     @Override
     public Future<DataFrame> sendBinary(ByteBuffer byteBuffer) throws IOException {
-        return this.socket.send(Utils.getRemainingArray(byteBuffer));
+        return this.socket.send(byteBuffer);
+    }
+
+    @Override
+    public void sendText(String text, SendHandler handler) {
+        this.socket.send(text, new SendHandlerAdapter(handler));
+    }
+
+    @Override
+    public void sendBinary(ByteBuffer data, SendHandler handler) {
+        this.socket.send(data, new SendHandlerAdapter(handler));
+    }
+
+    /**
+     * Send a frame serialized in advance without blocking.
+     *
+     * @param frame   prepared frame.
+     * @param handler the handler notified about the result.
+     */
+    public void sendFrame(PreparedFrame frame, SendHandler handler) {
+        this.socket.send(frame, new SendHandlerAdapter(handler));
     }
 
     @Override
@@ -85,8 +109,7 @@ public class TyrusRemoteEndpoint extends RemoteEndpoint {
 
     @Override
     public Future<DataFrame> sendBinary(ByteBuffer byteBuffer, boolean b) throws IOException {
-        byte[] bytes = Utils.getRemainingArray(byteBuffer);
-        return this.socket.stream(b, bytes, 0, bytes.length);
+        return this.socket.stream(b, byteBuffer);
     }
 
     @Override
@@ -109,6 +132,26 @@ public class TyrusRemoteEndpoint extends RemoteEndpoint {
         socket.setWriteTimeout(timeoutMs);
     }
 
+    @Override
+    public Future<DataFrame> setBatchingAllowed(boolean allowed, int bufferSize, long lingerTimeMs) {
+        return socket.setBatchingAllowed(allowed, bufferSize, lingerTimeMs);
+    }
+
+    @Override
+    public boolean getBatchingAllowed() {
+        return socket.getBatchingAllowed();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return socket.isWritable();
+    }
+
+    @Override
+    public Future<DataFrame> flushBatch() {
+        return socket.flushBatch();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -123,4 +166,31 @@ public class TyrusRemoteEndpoint extends RemoteEndpoint {
     public int hashCode() {
         return socket.hashCode();
     }
+
+    /**
+     * Notifies {@link SendHandler} from the thread completing the write.
+     */
+    private static class SendHandlerAdapter extends Writer.CompletionHandler<DataFrame> {
+
+        private final SendHandler handler;
+
+        SendHandlerAdapter(SendHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void cancelled() {
+            handler.onResult(new SendResult(new IOException("Message sending was cancelled.")));
+        }
+
+        @Override
+        public void failed(Throwable throwable) {
+            handler.onResult(new SendResult(throwable));
+        }
+
+        @Override
+        public void completed(DataFrame result) {
+            handler.onResult(new SendResult());
+        }
+    }
 }
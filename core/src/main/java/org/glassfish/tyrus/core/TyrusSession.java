@@ -41,36 +41,34 @@ package org.glassfish.tyrus.core;
 
 
 import java.io.IOException;
-import java.io.Serializable;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.security.Principal;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
-import java.util.logging.Level;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.logging.Logger;
 
 import javax.websocket.CloseReason;
 import javax.websocket.Decoder;
+import javax.websocket.EncodeException;
 import javax.websocket.Extension;
 import javax.websocket.MessageHandler;
 import javax.websocket.PongMessage;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import javax.websocket.WebSocketContainer;
 
 import org.glassfish.tyrus.spi.RemoteEndpoint;
-import org.glassfish.tyrus.websockets.ExecutorServiceProvider;
 
 /**
  * Implementation of the {@link Session}.
@@ -94,7 +92,6 @@ public class TyrusSession implements Session {
     private final Map<String, String> pathParameters;
     private final Principal userPrincipal;
     private final Map<String, List<String>> requestParameterMap;
-    private final Object idleTimeoutLock = new Object();
     private final String id = UUID.randomUUID().toString();
     private final Map<String, Object> userProperties = new HashMap<String, Object>();
     private final MessageHandlerManager handlerManager;
@@ -102,13 +99,19 @@ public class TyrusSession implements Session {
     private final TextBuffer textBuffer = new TextBuffer();
     private final BinaryBuffer binaryBuffer = new BinaryBuffer();
 
+    /**
+     * Endpoint and coder instances coupled to this session, indexed by slots assigned by {@link TyrusEndpointWrapper}.
+     */
+    private final AtomicReferenceArray<Object> components;
+
     private String negotiatedSubprotocol;
     private List<Extension> negotiatedExtensions;
     private int maxBinaryMessageBufferSize = Integer.MAX_VALUE;
     private int maxTextMessageBufferSize = Integer.MAX_VALUE;
     private volatile long maxIdleTimeout = 0;
-    private ScheduledExecutorService service;
-    private ScheduledFuture<?> idleTimeoutFuture = null;
+    private volatile long lastActivity = System.currentTimeMillis();
+    private IdleTimeoutWheel idleTimeoutWheel;
+    private IdleTimeoutWheel.Entry idleTimeoutEntry = null;
     private ReaderBuffer readerBuffer;
     private InputStreamBuffer inputStreamBuffer;
 
@@ -127,13 +130,16 @@ public class TyrusSession implements Session {
         this.basicRemote = new RemoteEndpointWrapper.Basic(this, remoteEndpoint, tyrusEndpointWrapper);
         this.asyncRemote = new RemoteEndpointWrapper.Async(this, remoteEndpoint, tyrusEndpointWrapper);
         this.handlerManager = MessageHandlerManager.fromDecoderInstances(tyrusEndpointWrapper.getDecoders());
+        this.components = new AtomicReferenceArray<Object>(tyrusEndpointWrapper.getComponentSlotCount());
         this.userPrincipal = principal;
         this.requestParameterMap = requestParameterMap == null ? Collections.<String, List<String>>emptyMap() : Collections.unmodifiableMap(new HashMap<String, List<String>>(requestParameterMap));
 
         if (container != null) {
             maxTextMessageBufferSize = container.getDefaultMaxTextMessageBufferSize();
             maxBinaryMessageBufferSize = container.getDefaultMaxBinaryMessageBufferSize();
-            service = ((ExecutorServiceProvider) container).getScheduledExecutorService();
+        }
+        if (container instanceof IdleTimeoutWheelProvider) {
+            idleTimeoutWheel = ((IdleTimeoutWheelProvider) container).getIdleTimeoutWheel();
         }
     }
 
@@ -226,6 +232,47 @@ public class TyrusSession implements Session {
         this.negotiatedExtensions = Collections.unmodifiableList(new ArrayList<Extension>(negotiatedExtensions));
     }
 
+    /**
+     * Get instance coupled to this session.
+     *
+     * @param slot slot index.
+     * @return instance stored in the slot, {@code null} if there is none.
+     */
+    Object getComponent(int slot) {
+        return components.get(slot);
+    }
+
+    /**
+     * Store instance coupled to this session, unless the slot is already taken.
+     *
+     * @param slot      slot index.
+     * @param component instance to be stored.
+     * @return instance stored in the slot, which is not the given one when other thread stored its instance first.
+     */
+    Object putComponent(int slot, Object component) {
+        while (!components.compareAndSet(slot, null, component)) {
+            final Object stored = components.get(slot);
+            if (stored != null) {
+                return stored;
+            }
+        }
+        return component;
+    }
+
+    /**
+     * Remove instance coupled to this session.
+     *
+     * @param slot slot index.
+     * @return removed instance, {@code null} if the slot was empty.
+     */
+    Object removeComponent(int slot) {
+        return components.getAndSet(slot, null);
+    }
+
+    int getComponentSlotCount() {
+        return components.length();
+    }
+
     @Override
     public long getMaxIdleTimeout() {
         return maxIdleTimeout;
@@ -234,8 +281,18 @@ public class TyrusSession implements Session {
     @Override
     public void setMaxIdleTimeout(long maxIdleTimeout) {
         checkConnectionState(State.CLOSED);
-        this.maxIdleTimeout = maxIdleTimeout;
-        restartIdleTimeoutExecutor();
+        synchronized (this) {
+            this.maxIdleTimeout = maxIdleTimeout;
+            lastActivity = System.currentTimeMillis();
+
+            if (idleTimeoutEntry != null) {
+                idleTimeoutEntry.cancel();
+                idleTimeoutEntry = null;
+            }
+            if (maxIdleTimeout > 0 && idleTimeoutWheel != null) {
+                idleTimeoutEntry = idleTimeoutWheel.register(this);
+            }
+        }
     }
 
     @Override
@@ -307,18 +364,75 @@ public class TyrusSession implements Session {
         return userPrincipal;
     }
 
-    void restartIdleTimeoutExecutor() {
-        if (this.maxIdleTimeout < 1) {
+    /**
+     * Send message to all open sessions of the endpoint this session belongs to. The message is encoded
+     * and framed only once.
+     *
+     * @param message message to be sent, it is encoded the same way as in
+     *                {@link javax.websocket.RemoteEndpoint.Async#sendObject(Object, SendHandler)}.
+     * @param handler handler notified once the message is sent to all sessions; result is failed when the message
+     *                could not be sent to some of them.
+     */
+    public void broadcast(Object message, SendHandler handler) {
+        checkConnectionState(State.CLOSED);
+        if (handler == null) {
+            throw new IllegalArgumentException("SendHandler cannot be null.");
+        }
+
+        final Object toSend;
+        try {
+            toSend = basicRemote.encode(message);
+        } catch (EncodeException e) {
+            handler.onResult(new SendResult(e));
             return;
         }
 
-        synchronized (idleTimeoutLock) {
-            if (idleTimeoutFuture != null) {
-                idleTimeoutFuture.cancel(false);
+        if (toSend == null) {
+            handler.onResult(new SendResult(new EncodeException(message, "No encoder found for " + message.getClass().getName())));
+            return;
+        }
+
+        endpoint.broadcast(toSend, handler);
+    }
+
+    /**
+     * Send message to all open sessions of the endpoint this session belongs to. The message is encoded
+     * and framed only once.
+     *
+     * @param message message to be sent.
+     * @return future completed once the message is sent to all sessions; it fails when the message could not
+     *         be sent to some of them.
+     * @see #broadcast(Object, SendHandler)
+     */
+    public Future<Void> broadcast(Object message) {
+        final FutureSendResult result = new FutureSendResult();
+        broadcast(message, new SendHandler() {
+            @Override
+            public void onResult(SendResult sendResult) {
+                if (sendResult.isOK()) {
+                    result.setDone();
+                } else {
+                    result.setFailure(sendResult.getException());
+                }
             }
+        });
+        return result;
+    }
 
-            idleTimeoutFuture = service.schedule(new IdleTimeoutCommand(), this.getMaxIdleTimeout(), TimeUnit.MILLISECONDS);
-        }
+    /**
+     * Record session activity, which restarts the idle timeout.
+     */
+    void restartIdleTimeout() {
+        lastActivity = System.currentTimeMillis();
+    }
+
+    /**
+     * Get the time of the last session activity.
+     *
+     * @return time of the last activity in milliseconds.
+     */
+    long getLastActivity() {
+        return lastActivity;
     }
 
     private void checkConnectionState(State... states) {
@@ -349,11 +463,15 @@ public class TyrusSession implements Session {
             LOGGER.severe("No decoder found");
         }
 
-        for (CoderWrapper<Decoder> decoder : availableDecoders) {
-            for (MessageHandler mh : this.getOrderedMessageHandlers()) {
-                Class<?> type;
-                if ((mh instanceof MessageHandler.Whole)
-                        && (type = MessageHandlerManager.getHandlerType(mh)).isAssignableFrom(decoder.getType())) {
+        final MessageHandlerManager.DispatchTable dispatchTable = handlerManager.getDispatchTable();
+
+        for (int i = 0; i < availableDecoders.size(); i++) {
+            final CoderWrapper<Decoder> decoder = availableDecoders.get(i);
+
+            for (int j = 0; j < dispatchTable.wholeHandlers.length; j++) {
+                final Class<?> type = dispatchTable.wholeTypes[j];
+                if (type.isAssignableFrom(decoder.getType())) {
+                    final MessageHandler.Whole mh = dispatchTable.wholeHandlers[j];
 
                     if (mh instanceof BasicMessageHandler) {
                         checkMessageSize(message, ((BasicMessageHandler) mh).getMaxMessageSize());
@@ -362,7 +480,7 @@ public class TyrusSession implements Session {
                     Object object = endpoint.decodeCompleteMessage(this, message, type, decoder);
                     if (object != null) {
                         //noinspection unchecked
-                        ((MessageHandler.Whole) mh).onMessage(object);
+                        mh.onMessage(object);
                         decoded = true;
                         break;
                     }
@@ -375,9 +493,11 @@ public class TyrusSession implements Session {
     }
 
     <T> MessageHandler.Whole<T> getMessageHandler(Class<T> c) {
-        for (MessageHandler mh : this.getOrderedMessageHandlers()) {
-            if (MessageHandlerManager.getHandlerType(mh) == c) {
-                return (MessageHandler.Whole<T>) mh;
+        final MessageHandlerManager.DispatchTable dispatchTable = handlerManager.getDispatchTable();
+
+        for (int i = 0; i < dispatchTable.wholeHandlers.length; i++) {
+            if (dispatchTable.wholeTypes[i] == c) {
+                return (MessageHandler.Whole<T>) dispatchTable.wholeHandlers[i];
             }
         }
 
@@ -387,17 +507,18 @@ public class TyrusSession implements Session {
     void notifyMessageHandlers(Object message, boolean last) {
         checkConnectionState(State.CLOSED);
         boolean handled = false;
+        final MessageHandlerManager.DispatchTable dispatchTable = handlerManager.getDispatchTable();
 
-        for (MessageHandler handler : this.getMessageHandlers()) {
-            if ((handler instanceof MessageHandler.Partial) &&
-                    MessageHandlerManager.getHandlerType(handler).isAssignableFrom(message.getClass())) {
+        for (int i = 0; i < dispatchTable.partialHandlers.length; i++) {
+            final MessageHandler.Partial handler = dispatchTable.partialHandlers[i];
+            if (dispatchTable.partialTypes[i].isAssignableFrom(message.getClass())) {
 
                 if (handler instanceof AsyncMessageHandler) {
                     checkMessageSize(message, ((AsyncMessageHandler) handler).getMaxMessageSize());
                 }
 
                 //noinspection unchecked
-                ((MessageHandler.Partial) handler).onMessage(message, last);
+                handler.onMessage(message, last);
                 handled = true;
                 break;
             }
@@ -413,11 +534,9 @@ public class TyrusSession implements Session {
     }
 
     void notifyPongHandler(PongMessage pongMessage) {
-        final Set<MessageHandler> messageHandlers = this.getMessageHandlers();
-        for (MessageHandler handler : messageHandlers) {
-            if (MessageHandlerManager.getHandlerType(handler).equals(PongMessage.class)) {
-                ((MessageHandler.Whole<PongMessage>) handler).onMessage(pongMessage);
-            }
+        final MessageHandler.Whole<PongMessage> handler = handlerManager.getDispatchTable().pongHandler;
+        if (handler != null) {
+            handler.onMessage(pongMessage);
         }
     }
 
@@ -449,16 +568,6 @@ public class TyrusSession implements Session {
         return handlerManager.isPongHandlerPresent();
     }
 
-    private List<MessageHandler> getOrderedMessageHandlers() {
-        Set<MessageHandler> handlers = this.getMessageHandlers();
-        ArrayList<MessageHandler> result = new ArrayList<MessageHandler>();
-
-        result.addAll(handlers);
-        Collections.sort(result, new MessageHandlerComparator());
-
-        return result;
-    }
-
     State getState() {
         return state.get();
     }
@@ -544,45 +653,4 @@ public class TyrusSession implements Session {
          */
         CLOSED
     }
-
-    private static class MessageHandlerComparator implements Comparator<MessageHandler>, Serializable {
-
-        @Override
-        public int compare(MessageHandler o1, MessageHandler o2) {
-            if (o1 instanceof MessageHandler.Whole) {
-                if (o2 instanceof MessageHandler.Whole) {
-                    Class<?> type1 = MessageHandlerManager.getHandlerType(o1);
-                    Class<?> type2 = MessageHandlerManager.getHandlerType(o2);
-
-                    if (type1.isAssignableFrom(type2)) {
-                        return 1;
-                    } else if (type2.isAssignableFrom(type1)) {
-                        return -1;
-                    } else {
-                        return 0;
-                    }
-                } else {
-                    return 1;
-                }
-            } else if (o2 instanceof MessageHandler.Whole) {
-                return 1;
-            }
-            return 0;
-        }
-    }
-
-    private class IdleTimeoutCommand implements Runnable {
-
-        @Override
-        public void run() {
-            try {
-                TyrusSession session = TyrusSession.this;
-                if (session.isOpen()) {
-                    session.close(new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "Session closed by the container because of the idle timeout."));
-                }
-            } catch (IOException e) {
-                LOGGER.log(Level.FINE, "Session could not been closed. " + e.getMessage());
-            }
-        }
-    }
 }
@@ -40,6 +40,7 @@
 
 package org.glassfish.tyrus.core;
 
+import java.nio.ByteBuffer;
 import java.util.EnumSet;
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
@@ -47,8 +48,10 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
+import org.glassfish.tyrus.spi.Writer;
 import org.glassfish.tyrus.websockets.ClosingDataFrame;
 import org.glassfish.tyrus.websockets.DataFrame;
+import org.glassfish.tyrus.websockets.PreparedFrame;
 import org.glassfish.tyrus.websockets.ProtocolHandler;
 import org.glassfish.tyrus.websockets.WebSocket;
 import org.glassfish.tyrus.websockets.WebSocketListener;
@@ -98,6 +101,28 @@ public class TyrusWebSocket implements WebSocket {
         protocolHandler.setWriteTimeout(timeoutMs);
     }
 
+    @Override
+    public Future<DataFrame> setBatchingAllowed(boolean allowed, int bufferSize, long lingerTimeMs) {
+        protocolHandler.setBatchBufferSize(bufferSize);
+        protocolHandler.setBatchLingerTime(lingerTimeMs);
+        return protocolHandler.setBatchingAllowed(allowed);
+    }
+
+    @Override
+    public boolean getBatchingAllowed() {
+        return protocolHandler.getBatchingAllowed();
+    }
+
+    @Override
+    public boolean isWritable() {
+        return protocolHandler.isWritable();
+    }
+
+    @Override
+    public Future<DataFrame> flushBatch() {
+        return protocolHandler.flushBatch();
+    }
+
     @Override
     public boolean isConnected() {
         return connected.contains(state.get());
@@ -202,6 +227,42 @@ public class TyrusWebSocket implements WebSocket {
         }
     }
 
+    @Override
+    public Future<DataFrame> send(ByteBuffer data) {
+        if (isConnected()) {
+            return protocolHandler.send(data);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
+    @Override
+    public void send(String data, Writer.CompletionHandler<DataFrame> completionHandler) {
+        if (isConnected()) {
+            protocolHandler.send(data, completionHandler);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
+    @Override
+    public void send(ByteBuffer data, Writer.CompletionHandler<DataFrame> completionHandler) {
+        if (isConnected()) {
+            protocolHandler.send(data, completionHandler);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
+    @Override
+    public void send(PreparedFrame frame, Writer.CompletionHandler<DataFrame> completionHandler) {
+        if (isConnected()) {
+            protocolHandler.send(frame, completionHandler);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
+
     @Override
     public Future<DataFrame> send(String data) {
         if (isConnected()) {
@@ -255,4 +316,13 @@ public class TyrusWebSocket implements WebSocket {
             throw new RuntimeException("Socket is not connected.");
         }
     }
+
+    @Override
+    public Future<DataFrame> stream(boolean last, ByteBuffer fragment) {
+        if (isConnected()) {
+            return protocolHandler.stream(last, fragment);
+        } else {
+            throw new RuntimeException("Socket is not connected.");
+        }
+    }
 }
@@ -45,40 +45,117 @@ import java.io.Writer;
 import org.glassfish.tyrus.spi.RemoteEndpoint;
 
 /**
- * Simple Writer that writes its data to
- * an async sink.
+ * {@link Writer} which sends its data to an async sink as fragments of one text message.
+ * <p/>
+ * Written characters are collected in a buffer which is sent as a fragment when it gets full or when the writer is
+ * flushed. Closing the writer sends the last fragment.
  *
  * @author Danny Coward (danny.coward at oracle.com)
  */
 public class WriterToAsyncTextAdapter extends Writer {
     private final RemoteEndpoint re;
-    private String buffer = null;
+    private final char[] buffer;
+    private int count = 0;
+    private boolean closed = false;
 
     public WriterToAsyncTextAdapter(RemoteEndpoint re) {
-        this.re = re;
+        this(re, RemoteEndpointWrapper.DEFAULT_STREAM_BUFFER_SIZE);
     }
 
-    private void sendBuffer(boolean last) throws IOException {
-        re.sendText(buffer, last);
+    /**
+     * Create new adapter.
+     *
+     * @param re         sink the fragments are sent to.
+     * @param bufferSize size of the fragment buffer in characters.
+     */
+    public WriterToAsyncTextAdapter(RemoteEndpoint re, int bufferSize) {
+        this.re = re;
+        // room for a surrogate pair, which is never split between fragments
+        this.buffer = new char[Math.max(bufferSize, 2)];
     }
 
     @Override
     public void write(char[] chars, int index, int len) throws IOException {
-        if (buffer != null) {
-            this.sendBuffer(false);
+        checkClosed();
+
+        while (len > 0) {
+            final int n = Math.min(len, buffer.length - count);
+            System.arraycopy(chars, index, buffer, count, n);
+            count += n;
+            index += n;
+            len -= n;
+
+            if (count == buffer.length) {
+                sendBuffer(false);
+            }
+        }
+    }
+
+    @Override
+    public void write(String str, int off, int len) throws IOException {
+        checkClosed();
+
+        while (len > 0) {
+            final int n = Math.min(len, buffer.length - count);
+            str.getChars(off, off + n, buffer, count);
+            count += n;
+            off += n;
+            len -= n;
+
+            if (count == buffer.length) {
+                sendBuffer(false);
+            }
         }
-        buffer = (new String(chars)).substring(index, index + len);
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        checkClosed();
 
+        buffer[count++] = (char) c;
+        if (count == buffer.length) {
+            sendBuffer(false);
+        }
     }
 
     @Override
     public void flush() throws IOException {
-        this.sendBuffer(false);
-        buffer = null;
+        if (!closed && count > 0) {
+            sendBuffer(false);
+        }
     }
 
     @Override
     public void close() throws IOException {
-        this.sendBuffer(true);
+        if (!closed) {
+            closed = true;
+            sendBuffer(true);
+        }
+    }
+
+    private void sendBuffer(boolean last) throws IOException {
+        int length = count;
+
+        // fragments are encoded separately, keep a high surrogate for the next one
+        if (!last && Character.isHighSurrogate(buffer[length - 1])) {
+            length--;
+            if (length == 0) {
+                return;
+            }
+        }
+
+        final String fragment = new String(buffer, 0, length);
+        count -= length;
+        if (count > 0) {
+            buffer[0] = buffer[length];
+        }
+
+        RemoteEndpointWrapper.Basic.awaitSent(re.sendText(fragment, last));
+    }
+
+    private void checkClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Writer is closed.");
+        }
     }
 }
@@ -0,0 +1,191 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.core;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.Decoder;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Session;
+
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests instances of coders provided by {@link ComponentProviderService} for a session.
+ */
+public class ComponentProviderServiceTest {
+
+    private static final int SLOT = TyrusEndpointWrapper.ENDPOINT_SLOT + 1;
+
+    private static final List<TestDecoder> created = new CopyOnWriteArrayList<TestDecoder>();
+    private static final List<TestDecoder> destroyed = new CopyOnWriteArrayList<TestDecoder>();
+    private static volatile CyclicBarrier initBarrier;
+
+    private final ComponentProviderService componentProvider = ComponentProviderService.create();
+    private final ErrorCollector collector = new ErrorCollector();
+    private final ClientEndpointConfig config = ClientEndpointConfig.Builder.create()
+            .decoders(Arrays.<Class<? extends Decoder>>asList(TestDecoder.class)).build();
+
+    @Before
+    public void before() {
+        created.clear();
+        destroyed.clear();
+        initBarrier = null;
+    }
+
+    @Test
+    public void instanceIsStored() {
+        final TyrusSession session = createSession();
+
+        final TestDecoder decoder = componentProvider.getCoderInstance(TestDecoder.class, session, SLOT, config, collector);
+        assertSame(decoder, componentProvider.getCoderInstance(TestDecoder.class, session, SLOT, config, collector));
+        assertEquals(1, created.size());
+        assertTrue(destroyed.isEmpty());
+        assertTrue(collector.isEmpty());
+    }
+
+    @Test
+    public void concurrentlyCreatedInstanceIsDestroyed() throws Exception {
+        final TyrusSession session = createSession();
+        // both threads find the slot empty and create their instance before any of them stores it
+        initBarrier = new CyclicBarrier(2);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final Callable<TestDecoder> task = new Callable<TestDecoder>() {
+                @Override
+                public TestDecoder call() {
+                    return componentProvider.getCoderInstance(TestDecoder.class, session, SLOT, config, collector);
+                }
+            };
+            final Future<TestDecoder> first = executor.submit(task);
+            final Future<TestDecoder> second = executor.submit(task);
+
+            final TestDecoder winner = first.get(5, TimeUnit.SECONDS);
+            assertSame(winner, second.get(5, TimeUnit.SECONDS));
+
+            assertEquals(2, created.size());
+            assertEquals(1, destroyed.size());
+            assertNotSame(winner, destroyed.get(0));
+            assertTrue(created.contains(destroyed.get(0)));
+            assertSame(winner, componentProvider.getCoderInstance(TestDecoder.class, session, SLOT, config, collector));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void removeSessionDestroysInstances() {
+        final TyrusSession session = createSession();
+
+        final TestDecoder decoder = componentProvider.getCoderInstance(TestDecoder.class, session, SLOT, config, collector);
+        componentProvider.removeSession(session);
+
+        assertEquals(1, destroyed.size());
+        assertSame(decoder, destroyed.get(0));
+        assertNull(session.getComponent(SLOT));
+
+        // nothing is destroyed twice
+        componentProvider.removeSession(session);
+        assertEquals(1, destroyed.size());
+    }
+
+    private TyrusSession createSession() {
+        final TyrusEndpointWrapper ew = new TyrusEndpointWrapper(TestEndpoint.class, config, componentProvider, null,
+                "/", collector, null);
+        return new TyrusSession(null, new TyrusSessionTest.TestRemoteEndpoint(), ew, null, null, false, null, null,
+                null, null, new HashMap<String, List<String>>());
+    }
+
+    public static class TestEndpoint extends Endpoint {
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+        }
+    }
+
+    public static class TestDecoder implements Decoder.Text<String> {
+
+        @Override
+        public void init(EndpointConfig config) {
+            created.add(this);
+            final CyclicBarrier barrier = initBarrier;
+            if (barrier != null) {
+                try {
+                    barrier.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        }
+
+        @Override
+        public void destroy() {
+            destroyed.add(this);
+        }
+
+        @Override
+        public String decode(String s) {
+            return s;
+        }
+
+        @Override
+        public boolean willDecode(String s) {
+            return true;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.core;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests reading of partial messages through {@link BufferedInputStream} and {@link BufferedStringReader}.
+ */
+public class FragmentQueueTest {
+
+    @Test
+    public void testInputStreamBulkRead() throws IOException {
+        final FragmentQueue<ByteBuffer> fragments = new FragmentQueue<ByteBuffer>();
+        final InputStream inputStream = new BufferedInputStream(fragments);
+
+        fragments.add(ByteBuffer.wrap(new byte[]{1, 2, 3}), false);
+        fragments.add(ByteBuffer.wrap(new byte[]{}), false);
+        fragments.add(ByteBuffer.wrap(new byte[]{(byte) 0xff, 5}), true);
+
+        final byte[] read = new byte[8];
+        assertEquals("Read does not cross fragments.", 3, inputStream.read(read, 0, 8));
+        assertEquals(0, inputStream.available());
+        assertEquals("Byte 0xff is not the end of the stream.", 0xff, inputStream.read());
+        assertEquals(1, inputStream.available());
+        assertEquals(1, inputStream.read(read, 3, 5));
+        assertEquals(-1, inputStream.read(read, 0, 8));
+        assertEquals(-1, inputStream.read());
+
+        assertArrayEquals(new byte[]{1, 2, 3, 5}, new byte[]{read[0], read[1], read[2], read[3]});
+    }
+
+    @Test
+    public void testReaderWaitsForNextFragment() throws Exception {
+        final FragmentQueue<String> fragments = new FragmentQueue<String>();
+        final Reader reader = new BufferedStringReader(fragments);
+        final AtomicReference<String> result = new AtomicReference<String>();
+        final CountDownLatch readLatch = new CountDownLatch(1);
+
+        fragments.add("Do or do not. ", false);
+
+        final Thread consumer = new Thread() {
+            @Override
+            public void run() {
+                final StringBuilder sb = new StringBuilder();
+                final char[] buffer = new char[5];
+                int read;
+
+                try {
+                    while ((read = reader.read(buffer, 0, buffer.length)) != -1) {
+                        sb.append(buffer, 0, read);
+                    }
+                } catch (IOException e) {
+                    sb.append(e);
+                }
+
+                result.set(sb.toString());
+                readLatch.countDown();
+            }
+        };
+        consumer.start();
+
+        fragments.add("There is ", false);
+        fragments.add("no try.", true);
+
+        assertTrue(readLatch.await(5, TimeUnit.SECONDS));
+        assertEquals("Do or do not. There is no try.", result.get());
+    }
+
+    @Test
+    public void testEndAndClose() throws IOException {
+        final FragmentQueue<String> fragments = new FragmentQueue<String>();
+        final Reader reader = new BufferedStringReader(fragments);
+
+        fragments.add("abc", false);
+        fragments.end();
+
+        assertEquals('a', reader.read());
+        reader.close();
+        assertEquals("Closed reader returns end of the message.", -1, reader.read());
+
+        fragments.add("dropped", true);
+        assertEquals(null, fragments.take());
+    }
+}
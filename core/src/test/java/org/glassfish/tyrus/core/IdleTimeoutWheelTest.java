@@ -0,0 +1,143 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.core;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import javax.websocket.OnMessage;
+import javax.websocket.server.ServerEndpoint;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests closing of idle sessions by {@link IdleTimeoutWheel}.
+ */
+public class IdleTimeoutWheelTest {
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final IdleTimeoutWheel wheel = new IdleTimeoutWheel(executor);
+    private final TyrusEndpointWrapper ew = new TyrusEndpointWrapper(EchoEndpoint.class, null, null, null, null, null, null);
+
+    @After
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testIdleSessionIsClosed() throws InterruptedException {
+        final TyrusSession session = createSession(100);
+        wheel.register(session);
+        assertTrue(wheel.isSweeping());
+
+        assertTrue("Idle session is closed.", waitForClose(session));
+        assertTrue("Sweep stops when no session is tracked.", waitForSweepStop());
+    }
+
+    @Test
+    public void testActivityPostponesTimeout() throws InterruptedException {
+        final TyrusSession session = createSession(300);
+        wheel.register(session);
+
+        final long end = System.currentTimeMillis() + 900;
+        while (System.currentTimeMillis() < end) {
+            session.restartIdleTimeout();
+            Thread.sleep(20);
+        }
+        assertTrue("Active session is not closed.", session.isOpen());
+
+        assertTrue(waitForClose(session));
+    }
+
+    @Test
+    public void testCancelledEntryStopsSweep() throws InterruptedException {
+        final TyrusSession session = createSession(200);
+        wheel.register(session).cancel();
+
+        assertTrue(waitForSweepStop());
+        assertTrue("Cancelled session is not closed.", session.isOpen());
+    }
+
+    @Test
+    public void testStop() {
+        final TyrusSession session = createSession(60000);
+        wheel.register(session);
+        assertTrue(wheel.isSweeping());
+
+        wheel.stop();
+        assertFalse(wheel.isSweeping());
+        assertTrue(session.isOpen());
+    }
+
+    private TyrusSession createSession(long maxIdleTimeout) {
+        final TyrusSession session = new TyrusSession(null, new TyrusSessionTest.TestRemoteEndpoint(), ew, null, null, false, null, null, null, null, new HashMap<String, List<String>>());
+        session.setMaxIdleTimeout(maxIdleTimeout);
+        return session;
+    }
+
+    private static boolean waitForClose(TyrusSession session) throws InterruptedException {
+        for (int i = 0; i < 500 && session.isOpen(); i++) {
+            Thread.sleep(10);
+        }
+        return !session.isOpen();
+    }
+
+    private boolean waitForSweepStop() throws InterruptedException {
+        for (int i = 0; i < 500 && wheel.isSweeping(); i++) {
+            Thread.sleep(10);
+        }
+        return !wheel.isSweeping();
+    }
+
+    @ServerEndpoint(value = "/echo")
+    private static class EchoEndpoint {
+
+        @OnMessage
+        public String doThat(String message) {
+            return message;
+        }
+    }
+}
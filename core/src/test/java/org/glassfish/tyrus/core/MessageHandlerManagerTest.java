@@ -51,7 +51,10 @@ import javax.websocket.MessageHandler;
 import javax.websocket.PongMessage;
 
 import org.junit.Test;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 /**
@@ -82,6 +85,47 @@ public class MessageHandlerManagerTest {
         });
     }
 
+    @Test
+    public void dispatchTable() {
+        MessageHandlerManager messageHandlerManager = new MessageHandlerManager();
+        assertEquals(0, messageHandlerManager.getDispatchTable().wholeHandlers.length);
+
+        final MessageHandler.Whole<String> textHandler = new MessageHandler.Whole<String>() {
+            @Override
+            public void onMessage(String message) {
+            }
+        };
+        final MessageHandler.Partial<ByteBuffer> binaryHandler = new MessageHandler.Partial<ByteBuffer>() {
+            @Override
+            public void onMessage(ByteBuffer partialMessage, boolean last) {
+            }
+        };
+        final MessageHandler.Whole<PongMessage> pongHandler = new MessageHandler.Whole<PongMessage>() {
+            @Override
+            public void onMessage(PongMessage message) {
+            }
+        };
+
+        messageHandlerManager.addMessageHandler(textHandler);
+        messageHandlerManager.addMessageHandler(binaryHandler);
+        messageHandlerManager.addMessageHandler(pongHandler);
+
+        MessageHandlerManager.DispatchTable dispatchTable = messageHandlerManager.getDispatchTable();
+        assertEquals(2, dispatchTable.wholeHandlers.length);
+        assertEquals(1, dispatchTable.partialHandlers.length);
+        assertSame(binaryHandler, dispatchTable.partialHandlers[0]);
+        assertSame(ByteBuffer.class, dispatchTable.partialTypes[0]);
+        assertSame(pongHandler, dispatchTable.pongHandler);
+
+        messageHandlerManager.removeMessageHandler(pongHandler);
+
+        dispatchTable = messageHandlerManager.getDispatchTable();
+        assertEquals(1, dispatchTable.wholeHandlers.length);
+        assertSame(textHandler, dispatchTable.wholeHandlers[0]);
+        assertSame(String.class, dispatchTable.wholeTypes[0]);
+        assertNull(dispatchTable.pongHandler);
+    }
+
     @Test(expected = IllegalStateException.class)
     public void multipleTextHandlers() {
         MessageHandlerManager messageHandlerManager = new MessageHandlerManager();
@@ -47,12 +47,18 @@ import java.io.Writer;
 import java.net.URI;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import javax.websocket.ClientEndpointConfig;
 import javax.websocket.CloseReason;
@@ -60,11 +66,16 @@ import javax.websocket.DeploymentException;
 import javax.websocket.Endpoint;
 import javax.websocket.Extension;
 import javax.websocket.OnMessage;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 
+import org.glassfish.tyrus.spi.AbstractWriter;
 import org.glassfish.tyrus.spi.RemoteEndpoint;
 import org.glassfish.tyrus.websockets.DataFrame;
+import org.glassfish.tyrus.websockets.ProtocolHandler;
+import org.glassfish.tyrus.websockets.TyrusWebSocketEngine;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -111,9 +122,9 @@ public class RemoteEndpointWrapperTest {
         OutputStream stream = rew.getSendStream();
 
         stream.write(sentBytesComplete);
-        Assert.assertEquals(6, tre.getLastSentMessageSize());
-        stream.close();
         Assert.assertEquals(0, tre.getLastSentMessageSize());
+        stream.close();
+        Assert.assertEquals(6, tre.getLastSentMessageSize());
 
         Assert.assertArrayEquals("Writing byte[] to stream and flushing.", sentBytesComplete, tre.getBytesAndClearBuffer());
     }
@@ -127,11 +138,11 @@ public class RemoteEndpointWrapperTest {
         OutputStream stream = rew.getSendStream();
 
         stream.write(sentBytes);
-        Assert.assertEquals(3, tre.getLastSentMessageSize());
+        Assert.assertEquals(0, tre.getLastSentMessageSize());
         stream.write(sentBytes);
-        Assert.assertEquals(3, tre.getLastSentMessageSize());
-        stream.close();
         Assert.assertEquals(0, tre.getLastSentMessageSize());
+        stream.close();
+        Assert.assertEquals(6, tre.getLastSentMessageSize());
 
         Assert.assertArrayEquals("Writing byte[] to stream and flushing.", sentBytesComplete, tre.getBytesAndClearBuffer());
     }
@@ -160,12 +171,175 @@ public class RemoteEndpointWrapperTest {
         Assert.assertEquals("Writing first character.", String.valueOf(toSend[2]), tre.getStringAndCleanBuilder());
     }
 
+    @Test
+    public void testGetSendStreamFragments() throws IOException {
+        ew.getEndpointConfig().getUserProperties().put(RemoteEndpointWrapper.STREAM_BUFFER_SIZE, 4);
+
+        try {
+            TestRemoteEndpoint tre = new TestRemoteEndpoint();
+            TyrusSession testSession = new TyrusSession(null, tre, ew, null, null, true, null, null, Collections.<String, String>emptyMap(), null, new HashMap<String, List<String>>());
+            RemoteEndpointWrapper.Basic rew = new RemoteEndpointWrapper.Basic(testSession, tre, ew);
+            OutputStream stream = rew.getSendStream();
+
+            for (byte b : sentBytesComplete) {
+                stream.write(b);
+            }
+            Assert.assertEquals("Full buffer is sent.", 1, tre.getFragmentCount());
+            Assert.assertEquals(4, tre.getLastSentMessageSize());
+
+            stream.write(sentBytesComplete);
+            Assert.assertEquals("Buffered data is sent first, then the rest without copying.", 3, tre.getFragmentCount());
+            Assert.assertEquals(4, tre.getLastSentMessageSize());
+
+            stream.close();
+            Assert.assertEquals(4, tre.getFragmentCount());
+            Assert.assertTrue(tre.isLastSent());
+
+            Assert.assertArrayEquals(new byte[]{'a', 'b', 'c', 'a', 'b', 'c', 'a', 'b', 'c', 'a', 'b', 'c'}, tre.getBytesAndClearBuffer());
+        } finally {
+            ew.getEndpointConfig().getUserProperties().remove(RemoteEndpointWrapper.STREAM_BUFFER_SIZE);
+        }
+    }
+
+    @Test
+    public void testGetSendWriterFragments() throws IOException {
+        ew.getEndpointConfig().getUserProperties().put(RemoteEndpointWrapper.STREAM_BUFFER_SIZE, "4");
+
+        try {
+            // G clef, a supplementary character, is written as a surrogate pair
+            final String sentString = "abc\uD834\uDD1Edefgh";
+
+            TestRemoteEndpoint tre = new TestRemoteEndpoint();
+            TyrusSession testSession = new TyrusSession(null, tre, ew, null, null, true, null, null, Collections.<String, String>emptyMap(), null, new HashMap<String, List<String>>());
+            RemoteEndpointWrapper.Basic rew = new RemoteEndpointWrapper.Basic(testSession, tre, ew);
+            Writer writer = rew.getSendWriter();
+
+            writer.write(sentString);
+            writer.close();
+
+            Assert.assertEquals(Arrays.asList("abc", "\uD834\uDD1Ede", "fgh"), tre.getFragments());
+            Assert.assertTrue(tre.isLastSent());
+            Assert.assertEquals(sentString, tre.getStringAndCleanBuilder());
+        } finally {
+            ew.getEndpointConfig().getUserProperties().remove(RemoteEndpointWrapper.STREAM_BUFFER_SIZE);
+        }
+    }
+
+    @Test
+    public void testAsyncSendCompletedByWriter() {
+        final PendingWriter writer = new PendingWriter();
+        final RemoteEndpointWrapper.Async async = createAsync(writer);
+        final AtomicReference<SendResult> result = new AtomicReference<SendResult>();
+
+        async.sendText("abc", new SendHandler() {
+            @Override
+            public void onResult(SendResult sendResult) {
+                result.set(sendResult);
+            }
+        });
+
+        Assert.assertNull("Handler is notified when the frame is written.", result.get());
+        writer.complete();
+        Assert.assertTrue(result.get().isOK());
+    }
+
+    @Test
+    public void testAsyncSendTimeout() throws InterruptedException {
+        final PendingWriter writer = new PendingWriter();
+        final RemoteEndpointWrapper.Async async = createAsync(writer);
+        final AtomicReference<SendResult> result = new AtomicReference<SendResult>();
+        final AtomicInteger results = new AtomicInteger();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        async.setSendTimeout(500);
+        async.sendText("abc", new SendHandler() {
+            @Override
+            public void onResult(SendResult sendResult) {
+                result.set(sendResult);
+                results.incrementAndGet();
+                latch.countDown();
+            }
+        });
+
+        Assert.assertNull("Sending does not wait for the timeout.", result.get());
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse(result.get().isOK());
+        Assert.assertTrue(result.get().getException() instanceof TimeoutException);
+
+        writer.complete();
+        Assert.assertEquals("Late write completion is not reported.", 1, results.get());
+    }
+
+    @Test
+    public void testDefaultAsyncSend() {
+        final AtomicReference<SendResult> result = new AtomicReference<SendResult>();
+        final SendHandler handler = new SendHandler() {
+            @Override
+            public void onResult(SendResult sendResult) {
+                result.set(sendResult);
+            }
+        };
+
+        new TestRemoteEndpoint().sendText("abc", handler);
+        Assert.assertTrue(result.get().isOK());
+
+        final IOException failure = new IOException("Write failed.");
+        new TestRemoteEndpoint() {
+            @Override
+            public Future<DataFrame> sendBinary(ByteBuffer data) throws IOException {
+                throw failure;
+            }
+        }.sendBinary(ByteBuffer.wrap(new byte[]{1}), handler);
+        Assert.assertSame(failure, result.get().getException());
+    }
+
+    private RemoteEndpointWrapper.Async createAsync(AbstractWriter writer) {
+        final ProtocolHandler protocolHandler = TyrusWebSocketEngine.DEFAULT_VERSION.createHandler(false);
+        protocolHandler.setWriter(writer);
+        final TyrusWebSocket socket = new TyrusWebSocket(protocolHandler);
+        socket.onConnect();
+
+        final TyrusRemoteEndpoint remoteEndpoint = new TyrusRemoteEndpoint(socket);
+        final TyrusSession session = new TyrusSession(null, remoteEndpoint, ew, null, null, true, null, null, Collections.<String, String>emptyMap(), null, new HashMap<String, List<String>>());
+        return new RemoteEndpointWrapper.Async(session, remoteEndpoint, ew);
+    }
+
+    /**
+     * Writer which completes writes only when asked to.
+     */
+    private static class PendingWriter extends AbstractWriter {
+
+        private CompletionHandler<ByteBuffer[]> pending;
+        private ByteBuffer[] buffers;
+
+        @Override
+        public void write(byte[] bytes, CompletionHandler<byte[]> completionHandler) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void write(ByteBuffer[] buffers, CompletionHandler<ByteBuffer[]> completionHandler) {
+            this.buffers = buffers;
+            this.pending = completionHandler;
+        }
+
+        void complete() {
+            pending.completed(buffers);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 
     private class TestRemoteEndpoint extends RemoteEndpoint {
 
         private final ArrayList<Byte> bytesToSend = new ArrayList<Byte>();
         StringBuilder builder = new StringBuilder();
+        private final List<String> fragments = new ArrayList<String>();
         private int lastSentMessageSize;
+        private int fragmentCount;
+        private boolean lastSent;
 
         @Override
         public Future<DataFrame> sendText(String text) throws IOException {
@@ -180,15 +354,18 @@ public class RemoteEndpointWrapperTest {
         @Override
         public Future<DataFrame> sendText(String fragment, boolean isLast) throws IOException {
             builder.append(fragment);
+            fragments.add(fragment);
+            lastSent = isLast;
             return null;
         }
 
         @Override
         public Future<DataFrame> sendBinary(ByteBuffer partialByte, boolean isLast) throws IOException {
-            byte[] bytes = partialByte.array();
-            lastSentMessageSize = bytes.length;
-            for (byte b : bytes) {
-                bytesToSend.add(b);
+            lastSentMessageSize = partialByte.remaining();
+            fragmentCount++;
+            lastSent = isLast;
+            while (partialByte.hasRemaining()) {
+                bytesToSend.add(partialByte.get());
             }
             return null;
         }
@@ -233,6 +410,18 @@ public class RemoteEndpointWrapperTest {
         private int getLastSentMessageSize() {
             return lastSentMessageSize;
         }
+
+        private int getFragmentCount() {
+            return fragmentCount;
+        }
+
+        private List<String> getFragments() {
+            return fragments;
+        }
+
+        private boolean isLastSent() {
+            return lastSent;
+        }
     }
 
     @ServerEndpoint(value = "/echo")
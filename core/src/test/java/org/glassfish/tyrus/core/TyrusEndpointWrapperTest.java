@@ -0,0 +1,169 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.core;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.DecodeException;
+import javax.websocket.Decoder;
+import javax.websocket.EncodeException;
+import javax.websocket.Encoder;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Session;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests selection of encoders and decoders in {@link TyrusEndpointWrapper}.
+ */
+public class TyrusEndpointWrapperTest {
+
+    @Test
+    public void encoderForSubclass() throws EncodeException {
+        final TyrusEndpointWrapper ew = createWrapper(Arrays.<Class<? extends Encoder>>asList(DogEncoder.class, AnimalEncoder.class),
+                null);
+        final TyrusSession session = createSession(ew);
+
+        // supertype is resolved first, the subclass must not get the cached encoder of its supertype
+        assertEquals("animal", ew.doEncode(session, new Animal()));
+        assertEquals("dog", ew.doEncode(session, new Dog()));
+        assertEquals("animal", ew.doEncode(session, new Cat()));
+
+        assertSame(DogEncoder.class, ew.findEncoder(Dog.class).getCoderClass());
+        assertSame(AnimalEncoder.class, ew.findEncoder(Cat.class).getCoderClass());
+        assertSame(ew.findEncoder(Cat.class), ew.findEncoder(Cat.class));
+        assertSame(ToStringEncoder.class, ew.findEncoder(Integer.class).getCoderClass());
+    }
+
+    @Test
+    public void textAndTextStreamDecoder() {
+        final TyrusEndpointWrapper ew = createWrapper(null,
+                Arrays.<Class<? extends Decoder>>asList(TextAndTextStreamDecoder.class));
+        final TyrusSession session = createSession(ew);
+
+        // the decoder is used as Decoder.Text, so willDecode is consulted
+        List<CoderWrapper<Decoder>> decoders = ew.findApplicableDecoders(session, "dog", true);
+        assertSame(TextAndTextStreamDecoder.class, decoders.get(0).getCoderClass());
+        assertEquals(Animal.class, decoders.get(0).getType());
+
+        final Object decoded = ew.decodeCompleteMessage(session, "dog", Animal.class, decoders.get(0));
+        assertTrue(decoded instanceof Dog);
+
+        decoders = ew.findApplicableDecoders(session, "unknown", true);
+        for (CoderWrapper<Decoder> decoder : decoders) {
+            assertFalse(TextAndTextStreamDecoder.class.equals(decoder.getCoderClass()));
+        }
+
+        // not applicable to binary messages
+        for (CoderWrapper<Decoder> decoder : ew.findApplicableDecoders(session, ByteBuffer.allocate(1), false)) {
+            assertFalse(TextAndTextStreamDecoder.class.equals(decoder.getCoderClass()));
+        }
+    }
+
+    private static TyrusEndpointWrapper createWrapper(List<Class<? extends Encoder>> encoders,
+                                                      List<Class<? extends Decoder>> decoders) {
+        final ClientEndpointConfig config = ClientEndpointConfig.Builder.create().encoders(encoders).decoders(decoders).build();
+        return new TyrusEndpointWrapper(TestEndpoint.class, config, ComponentProviderService.create(), null, "/",
+                new ErrorCollector(), null);
+    }
+
+    private static TyrusSession createSession(TyrusEndpointWrapper ew) {
+        return new TyrusSession(null, new TyrusSessionTest.TestRemoteEndpoint(), ew, null, null, false, null, null,
+                null, null, new HashMap<String, List<String>>());
+    }
+
+    public static class TestEndpoint extends Endpoint {
+        @Override
+        public void onOpen(Session session, EndpointConfig config) {
+        }
+    }
+
+    public static class Animal {
+    }
+
+    public static class Dog extends Animal {
+    }
+
+    public static class Cat extends Animal {
+    }
+
+    public static class AnimalEncoder extends CoderAdapter implements Encoder.Text<Animal> {
+        @Override
+        public String encode(Animal object) {
+            return "animal";
+        }
+    }
+
+    public static class DogEncoder extends CoderAdapter implements Encoder.Text<Dog> {
+        @Override
+        public String encode(Dog object) {
+            return "dog";
+        }
+    }
+
+    public static class TextAndTextStreamDecoder extends CoderAdapter implements Decoder.Text<Animal>, Decoder.TextStream<Animal> {
+        @Override
+        public Animal decode(String s) {
+            return new Dog();
+        }
+
+        @Override
+        public boolean willDecode(String s) {
+            return "dog".equals(s);
+        }
+
+        @Override
+        public Animal decode(Reader reader) throws DecodeException, IOException {
+            return new Cat();
+        }
+    }
+}
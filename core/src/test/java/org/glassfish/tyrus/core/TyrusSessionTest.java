@@ -449,7 +449,7 @@ public class TyrusSessionTest {
         return new TyrusSession(null, new TestRemoteEndpoint(), tyrusEndpointWrapper, null, null, false, null, null, null, null, new HashMap<String, List<String>>());
     }
 
-    private static class TestRemoteEndpoint extends RemoteEndpoint {
+    static class TestRemoteEndpoint extends RemoteEndpoint {
 
 
         @Override
@@ -40,9 +40,12 @@
 
 package org.glassfish.tyrus.protocol.core;
 
-import java.security.SecureRandom;
+import java.nio.ByteBuffer;
 import java.util.logging.Logger;
 
+import org.glassfish.tyrus.websockets.DefaultMaskingKeyGenerator;
+import org.glassfish.tyrus.websockets.MaskingKeyGenerator;
+
 
 /**
  * @author Jitendra Kotamraju
@@ -51,10 +54,24 @@ public class WebSocketProtocolEncoder {
     private static final Logger LOGGER = Logger.getLogger(
             WebSocketProtocolEncoder.class.getName());
     public static final int MASK_SIZE = 4;
+
     private final boolean maskData;
+    private final MaskingKeyGenerator maskingKeyGenerator;
 
     public WebSocketProtocolEncoder(boolean maskData) {
+        this(maskData, DefaultMaskingKeyGenerator.INSTANCE);
+    }
+
+    /**
+     * Create encoder.
+     *
+     * @param maskData            {@code true} when encoded frames are masked.
+     * @param maskingKeyGenerator generator of masking keys, {@link DefaultMaskingKeyGenerator} is used when
+     *                            {@code null}.
+     */
+    public WebSocketProtocolEncoder(boolean maskData, MaskingKeyGenerator maskingKeyGenerator) {
         this.maskData = maskData;
+        this.maskingKeyGenerator = maskingKeyGenerator == null ? DefaultMaskingKeyGenerator.INSTANCE : maskingKeyGenerator;
     }
 
     public byte[] encode(WebSocketFrame frame) {
@@ -74,13 +91,13 @@ public class WebSocketProtocolEncoder {
         packet[0] = b1;
         System.arraycopy(lengthBytes, 0, packet, 1, lengthBytes.length);
         if (maskData) {
-            byte[] mask = new byte[MASK_SIZE];
-            new SecureRandom().nextBytes(mask);
+            final int mask = maskingKeyGenerator.nextInt();
 
             packet[1] |= 0x80;
             mask(mask, packet, payloadStart, bytes);
-            System.arraycopy(mask, 0, packet, payloadStart - MASK_SIZE,
-                    MASK_SIZE);
+            for (int i = 0; i < MASK_SIZE; i++) {
+                packet[payloadStart - MASK_SIZE + i] = (byte) (mask >>> (24 - 8 * i));
+            }
         } else {
             System.arraycopy(bytes, 0, packet, payloadStart, bytes.length);
         }
@@ -127,10 +144,17 @@ public class WebSocketProtocolEncoder {
         return b;
     }
 
-    static void mask(byte[] mask, byte[] dst, int offset, byte[] data) {
-        for (int i = 0, index = 0; i < data.length; i++) {
-            dst[offset + i] =
-                 (byte)(data[i] ^ mask[index++ % MASK_SIZE]);
+    static void mask(int mask, byte[] dst, int offset, byte[] data) {
+        final ByteBuffer source = ByteBuffer.wrap(data);
+        final ByteBuffer target = ByteBuffer.wrap(dst);
+        final long longMask = ((long) mask << 32) | (mask & 0xFFFFFFFFL);
+
+        int i = 0;
+        for (; i + 8 <= data.length; i += 8) {
+            target.putLong(offset + i, source.getLong(i) ^ longMask);
+        }
+        for (; i < data.length; i++) {
+            dst[offset + i] = (byte) (data[i] ^ (mask >>> (24 - 8 * (i & 3))));
         }
     }
 
@@ -0,0 +1,188 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of buffers used for accumulating incoming data of frames which were not read completely.
+ * <p/>
+ * Buffers are pooled in power of two size classes; buffers bigger than the biggest pooled size are allocated on
+ * demand and left to the garbage collector when released. The number of idle buffers is limited per size class and
+ * their total capacity is limited by {@link #DEFAULT_MAX_POOLED_BYTES} unless set otherwise.
+ */
+public class ByteBufferPool {
+
+    /**
+     * Smallest buffer size.
+     */
+    public static final int MIN_BUFFER_SIZE = 256;
+
+    /**
+     * Default size of the biggest pooled buffer.
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFER_SIZE = 65536;
+
+    /**
+     * Default maximal number of pooled buffers per size class.
+     */
+    public static final int DEFAULT_MAX_POOLED_BUFFERS = 64;
+
+    /**
+     * Default maximal total capacity of pooled buffers.
+     */
+    public static final long DEFAULT_MAX_POOLED_BYTES = 4 * 1024 * 1024;
+
+    private final boolean direct;
+    private final int maxPooledBufferSize;
+    private final int maxPooledBuffers;
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong();
+    private final Queue<ByteBuffer>[] pools;
+    private final AtomicInteger[] pooled;
+
+    /**
+     * Create pool of heap buffers with default limits.
+     */
+    public ByteBufferPool() {
+        this(false, DEFAULT_MAX_POOLED_BUFFER_SIZE, DEFAULT_MAX_POOLED_BUFFERS);
+    }
+
+    /**
+     * Create new pool.
+     *
+     * @param direct              {@code true} if direct buffers should be allocated.
+     * @param maxPooledBufferSize size of the biggest pooled buffer, rounded up to power of two.
+     * @param maxPooledBuffers    maximal number of pooled buffers per size class.
+     */
+    public ByteBufferPool(boolean direct, int maxPooledBufferSize, int maxPooledBuffers) {
+        this(direct, maxPooledBufferSize, maxPooledBuffers, DEFAULT_MAX_POOLED_BYTES);
+    }
+
+    /**
+     * Create new pool.
+     *
+     * @param direct              {@code true} if direct buffers should be allocated.
+     * @param maxPooledBufferSize size of the biggest pooled buffer, rounded up to power of two.
+     * @param maxPooledBuffers    maximal number of pooled buffers per size class.
+     * @param maxPooledBytes      maximal total capacity of pooled buffers.
+     */
+    @SuppressWarnings("unchecked")
+    public ByteBufferPool(boolean direct, int maxPooledBufferSize, int maxPooledBuffers, long maxPooledBytes) {
+        this.direct = direct;
+        this.maxPooledBufferSize = roundUp(Math.max(maxPooledBufferSize, MIN_BUFFER_SIZE));
+        this.maxPooledBuffers = maxPooledBuffers;
+        this.maxPooledBytes = maxPooledBytes;
+
+        final int classes = sizeClass(this.maxPooledBufferSize) + 1;
+        pools = new Queue[classes];
+        pooled = new AtomicInteger[classes];
+        for (int i = 0; i < classes; i++) {
+            pools[i] = new ConcurrentLinkedQueue<ByteBuffer>();
+            pooled[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Get a buffer.
+     *
+     * @param minCapacity minimal capacity of the buffer.
+     * @return cleared buffer with at least given capacity.
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        final int capacity = roundUp(Math.max(minCapacity, MIN_BUFFER_SIZE));
+        if (capacity > maxPooledBufferSize || capacity <= 0) {
+            return allocate(minCapacity);
+        }
+
+        final int sizeClass = sizeClass(capacity);
+        final ByteBuffer buffer = pools[sizeClass].poll();
+        if (buffer == null) {
+            return allocate(capacity);
+        }
+
+        pooled[sizeClass].decrementAndGet();
+        pooledBytes.addAndGet(-capacity);
+        buffer.clear();
+        return buffer;
+    }
+
+    /**
+     * Return the buffer to the pool. The buffer must not be used after it is released.
+     *
+     * @param buffer buffer obtained from {@link #acquire(int)}.
+     */
+    public void release(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        if (buffer.isDirect() != direct || capacity > maxPooledBufferSize || Integer.bitCount(capacity) != 1
+                || capacity < MIN_BUFFER_SIZE) {
+            return;
+        }
+
+        final int sizeClass = sizeClass(capacity);
+        if (pooled[sizeClass].incrementAndGet() > maxPooledBuffers) {
+            pooled[sizeClass].decrementAndGet();
+            return;
+        }
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            pooled[sizeClass].decrementAndGet();
+            return;
+        }
+        pools[sizeClass].offer(buffer);
+    }
+
+    private ByteBuffer allocate(int capacity) {
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private static int roundUp(int size) {
+        return Integer.bitCount(size) == 1 ? size : Integer.highestOneBit(size) << 1;
+    }
+
+    private static int sizeClass(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_BUFFER_SIZE);
+    }
+}
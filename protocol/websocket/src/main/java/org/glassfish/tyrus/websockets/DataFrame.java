@@ -40,6 +40,8 @@
 
 package org.glassfish.tyrus.websockets;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
 import java.util.Arrays;
 
 import org.glassfish.tyrus.websockets.frame.Frame;
@@ -51,8 +53,12 @@ import org.glassfish.tyrus.websockets.frame.Frame;
  */
 public class DataFrame {
 
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
     private String payload;
+    private ByteBuffer utf8Payload;
     private byte[] bytes;
+    private ByteBuffer buffer;
     private final Frame type;
     private final boolean last;
 
@@ -81,29 +87,89 @@ public class DataFrame {
         last = fin;
     }
 
+    /**
+     * Create new frame backed by provided {@link ByteBuffer}.
+     * <p/>
+     * Remaining bytes of the buffer are used as the frame payload; the buffer is not copied, so it must not be
+     * modified until the frame is written.
+     *
+     * @param type frame type.
+     * @param data frame payload.
+     * @param fin  {@code true} if this is the final fragment of a message.
+     */
+    public DataFrame(Frame type, ByteBuffer data, boolean fin) {
+        this.type = type;
+        this.buffer = data.slice();
+        last = fin;
+    }
+
     public Frame getType() {
         return type;
     }
 
     public String getTextPayload() {
+        if (payload == null && utf8Payload != null) {
+            if (utf8Payload.hasArray()) {
+                payload = new String(utf8Payload.array(), utf8Payload.arrayOffset() + utf8Payload.position(),
+                        utf8Payload.remaining(), UTF8);
+            } else {
+                final byte[] text = new byte[utf8Payload.remaining()];
+                utf8Payload.get(text);
+                payload = new String(text, UTF8);
+            }
+            utf8Payload = null;
+        }
         return payload;
     }
 
     public final void setPayload(String payload) {
         this.payload = payload;
+        this.utf8Payload = null;
+        this.bytes = null;
+        this.buffer = null;
+    }
+
+    /**
+     * Set text payload as validated UTF-8 bytes; the {@link String} is created when it is first requested.
+     *
+     * @param data remaining bytes of the buffer hold the text, must not be modified until the text is requested.
+     */
+    void setUtf8Payload(ByteBuffer data) {
+        this.payload = null;
+        this.utf8Payload = data;
     }
 
     public void setPayload(byte[] bytes) {
         this.bytes = Arrays.copyOf(bytes, bytes.length);
+        this.buffer = null;
     }
 
     public byte[] getBytes() {
-        if (payload != null) {
+        if (buffer != null) {
+            final byte[] result = new byte[buffer.remaining()];
+            buffer.duplicate().get(result);
+            return result;
+        }
+        if (bytes == null && payload != null) {
             bytes = Utf8Utils.encode(new StrictUtf8(), payload);
         }
         return Arrays.copyOf(bytes, bytes.length);
     }
 
+    /**
+     * Get frame payload as a {@link ByteBuffer}.
+     * <p/>
+     * Frames created from a {@link ByteBuffer} return view of the original buffer, no data are copied.
+     *
+     * @return payload of this frame, positioned at its first byte.
+     */
+    ByteBuffer getPayloadBuffer() {
+        if (buffer != null) {
+            return buffer.duplicate();
+        }
+        return ByteBuffer.wrap(type.getBytes(this));
+    }
+
     public void respond(WebSocket socket) {
         getType().respond(socket, this);
     }
@@ -0,0 +1,95 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.security.SecureRandom;
+
+/**
+ * Default {@link MaskingKeyGenerator} implementation.
+ * <p/>
+ * Every thread owns its own seeded {@link SecureRandom} instance, which is used to fill a small buffer of random bytes.
+ * Keys are then taken from that buffer, so the generator neither contends on a shared random source nor allocates
+ * anything per key.
+ */
+public final class DefaultMaskingKeyGenerator implements MaskingKeyGenerator {
+
+    /**
+     * Shared instance.
+     */
+    public static final DefaultMaskingKeyGenerator INSTANCE = new DefaultMaskingKeyGenerator();
+
+    private static final int BUFFER_SIZE = 256;
+
+    private final ThreadLocal<KeyBuffer> keyBuffer = new ThreadLocal<KeyBuffer>() {
+        @Override
+        protected KeyBuffer initialValue() {
+            return new KeyBuffer();
+        }
+    };
+
+    private DefaultMaskingKeyGenerator() {
+    }
+
+    @Override
+    public int nextInt() {
+        return keyBuffer.get().nextInt();
+    }
+
+    private static class KeyBuffer {
+        private final SecureRandom random = new SecureRandom();
+        private final byte[] bytes = new byte[BUFFER_SIZE];
+        private int position = BUFFER_SIZE;
+
+        int nextInt() {
+            if (position == BUFFER_SIZE) {
+                random.nextBytes(bytes);
+                position = 0;
+            }
+
+            final int key = ((bytes[position] & 0xFF) << 24)
+                    | ((bytes[position + 1] & 0xFF) << 16)
+                    | ((bytes[position + 2] & 0xFF) << 8)
+                    | (bytes[position + 3] & 0xFF);
+            position += 4;
+            return key;
+        }
+    }
+}
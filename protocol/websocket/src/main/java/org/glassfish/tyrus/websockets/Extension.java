@@ -143,6 +143,20 @@ public final class Extension {
             this.value = value;
         }
 
+        /**
+         * @return the parameter name.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the parameter value, {@code null} or empty when the parameter has no value.
+         */
+        public String getValue() {
+            return value;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -0,0 +1,93 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Extension transforming payloads of data frames, such as {@link PerMessageDeflate}.
+ * <p/>
+ * Transformers negotiated in the opening handshake are set to {@link ProtocolHandler}, which applies them to outgoing
+ * data frames in the negotiated order and to incoming data frames in the reverse order. Control frames are never
+ * transformed.
+ */
+public interface FrameTransformer {
+
+    /**
+     * Get RSV bits reserved by this extension, as they appear in the first byte of the frame header.
+     * <p/>
+     * The bits are set on the first frame of every message encoded by this transformer; incoming frames with RSV bits
+     * not reserved by any negotiated extension are rejected.
+     *
+     * @return RSV bits, combination of {@code 0x40} (RSV1), {@code 0x20} (RSV2) and {@code 0x10} (RSV3).
+     */
+    int getRsvBits();
+
+    /**
+     * Transform payload of an outgoing data frame. Frames of one connection are encoded in the order they are
+     * written.
+     *
+     * @param payload       frame payload, must not be modified.
+     * @param firstFragment {@code true} if the frame is the first frame of a message.
+     * @param lastFragment  {@code true} if the frame is the last frame of a message.
+     * @return transformed payload.
+     */
+    ByteBuffer encode(ByteBuffer payload, boolean firstFragment, boolean lastFragment);
+
+    /**
+     * Transform payload of an incoming data frame.
+     *
+     * @param payload        frame payload, valid only during this call.
+     * @param rsv            RSV bits of the frame.
+     * @param firstFragment  {@code true} if the frame is the first frame of a message.
+     * @param lastFragment   {@code true} if the frame is the last frame of a message.
+     * @param maxMessageSize maximal length of the transformed message, summed over all its frames.
+     * @return transformed payload.
+     * @throws ProtocolError when the payload cannot be transformed or the transformed message is longer than
+     *                       {@code maxMessageSize}.
+     */
+    ByteBuffer decode(ByteBuffer payload, int rsv, boolean firstFragment, boolean lastFragment, int maxMessageSize);
+
+    /**
+     * Release resources held by this transformer; called when the connection is closed.
+     */
+    void destroy();
+}
@@ -73,6 +73,7 @@ public final class Handshake {
     private HandshakeResponseListener responseListener;
     private HandshakeRequest incomingRequest;
     private SecKey secKey;
+    private final List<FrameTransformer> frameTransformers = new ArrayList<FrameTransformer>();
 
 
     private Handshake() {
@@ -113,9 +114,8 @@ public final class Handshake {
         }
         Handshake.determineHostAndPort(handshake, request);
 
-        // TODO - trim?
         final String protocolHeader = request.getFirstHeaderValue(TyrusWebSocketEngine.SEC_WS_PROTOCOL_HEADER);
-        handshake.subProtocols = (protocolHeader == null ? Collections.<String>emptyList() : Arrays.asList(protocolHeader.split(",")));
+        handshake.subProtocols = (protocolHeader == null ? Collections.<String>emptyList() : splitList(protocolHeader));
 
         if (handshake.serverHostName == null) {
             throw new HandshakeException("Missing required headers for WebSocket negotiation");
@@ -151,7 +151,7 @@ public final class Handshake {
         // http://java.net/jira/browse/TYRUS-55
         // Firefox workaround (it sends "Connections: keep-alive, upgrade").
         if (header.equalsIgnoreCase(TyrusWebSocketEngine.CONNECTION)) {
-            if (!value.toLowerCase().contains(validValue.toLowerCase())) {
+            if (!containsIgnoreCase(value, validValue)) {
                 throw new HandshakeException(String.format("Invalid %s header returned: '%s'", header, value));
             }
         } else {
@@ -161,6 +161,38 @@ public final class Handshake {
         }
     }
 
+    private static boolean containsIgnoreCase(String value, String token) {
+        for (int i = 0; i <= value.length() - token.length(); i++) {
+            if (value.regionMatches(true, i, token, 0, token.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Split comma separated header value, tokens are trimmed and empty tokens are skipped.
+     *
+     * @param value header value.
+     * @return list of tokens.
+     */
+    static List<String> splitList(String value) {
+        final List<String> result = new ArrayList<String>(2);
+        int start = 0;
+        while (start <= value.length()) {
+            int end = value.indexOf(',', start);
+            if (end == -1) {
+                end = value.length();
+            }
+            final String token = value.substring(start, end).trim();
+            if (token.length() > 0) {
+                result.add(token);
+            }
+            start = end + 1;
+        }
+        return result;
+    }
+
     private static void determineHostAndPort(Handshake handshake, HandshakeRequest request) {
         String header = request.getFirstHeaderValue(TyrusWebSocketEngine.HOST);
 
@@ -190,9 +222,9 @@ public final class Handshake {
             final char[] chars = singleHeader.toCharArray();
             int i = 0;
             ParserState next = ParserState.NAME_START;
-            StringBuilder name = new StringBuilder();
-            StringBuilder paramName = new StringBuilder();
-            StringBuilder paramValue = new StringBuilder();
+            final StringBuilder name = new StringBuilder();
+            final StringBuilder paramName = new StringBuilder();
+            final StringBuilder paramValue = new StringBuilder();
             List<Extension.Parameter> params = new ArrayList<Extension.Parameter>();
 
             do {
@@ -202,9 +234,9 @@ public final class Handshake {
                             final Extension extension = new Extension(name.toString().trim());
                             extension.getParameters().addAll(params);
                             extensions.add(extension);
-                            name = new StringBuilder();
-                            paramName = new StringBuilder();
-                            paramValue = new StringBuilder();
+                            name.setLength(0);
+                            paramName.setLength(0);
+                            paramValue.setLength(0);
                             params.clear();
                         }
 
@@ -255,14 +287,14 @@ public final class Handshake {
                             case ';':
                                 next = ParserState.PARAM_NAME;
                                 params.add(new Extension.Parameter(paramName.toString().trim(), paramValue.toString().trim()));
-                                paramName = new StringBuilder();
-                                paramValue = new StringBuilder();
+                                paramName.setLength(0);
+                                paramValue.setLength(0);
                                 break;
                             case ',':
                                 next = ParserState.NAME_START;
                                 params.add(new Extension.Parameter(paramName.toString().trim(), paramValue.toString().trim()));
-                                paramName = new StringBuilder();
-                                paramValue = new StringBuilder();
+                                paramName.setLength(0);
+                                paramValue.setLength(0);
                                 break;
                             case '=':
                                 next = ParserState.ERROR;
@@ -279,8 +311,8 @@ public final class Handshake {
                             case '"':
                                 next = ParserState.PARAM_VALUE_QUOTED_POST;
                                 params.add(new Extension.Parameter(paramName.toString().trim(), paramValue.toString()));
-                                paramName = new StringBuilder();
-                                paramValue = new StringBuilder();
+                                paramName.setLength(0);
+                                paramValue.setLength(0);
                                 break;
                             case '\\':
                                 next = ParserState.PARAM_VALUE_QUOTED_QP;
@@ -321,9 +353,9 @@ public final class Handshake {
                         LOGGER.fine(String.format("Error during parsing Extension: %s", name));
 
                         if (name.length() > 0) {
-                            name = new StringBuilder();
-                            paramName = new StringBuilder();
-                            paramValue = new StringBuilder();
+                            name.setLength(0);
+                            paramName.setLength(0);
+                            paramValue.setLength(0);
                             params.clear();
                         }
 
@@ -470,6 +502,15 @@ public final class Handshake {
         return request;
     }
 
+    /**
+     * Get negotiated extensions which transform frame payloads, to be set to the {@link ProtocolHandler}.
+     *
+     * @return negotiated frame transformers, empty list when there is none.
+     */
+    public List<FrameTransformer> getFrameTransformers() {
+        return frameTransformers;
+    }
+
     public void validateServerResponse(HandshakeResponse response) {
         if (TyrusWebSocketEngine.RESPONSE_CODE_VALUE != response.getStatus()) {
             throw new HandshakeException(String.format("Response code was not %s: %s",
@@ -484,6 +525,18 @@ public final class Handshake {
 //        }
 
         secKey.validateServerKey(response.getFirstHeaderValue(TyrusWebSocketEngine.SEC_WS_ACCEPT));
+
+        final List<String> extensionHeaders = response.getHeaders().get(TyrusWebSocketEngine.SEC_WS_EXTENSIONS_HEADER);
+        if (extensionHeaders != null) {
+            for (Extension extension : fromHeaders(extensionHeaders)) {
+                if (PerMessageDeflate.NAME.equals(extension.getName())) {
+                    if (!frameTransformers.isEmpty()) {
+                        throw new HandshakeException(String.format("Extension %s negotiated more than once.", PerMessageDeflate.NAME));
+                    }
+                    frameTransformers.add(PerMessageDeflate.fromResponse(extension));
+                }
+            }
+        }
     }
 
     void respond(org.glassfish.tyrus.spi.WebSocketEngine.ResponseWriter writer, WebSocketApplication application/*, WebSocketResponse response*/) {
@@ -508,6 +561,9 @@ public final class Handshake {
             List<Extension> intersection =
                     intersection(getExtensions(),
                             application.getSupportedExtensions());
+            if (!intersection.isEmpty()) {
+                intersection = negotiateFrameTransformers(intersection);
+            }
             if (!intersection.isEmpty()) {
                 application.onExtensionNegotiation(intersection);
                 response.getHeaders().put(TyrusWebSocketEngine.SEC_WS_EXTENSIONS_HEADER, getStringList(intersection));
@@ -519,6 +575,31 @@ public final class Handshake {
         writer.write(response);
     }
 
+    /**
+     * Accept the first acceptable offer of each extension implemented as {@link FrameTransformer}, other offers
+     * of such extension are dropped. Remaining extensions are returned unchanged.
+     *
+     * @param extensions extensions requested by the client and supported by the application.
+     * @return extensions to be confirmed in the handshake response.
+     */
+    private List<Extension> negotiateFrameTransformers(List<Extension> extensions) {
+        final List<Extension> result = new ArrayList<Extension>(extensions.size());
+        for (Extension extension : extensions) {
+            if (PerMessageDeflate.NAME.equals(extension.getName())) {
+                if (frameTransformers.isEmpty()) {
+                    final PerMessageDeflate perMessageDeflate = PerMessageDeflate.accept(extension);
+                    if (perMessageDeflate != null) {
+                        frameTransformers.add(perMessageDeflate);
+                        result.add(perMessageDeflate.getExtension());
+                    }
+                }
+            } else {
+                result.add(extension);
+            }
+        }
+        return result;
+    }
+
     List<Extension> intersection(List<Extension> requested, List<Extension> supported) {
         List<Extension> intersection = new ArrayList<Extension>(supported.size());
         for (Extension e : requested) {
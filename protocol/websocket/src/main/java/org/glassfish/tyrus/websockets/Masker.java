@@ -41,66 +41,129 @@
 package org.glassfish.tyrus.websockets;
 
 import java.nio.ByteBuffer;
-import java.security.SecureRandom;
+import java.nio.ByteOrder;
 
 class Masker {
-    private volatile ByteBuffer buffer;
-    private byte[] mask;
+    private boolean masked = false;
+    private int mask;
     private int index = 0;
 
-    public Masker(ByteBuffer buffer) {
-        this.buffer = buffer;
-    }
-
+    /**
+     * Create masker for an incoming frame; the masking key is read by {@link #readMask(ByteBuffer)}.
+     */
     public Masker() {
-        generateMask();
     }
 
-    byte get() {
-        return buffer.get();
+    /**
+     * Create masker for an outgoing frame.
+     *
+     * @param maskingKeyGenerator generator of the masking key.
+     */
+    public Masker(MaskingKeyGenerator maskingKeyGenerator) {
+        mask = maskingKeyGenerator.nextInt();
+        masked = true;
     }
 
-    byte[] get(final int size) {
-        byte[] bytes = new byte[size];
-        buffer.get(bytes);
-        return bytes;
+    /**
+     * Unmask remaining bytes of the buffer in place. Position of the buffer is not changed.
+     *
+     * @param buffer buffer containing masked bytes.
+     */
+    public void unmask(ByteBuffer buffer) {
+        if (masked) {
+            final int position = buffer.position();
+            xor(buffer, buffer);
+            buffer.position(position);
+        }
     }
 
-    public byte[] unmask(int count) {
-        byte[] bytes = get(count);
-        if (mask != null) {
-            for (int i = 0; i < bytes.length; i++) {
-                bytes[i] ^= mask[index++ % TyrusWebSocketEngine.MASK_SIZE];
-            }
+    /**
+     * Mask remaining bytes of the source buffer into the target buffer.
+     *
+     * @param target buffer to put masked bytes to.
+     * @param source buffer containing bytes to be masked.
+     */
+    public void mask(ByteBuffer target, ByteBuffer source) {
+        if (masked) {
+            xor(source, target);
+        } else {
+            target.put(source);
         }
-
-        return bytes;
     }
 
-    void generateMask() {
-        mask = new byte[TyrusWebSocketEngine.MASK_SIZE];
-        new SecureRandom().nextBytes(mask);
-    }
+    /**
+     * XOR remaining bytes of the source buffer with the mask and put them to the target buffer. Bytes are processed
+     * eight at a time when both buffers use the same byte order, source and target can be the same buffer.
+     *
+     * @param source source buffer.
+     * @param target target buffer.
+     */
+    private void xor(ByteBuffer source, ByteBuffer target) {
+        final int length = source.remaining();
+        final int sourceStart = source.position();
+        final int targetStart = target.position();
+
+        // rotate the key, so the most significant byte applies to the current byte of the payload.
+        int key = Integer.rotateLeft(mask, 8 * (index & 3));
 
-    public void mask(byte[] target, int location, byte[] bytes) {
-        if (bytes != null && target != null) {
-            for (int i = 0; i < bytes.length; i++) {
-                target[location + i] = mask == null
-                        ? bytes[i]
-                        : (byte) (bytes[i] ^ mask[index++ % TyrusWebSocketEngine.MASK_SIZE]);
+        int i = 0;
+        if (source.order() == target.order()) {
+            long longKey = ((long) key << 32) | (key & 0xFFFFFFFFL);
+            if (source.order() == ByteOrder.LITTLE_ENDIAN) {
+                longKey = Long.reverseBytes(longKey);
+            }
+            for (; i + 8 <= length; i += 8) {
+                target.putLong(targetStart + i, source.getLong(sourceStart + i) ^ longKey);
             }
         }
-    }
+        for (; i < length; i++) {
+            target.put(targetStart + i, (byte) (source.get(sourceStart + i) ^ (key >>> 24)));
+            key = Integer.rotateLeft(key, 8);
+        }
 
-    public void setBuffer(ByteBuffer buffer) {
-        this.buffer = buffer;
+        source.position(sourceStart + length);
+        target.position(targetStart + length);
+        index += length;
     }
 
-    public byte[] getMask() {
+    /**
+     * Get masking key.
+     *
+     * @return masking key, most significant byte is the first byte of the key.
+     */
+    public int getMask() {
         return mask;
     }
 
-    public void readMask() {
-        mask = get(TyrusWebSocketEngine.MASK_SIZE);
+    /**
+     * Set masking key of an outgoing frame.
+     *
+     * @param mask masking key, most significant byte is the first byte of the key.
+     */
+    public void setMask(int mask) {
+        this.mask = mask;
+        masked = true;
+        index = 0;
+    }
+
+    /**
+     * Read masking key of an incoming frame.
+     *
+     * @param buffer buffer positioned at the masking key.
+     */
+    public void readMask(ByteBuffer buffer) {
+        mask = ((buffer.get() & 0xFF) << 24) | ((buffer.get() & 0xFF) << 16) | ((buffer.get() & 0xFF) << 8)
+                | (buffer.get() & 0xFF);
+        masked = true;
+        index = 0;
+    }
+
+    /**
+     * Reset the masker, so it can be used for the next incoming frame.
+     */
+    public void reset() {
+        masked = false;
+        mask = 0;
+        index = 0;
     }
 }
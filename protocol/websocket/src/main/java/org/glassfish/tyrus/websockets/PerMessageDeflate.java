@@ -0,0 +1,461 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Compression of messages as defined by <a href="http://tools.ietf.org/html/rfc7692">RFC 7692</a>,
+ * {@code permessage-deflate} extension.
+ * <p/>
+ * With context takeover, each connection keeps its own {@link Deflater} and {@link Inflater}, so later messages can
+ * refer to data of the previous ones. Without context takeover, compressors are borrowed from a shared pool for the
+ * duration of a message. {@link Deflater} always uses the 32KB window, so offers limiting the window of the server
+ * (or the response limiting the window of the client) to less than 15 bits are declined; any window size is
+ * accepted for incoming messages.
+ * <p/>
+ * Uses {@link Deflater#SYNC_FLUSH}, which requires Java 7; on older runtimes offers are declined and responses
+ * accepting the extension are rejected.
+ */
+public final class PerMessageDeflate implements FrameTransformer {
+
+    /**
+     * Extension name.
+     */
+    public static final String NAME = "permessage-deflate";
+
+    static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+    static final String SERVER_MAX_WINDOW_BITS = "server_max_window_bits";
+    static final String CLIENT_MAX_WINDOW_BITS = "client_max_window_bits";
+
+    private static final int RSV1 = 0x40;
+    private static final int MAX_WINDOW_BITS = 15;
+    private static final int MIN_WINDOW_BITS = 8;
+    private static final byte[] TAIL = {0x00, 0x00, (byte) 0xFF, (byte) 0xFF};
+    private static final int MAX_POOLED = 64;
+    private static final int MAX_SCRATCH_SIZE = 65536;
+    private static final int MESSAGE_TOO_BIG = 1009;
+
+    /**
+     * {@code true} if {@link Deflater#deflate(byte[], int, int, int)} is available.
+     */
+    static final boolean SUPPORTED;
+
+    static {
+        boolean supported;
+        try {
+            Deflater.class.getMethod("deflate", byte[].class, int.class, int.class, int.class);
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+        SUPPORTED = supported;
+    }
+
+    private static final Queue<Deflater> DEFLATERS = new ConcurrentLinkedQueue<Deflater>();
+    private static final AtomicInteger POOLED_DEFLATERS = new AtomicInteger();
+    private static final Queue<Inflater> INFLATERS = new ConcurrentLinkedQueue<Inflater>();
+    private static final AtomicInteger POOLED_INFLATERS = new AtomicInteger();
+    private static final ThreadLocal<byte[]> SCRATCH = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[1024];
+        }
+    };
+
+    private final Extension extension;
+    private final boolean deflateNoContextTakeover;
+    private final boolean inflateNoContextTakeover;
+    private final Object deflateLock = new Object();
+    private final Object inflateLock = new Object();
+    private Deflater deflater;
+    private Inflater inflater;
+    private byte[] inflated;
+    private boolean inflating;
+    private long inflatedMessageLength;
+
+    private PerMessageDeflate(Extension extension, boolean deflateNoContextTakeover, boolean inflateNoContextTakeover) {
+        this.extension = extension;
+        this.deflateNoContextTakeover = deflateNoContextTakeover;
+        this.inflateNoContextTakeover = inflateNoContextTakeover;
+    }
+
+    /**
+     * Create server side of the extension for the offer sent by the client.
+     *
+     * @param offer extension offered in the client handshake request.
+     * @return negotiated extension or {@code null} if the offer cannot be accepted.
+     */
+    public static PerMessageDeflate accept(Extension offer) {
+        if (!SUPPORTED) {
+            return null;
+        }
+
+        final Set<String> parameters = new HashSet<String>();
+        boolean serverNoContextTakeover = false;
+        boolean clientNoContextTakeover = false;
+
+        for (Extension.Parameter parameter : offer.getParameters()) {
+            final String name = parameter.getName();
+            final String value = getValue(parameter);
+
+            if (!parameters.add(name)) {
+                return null;
+            } else if (SERVER_NO_CONTEXT_TAKEOVER.equals(name) && value == null) {
+                serverNoContextTakeover = true;
+            } else if (CLIENT_NO_CONTEXT_TAKEOVER.equals(name) && value == null) {
+                clientNoContextTakeover = true;
+            } else if (SERVER_MAX_WINDOW_BITS.equals(name)) {
+                if (getWindowBits(value) != MAX_WINDOW_BITS) {
+                    return null;
+                }
+            } else if (CLIENT_MAX_WINDOW_BITS.equals(name)) {
+                if (value != null && getWindowBits(value) < 0) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+
+        final Extension response = new Extension(NAME);
+        if (serverNoContextTakeover) {
+            response.getParameters().add(new Extension.Parameter(SERVER_NO_CONTEXT_TAKEOVER, null));
+        }
+        if (clientNoContextTakeover) {
+            response.getParameters().add(new Extension.Parameter(CLIENT_NO_CONTEXT_TAKEOVER, null));
+        }
+        return new PerMessageDeflate(response, serverNoContextTakeover, clientNoContextTakeover);
+    }
+
+    /**
+     * Create client side of the extension for the server handshake response.
+     *
+     * @param response extension accepted by the server.
+     * @return negotiated extension.
+     * @throws HandshakeException when the response is not valid or the client cannot comply with it.
+     */
+    public static PerMessageDeflate fromResponse(Extension response) {
+        if (!SUPPORTED) {
+            throw new HandshakeException(String.format("Extension %s requires Java 7.", NAME));
+        }
+
+        final Set<String> parameters = new HashSet<String>();
+        boolean serverNoContextTakeover = false;
+        boolean clientNoContextTakeover = false;
+
+        for (Extension.Parameter parameter : response.getParameters()) {
+            final String name = parameter.getName();
+            final String value = getValue(parameter);
+
+            if (!parameters.add(name)) {
+                throw new HandshakeException(String.format("Duplicate %s extension parameter: %s.", NAME, name));
+            } else if (SERVER_NO_CONTEXT_TAKEOVER.equals(name) && value == null) {
+                serverNoContextTakeover = true;
+            } else if (CLIENT_NO_CONTEXT_TAKEOVER.equals(name) && value == null) {
+                clientNoContextTakeover = true;
+            } else if (SERVER_MAX_WINDOW_BITS.equals(name) && getWindowBits(value) > 0) {
+                // inflater handles any window size
+            } else if (CLIENT_MAX_WINDOW_BITS.equals(name) && getWindowBits(value) == MAX_WINDOW_BITS) {
+                // deflater uses the maximal window anyway
+            } else {
+                throw new HandshakeException(String.format("Unsupported %s extension parameter: %s.", NAME, parameter));
+            }
+        }
+
+        return new PerMessageDeflate(response, clientNoContextTakeover, serverNoContextTakeover);
+    }
+
+    /**
+     * Get the negotiated extension, as it is sent in the server handshake response.
+     *
+     * @return negotiated extension.
+     */
+    public Extension getExtension() {
+        return extension;
+    }
+
+    @Override
+    public int getRsvBits() {
+        return RSV1;
+    }
+
+    @Override
+    public ByteBuffer encode(ByteBuffer payload, boolean firstFragment, boolean lastFragment) {
+        synchronized (deflateLock) {
+            if (deflater == null) {
+                deflater = deflateNoContextTakeover ? acquireDeflater() : new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            }
+
+            final int length = payload.remaining();
+            if (payload.hasArray()) {
+                deflater.setInput(payload.array(), payload.arrayOffset() + payload.position(), length);
+            } else {
+                final byte[] bytes = new byte[length];
+                payload.duplicate().get(bytes);
+                deflater.setInput(bytes);
+            }
+
+            byte[] out = SCRATCH.get();
+            int outLength = 0;
+            do {
+                if (outLength == out.length) {
+                    out = Arrays.copyOf(out, out.length << 1);
+                }
+                outLength += deflater.deflate(out, outLength, out.length - outLength, Deflater.SYNC_FLUSH);
+            } while (outLength == out.length);
+
+            if (out.length <= MAX_SCRATCH_SIZE) {
+                SCRATCH.set(out);
+            }
+
+            if (lastFragment) {
+                if (endsWithTail(out, outLength)) {
+                    // flushed block ends with empty stored block, which is not sent
+                    outLength -= TAIL.length;
+                } else {
+                    // nothing left to flush, start empty stored block which will be completed by the appended tail
+                    if (outLength == out.length) {
+                        out = Arrays.copyOf(out, outLength + 1);
+                    }
+                    out[outLength++] = 0x00;
+                }
+                if (deflateNoContextTakeover) {
+                    releaseDeflater(deflater);
+                    deflater = null;
+                }
+            }
+
+            return ByteBuffer.wrap(Arrays.copyOf(out, outLength));
+        }
+    }
+
+    @Override
+    public ByteBuffer decode(ByteBuffer payload, int rsv, boolean firstFragment, boolean lastFragment, int maxMessageSize) {
+        synchronized (inflateLock) {
+            if (firstFragment) {
+                inflating = (rsv & RSV1) != 0;
+                inflatedMessageLength = 0;
+            } else if ((rsv & RSV1) != 0) {
+                throw new ProtocolError("RSV1 bit set on a continuation frame.");
+            }
+            if (!inflating) {
+                return payload;
+            }
+
+            if (inflater == null) {
+                inflater = inflateNoContextTakeover ? acquireInflater() : new Inflater(true);
+            }
+
+            final int length = payload.remaining();
+            final long limit = maxMessageSize - inflatedMessageLength;
+            inflated = new byte[(int) Math.min(Math.max(64, length << 2), limit + 1)];
+            int inflatedLength;
+            try {
+                if (payload.hasArray()) {
+                    inflater.setInput(payload.array(), payload.arrayOffset() + payload.position(), length);
+                } else {
+                    final byte[] bytes = new byte[length];
+                    payload.duplicate().get(bytes);
+                    inflater.setInput(bytes);
+                }
+                inflatedLength = inflate(0, limit);
+
+                if (lastFragment) {
+                    inflater.setInput(TAIL);
+                    inflatedLength = inflate(inflatedLength, limit);
+                }
+            } catch (DataFormatException e) {
+                throw new ProtocolError("Invalid compressed message: " + e.getMessage());
+            }
+
+            if (lastFragment && (inflateNoContextTakeover || inflater.finished())) {
+                if (inflateNoContextTakeover) {
+                    releaseInflater(inflater);
+                    inflater = null;
+                } else {
+                    inflater.reset();
+                }
+            }
+
+            inflatedMessageLength += inflatedLength;
+            final ByteBuffer result = ByteBuffer.wrap(inflated, 0, inflatedLength);
+            inflated = null;
+            return result;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        synchronized (deflateLock) {
+            if (deflater != null) {
+                deflater.end();
+                deflater = null;
+            }
+        }
+        synchronized (inflateLock) {
+            if (inflater != null) {
+                inflater.end();
+                inflater = null;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return extension.toString();
+    }
+
+    /**
+     * Inflate pending input to {@code inflated} buffer, growing it when needed. The buffer never grows over
+     * {@code limit + 1} bytes, so the inflated data cannot take more memory than the message is allowed to.
+     *
+     * @param offset number of bytes already inflated to the buffer.
+     * @param limit  maximal number of bytes the frame may inflate to.
+     * @return number of inflated bytes in the buffer.
+     * @throws DataFormatException when the input is not valid.
+     * @throws ProtocolError       when the input inflates to more than {@code limit} bytes.
+     */
+    private int inflate(int offset, long limit) throws DataFormatException {
+        int inflatedLength = offset;
+        while (true) {
+            if (inflatedLength == inflated.length) {
+                if (inflatedLength > limit) {
+                    inflated = null;
+                    throw new ProtocolError("Decompressed message is too big.", MESSAGE_TOO_BIG);
+                }
+                inflated = Arrays.copyOf(inflated, (int) Math.min((long) inflated.length << 1, limit + 1));
+            }
+            inflatedLength += inflater.inflate(inflated, inflatedLength, inflated.length - inflatedLength);
+            if (inflater.needsDictionary()) {
+                throw new DataFormatException("Preset dictionary is not supported.");
+            }
+            // output may be pending even when all input was consumed, unless there was space left in the buffer
+            if (inflater.finished() || (inflater.needsInput() && inflatedLength < inflated.length)) {
+                break;
+            }
+        }
+        return inflatedLength;
+    }
+
+    private static boolean endsWithTail(byte[] bytes, int length) {
+        if (length < TAIL.length) {
+            return false;
+        }
+        for (int i = 0; i < TAIL.length; i++) {
+            if (bytes[length - TAIL.length + i] != TAIL[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String getValue(Extension.Parameter parameter) {
+        String value = parameter.getValue();
+        if (value != null) {
+            value = value.trim();
+            if (value.length() > 1 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+                value = value.substring(1, value.length() - 1);
+            }
+        }
+        return value == null || value.isEmpty() ? null : value;
+    }
+
+    private static int getWindowBits(String value) {
+        if (value == null) {
+            return -1;
+        }
+        try {
+            final int bits = Integer.parseInt(value);
+            return bits >= MIN_WINDOW_BITS && bits <= MAX_WINDOW_BITS ? bits : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static Deflater acquireDeflater() {
+        final Deflater pooled = DEFLATERS.poll();
+        if (pooled == null) {
+            return new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        }
+        POOLED_DEFLATERS.decrementAndGet();
+        return pooled;
+    }
+
+    private static void releaseDeflater(Deflater deflater) {
+        deflater.reset();
+        if (POOLED_DEFLATERS.incrementAndGet() <= MAX_POOLED) {
+            DEFLATERS.offer(deflater);
+        } else {
+            POOLED_DEFLATERS.decrementAndGet();
+            deflater.end();
+        }
+    }
+
+    private static Inflater acquireInflater() {
+        final Inflater pooled = INFLATERS.poll();
+        if (pooled == null) {
+            return new Inflater(true);
+        }
+        POOLED_INFLATERS.decrementAndGet();
+        return pooled;
+    }
+
+    private static void releaseInflater(Inflater inflater) {
+        inflater.reset();
+        if (POOLED_INFLATERS.incrementAndGet() <= MAX_POOLED) {
+            INFLATERS.offer(inflater);
+        } else {
+            POOLED_INFLATERS.decrementAndGet();
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Whole unmasked frame serialized once and written to several connections.
+ * <p/>
+ * Connections get views of the same buffers, so the payload must not be modified until all writes are finished.
+ */
+public final class PreparedFrame {
+
+    private final DataFrame frame;
+    private final ByteBuffer header;
+    private final ByteBuffer payload;
+
+    /**
+     * Serialize given frame.
+     *
+     * @param frame whole (final) text or binary frame.
+     */
+    public PreparedFrame(DataFrame frame) {
+        if (!frame.isLast()) {
+            throw new IllegalArgumentException("Only whole messages can be prepared.");
+        }
+
+        this.frame = frame;
+        this.payload = frame.getPayloadBuffer();
+
+        final int payloadLength = payload.remaining();
+        header = ByteBuffer.allocate(ProtocolHandler.getHeaderLength(payloadLength, false));
+        ProtocolHandler.putHeader(header, (byte) (ProtocolHandler.getOpcode(frame.getType()) | 0x80), payloadLength, false);
+        header.flip();
+    }
+
+    /**
+     * Get the frame.
+     *
+     * @return frame.
+     */
+    public DataFrame getFrame() {
+        return frame;
+    }
+
+    /**
+     * Get new views of the serialized frame.
+     *
+     * @return header and payload buffers.
+     */
+    ByteBuffer[] getBuffers() {
+        return new ByteBuffer[]{header.duplicate(), payload.duplicate()};
+    }
+}
@@ -45,12 +45,25 @@ package org.glassfish.tyrus.websockets;
  */
 public class ProtocolError extends FramingException {
 
+    private final int closingCode;
+
     public ProtocolError(String s) {
+        this(s, WebSocket.PROTOCOL_ERROR);
+    }
+
+    /**
+     * Create new error closing the connection with given code.
+     *
+     * @param s           error message.
+     * @param closingCode close code sent to the peer.
+     */
+    public ProtocolError(String s, int closingCode) {
         super(s);
+        this.closingCode = closingCode;
     }
 
     @Override
     public int getClosingCode() {
-        return WebSocket.PROTOCOL_ERROR;
+        return closingCode;
     }
 }
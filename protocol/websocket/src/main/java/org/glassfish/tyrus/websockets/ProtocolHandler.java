@@ -42,21 +42,26 @@ package org.glassfish.tyrus.websockets;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
-import java.nio.CharBuffer;
-import java.nio.charset.Charset;
-import java.nio.charset.CharsetDecoder;
-import java.nio.charset.CoderResult;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import javax.websocket.CloseReason;
 import javax.websocket.WebSocketContainer;
 
+import org.glassfish.tyrus.spi.AbstractWriter;
 import org.glassfish.tyrus.spi.HandshakeRequest;
 import org.glassfish.tyrus.spi.Writer;
 import org.glassfish.tyrus.websockets.frame.BinaryFrame;
@@ -66,22 +71,62 @@ import org.glassfish.tyrus.websockets.frame.Frame;
 import org.glassfish.tyrus.websockets.frame.PingFrame;
 import org.glassfish.tyrus.websockets.frame.PongFrame;
 import org.glassfish.tyrus.websockets.frame.TextFrame;
+import org.glassfish.tyrus.websockets.monitoring.EndpointMetrics;
 
 public final class ProtocolHandler {
 
-    private final Charset utf8 = new StrictUtf8();
-    private final CharsetDecoder currentDecoder = utf8.newDecoder();
+    /**
+     * Default maximal size of the batch in bytes.
+     */
+    public static final int DEFAULT_BATCH_BUFFER_SIZE = 65536;
+
+    /**
+     * Default maximal length of a message decoded by frame transformers.
+     */
+    public static final int DEFAULT_MAX_MESSAGE_SIZE = 4194304;
+
+    private static final int INITIAL_BATCH_CAPACITY = 1024;
+
+    private static final Logger LOGGER = Logger.getLogger(ProtocolHandler.class.getName());
+
+    // frame types are stateless, parsed frames share them.
+    private static final Frame TEXT_FRAME = new TextFrame();
+    private static final Frame BINARY_FRAME = new BinaryFrame();
+    private static final Frame CLOSING_FRAME = new ClosingFrame();
+    private static final Frame PING_FRAME = new PingFrame();
+    private static final Frame PONG_FRAME = new PongFrame();
+    private static final Frame TEXT_CONTINUATION_FRAME = new ContinuationFrame(true);
+    private static final Frame BINARY_CONTINUATION_FRAME = new ContinuationFrame(false);
+
+    private final Utf8Validator utf8Validator = new Utf8Validator();
+    private final byte[] utf8Carry = new byte[3];
+    private int utf8CarryLength = 0;
     private final AtomicBoolean onClosedCalled = new AtomicBoolean(false);
     private final boolean maskData;
     private final ParsingState state = new ParsingState();
+    // frames can be sent from multiple threads at once, access is guarded by the masker itself.
+    private final Masker outgoingMasker = new Masker();
     private WebSocket webSocket;
     private byte outFragmentedType;
-    private ByteBuffer remainder;
     private long writeTimeoutMs = -1;
     private WebSocketContainer container;
-    private Writer writer;
+    private AbstractWriter writer;
     private byte inFragmentedType;
     private boolean processingFragment;
+    private MaskingKeyGenerator maskingKeyGenerator = DefaultMaskingKeyGenerator.INSTANCE;
+    private final Object batchLock = new Object();
+    private volatile boolean batchingAllowed = false;
+    private int batchBufferSize = DEFAULT_BATCH_BUFFER_SIZE;
+    private long batchLingerTimeMs = -1;
+    private ByteBuffer batch;
+    // handlers of asynchronous sends of frames in the batch.
+    private List<CompletionHandlerWrapper> batchHandlers;
+    private ScheduledFuture<?> batchLingerFuture;
+    private final Object transformLock = new Object();
+    private volatile List<FrameTransformer> frameTransformers = Collections.emptyList();
+    private volatile int extensionRsvBits = 0;
+    private volatile int maxMessageSize = DEFAULT_MAX_MESSAGE_SIZE;
+    private EndpointMetrics metrics;
 
     ProtocolHandler(boolean maskData) {
         this.maskData = maskData;
@@ -90,17 +135,79 @@ public final class ProtocolHandler {
     public Handshake handshake(org.glassfish.tyrus.spi.WebSocketEngine.ResponseWriter writer, WebSocketApplication app, HandshakeRequest request) {
         final Handshake handshake = createHandShake(request);
         handshake.respond(writer, app/*, ((WebSocketRequest) request.getHttpHeader()).getResponse()*/);
+        setFrameTransformers(handshake.getFrameTransformers());
         return handshake;
     }
 
+    /**
+     * Set extensions negotiated in the opening handshake which transform payloads of data frames.
+     *
+     * @param frameTransformers transformers in the negotiated order.
+     */
+    public void setFrameTransformers(List<FrameTransformer> frameTransformers) {
+        int rsvBits = 0;
+        for (FrameTransformer transformer : frameTransformers) {
+            rsvBits |= transformer.getRsvBits();
+        }
+        this.frameTransformers = Collections.unmodifiableList(new ArrayList<FrameTransformer>(frameTransformers));
+        this.extensionRsvBits = rsvBits;
+    }
+
+    /**
+     * Get extensions transforming payloads of data frames.
+     *
+     * @return negotiated transformers, empty list when no such extension was negotiated.
+     */
+    public List<FrameTransformer> getFrameTransformers() {
+        return frameTransformers;
+    }
+
+    /**
+     * Set maximal length of an incoming message decoded by frame transformers. Longer messages close the connection
+     * with {@code 1009} (message too big), so that a small compressed message cannot exhaust the memory.
+     *
+     * @param maxMessageSize maximal message length in bytes, {@link #DEFAULT_MAX_MESSAGE_SIZE} is used when not
+     *                       positive.
+     */
+    public void setMaxMessageSize(int maxMessageSize) {
+        this.maxMessageSize = maxMessageSize > 0 ? maxMessageSize : DEFAULT_MAX_MESSAGE_SIZE;
+    }
+
+    /**
+     * Release resources held by frame transformers.
+     */
+    void destroyFrameTransformers() {
+        for (FrameTransformer transformer : frameTransformers) {
+            transformer.destroy();
+        }
+    }
+
     public void setWriter(Writer handler) {
-        this.writer = handler;
+        this.writer = AbstractWriter.wrap(handler);
+    }
+
+    /**
+     * Set statistics updated with received and sent frames.
+     *
+     * @param metrics endpoint statistics, {@code null} when monitoring is disabled.
+     */
+    public void setMetrics(EndpointMetrics metrics) {
+        this.metrics = metrics;
     }
 
     public void setWebSocket(WebSocket webSocket) {
         this.webSocket = webSocket;
     }
 
+    /**
+     * Set generator of masking keys used for outgoing frames. Has no effect when outgoing frames are not masked.
+     *
+     * @param maskingKeyGenerator masking key generator, {@link DefaultMaskingKeyGenerator} is used when {@code null}.
+     */
+    public void setMaskingKeyGenerator(MaskingKeyGenerator maskingKeyGenerator) {
+        this.maskingKeyGenerator = maskingKeyGenerator == null ? DefaultMaskingKeyGenerator.INSTANCE : maskingKeyGenerator;
+    }
+
     /**
      * Create {@link Handshake} on server side.
      *
@@ -131,21 +238,73 @@ public final class ProtocolHandler {
 
     Future<DataFrame> send(DataFrame frame,
                            Writer.CompletionHandler<DataFrame> completionHandler, Boolean useTimeout) {
-        return write(frame, completionHandler, useTimeout);
+        return write(frame, null, completionHandler, useTimeout);
     }
 
     public Future<DataFrame> send(byte[] data) {
         return send(new DataFrame(new BinaryFrame(), data), null, true);
     }
 
+    /**
+     * Send binary message; remaining bytes of provided buffer are written without copying.
+     *
+     * @param data message payload, must not be modified until returned {@link Future} is done.
+     * @return future completed when the frame is written.
+     */
+    public Future<DataFrame> send(ByteBuffer data) {
+        return send(new DataFrame(new BinaryFrame(), data, true), null, true);
+    }
+
     public Future<DataFrame> send(String data) {
         return send(new DataFrame(new TextFrame(), data));
     }
 
+    /**
+     * Send message serialized in advance. Unmasked connections write the shared frame buffers without copying,
+     * masked connections have to frame the message again.
+     *
+     * @param frame             prepared frame.
+     * @param completionHandler handler notified when the frame is written.
+     */
+    public void send(PreparedFrame frame, Writer.CompletionHandler<DataFrame> completionHandler) {
+        write(frame.getFrame(), frame, completionHandler, true);
+    }
+
+    /**
+     * Send text message.
+     *
+     * @param data              message.
+     * @param completionHandler handler notified when the frame is written.
+     */
+    public void send(String data, Writer.CompletionHandler<DataFrame> completionHandler) {
+        send(new DataFrame(new TextFrame(), data), completionHandler, true);
+    }
+
+    /**
+     * Send binary message; remaining bytes of provided buffer are written without copying.
+     *
+     * @param data              message payload, must not be modified until the handler is notified.
+     * @param completionHandler handler notified when the frame is written.
+     */
+    public void send(ByteBuffer data, Writer.CompletionHandler<DataFrame> completionHandler) {
+        send(new DataFrame(new BinaryFrame(), data, true), completionHandler, true);
+    }
+
     public Future<DataFrame> stream(boolean last, byte[] bytes, int off, int len) {
         return send(new DataFrame(new BinaryFrame(), Arrays.copyOfRange(bytes, off, off + len), last));
     }
 
+    /**
+     * Send binary fragment; remaining bytes of provided buffer are written without copying.
+     *
+     * @param last     {@code true} if this is the last fragment of the message.
+     * @param fragment fragment payload, must not be modified until returned {@link Future} is done.
+     * @return future completed when the frame is written.
+     */
+    public Future<DataFrame> stream(boolean last, ByteBuffer fragment) {
+        return send(new DataFrame(new BinaryFrame(), fragment, last));
+    }
+
     public Future<DataFrame> stream(boolean last, String fragment) {
         return send(new DataFrame(new TextFrame(), fragment, last));
     }
@@ -179,82 +338,271 @@ public final class ProtocolHandler {
     }
 
     @SuppressWarnings({"unchecked"})
-    private Future<DataFrame> write(final DataFrame frame, final Writer.CompletionHandler<DataFrame> completionHandler, boolean useTimeout) {
-        final Writer localWriter = writer;
+    private Future<DataFrame> write(final DataFrame frame, final PreparedFrame prepared,
+                                    final Writer.CompletionHandler<DataFrame> completionHandler, boolean useTimeout) {
+        final AbstractWriter localWriter = writer;
         final WriteFuture<DataFrame> future = new WriteFuture<DataFrame>();
 
         if (localWriter == null) {
             throw new IllegalStateException("Connection is null");
         }
 
+        if (frameTransformers.isEmpty()) {
+            write(localWriter, frame, prepared, completionHandler, useTimeout, future);
+        } else {
+            // transformers may keep context between messages, so frames have to be written in the transformed order;
+            // the lock is held while choosing between the batched and the direct path too, so that a frame written
+            // directly cannot overtake a batched frame transformed before it.
+            synchronized (transformLock) {
+                write(localWriter, frame, prepared, completionHandler, useTimeout, future);
+            }
+        }
+        return future;
+    }
 
-        if (useTimeout && writeTimeoutMs > 0 && container instanceof ExecutorServiceProvider) {
-            ExecutorService executor = ((ExecutorServiceProvider) container).getExecutorService();
-            try {
-                executor.submit(new Runnable() {
+    private void write(AbstractWriter localWriter, final DataFrame frame, PreparedFrame prepared,
+                       Writer.CompletionHandler<DataFrame> completionHandler, boolean useTimeout,
+                       WriteFuture<DataFrame> future) {
+        if (batchingAllowed) {
+            synchronized (batchLock) {
+                if (batchingAllowed) {
+                    writeBatched(localWriter, frame, prepared, completionHandler, future);
+                    return;
+                }
+            }
+        }
 
-                    @Override
-                    public void run() {
-                        final byte[] bytes = frame(frame);
-                        localWriter.write(bytes, new CompletionHandlerWrapper(completionHandler, future, frame));
-                    }
-                }).get(writeTimeoutMs, TimeUnit.MILLISECONDS);
-            } catch (InterruptedException e) {
-                future.setFailure(e);
-            } catch (ExecutionException e) {
-                future.setFailure(e);
-            } catch (TimeoutException e) {
-                future.setFailure(e);
+        final CompletionHandlerWrapper frameHandler = new CompletionHandlerWrapper(completionHandler, future, frame);
+        final long timeoutMs = writeTimeoutMs;
+        if (useTimeout && timeoutMs > 0) {
+            // the write itself cannot be cancelled, the sender is notified about the failure without waiting for it.
+            frameHandler.setTimeout(getScheduledExecutorService().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    frameHandler.failed(new TimeoutException(
+                            String.format("Frame was not written within %d milliseconds.", timeoutMs)));
+                }
+            }, timeoutMs, TimeUnit.MILLISECONDS));
+        }
+
+        localWriter.write(frame(frame, prepared), frameHandler);
+    }
+
+    /**
+     * Write frame when batching is allowed. Data frames which fit into the batch are copied to it; control frames and
+     * frames bigger than the batch are written directly after the pending batch.
+     * <p/>
+     * Asynchronous sends of batched frames are completed when the batch is written. Blocking sends (no completion
+     * handler) are reported as sent once the frame is copied to the batch, otherwise they would wait for a flush which
+     * may never come.
+     * <p/>
+     * Must be called with {@code batchLock} held, and with {@code transformLock} held when there are frame
+     * transformers.
+     */
+    private void writeBatched(AbstractWriter localWriter, DataFrame frame, PreparedFrame prepared,
+                              Writer.CompletionHandler<DataFrame> completionHandler,
+                              WriteFuture<DataFrame> future) {
+        final ByteBuffer[] buffers = frame(frame, prepared);
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+
+        if (isControlFrame(getOpcode(frame.getType())) || length > batchBufferSize) {
+            flushBatchLocked(localWriter, null);
+            localWriter.write(buffers, new CompletionHandlerWrapper(completionHandler, future, frame));
+            return;
+        }
+
+        if (batch != null && batch.position() + length > batchBufferSize) {
+            flushBatchLocked(localWriter, null);
+        }
+
+        appendToBatch(buffers, length);
+
+        if (completionHandler != null) {
+            if (batchHandlers == null) {
+                batchHandlers = new ArrayList<CompletionHandlerWrapper>();
             }
+            batchHandlers.add(new CompletionHandlerWrapper(completionHandler, future, frame));
         } else {
-            final byte[] bytes = frame(frame);
-            localWriter.write(bytes, new CompletionHandlerWrapper(completionHandler, future, frame));
+            future.setResult(frame);
         }
 
-        return future;
+        if (batch.position() >= batchBufferSize) {
+            flushBatchLocked(localWriter, null);
+        } else if (batchLingerFuture == null && batchLingerTimeMs > 0) {
+            batchLingerFuture = getScheduledExecutorService().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    flushBatch();
+                }
+            }, batchLingerTimeMs, TimeUnit.MILLISECONDS);
+        }
     }
 
-    public DataFrame unframe(ByteBuffer buffer) {
-        return parse(buffer);
+    private void appendToBatch(ByteBuffer[] buffers, int length) {
+        if (batch == null) {
+            batch = ByteBuffer.allocate(Math.max(length, Math.min(INITIAL_BATCH_CAPACITY, batchBufferSize)));
+        } else if (batch.remaining() < length) {
+            int capacity = batch.capacity();
+            while (capacity - batch.position() < length) {
+                capacity = Math.min(capacity << 1, batchBufferSize);
+            }
+            final ByteBuffer grown = ByteBuffer.allocate(capacity);
+            batch.flip();
+            grown.put(batch);
+            batch = grown;
+        }
+
+        for (ByteBuffer buffer : buffers) {
+            batch.put(buffer);
+        }
     }
 
     /**
-     * Convert a byte[] to a long. Used for rebuilding payload length.
+     * Write all batched frames as one buffer. Must be called with {@code batchLock} held.
      *
-     * @param bytes byte array to be converted.
-     * @return converted byte array.
+     * @param localWriter writer to be used.
+     * @param future      future to be completed when the batch is written, can be {@code null}.
      */
-    long decodeLength(byte[] bytes) {
-        return TyrusWebSocketEngine.toLong(bytes, 0, bytes.length);
+    private void flushBatchLocked(AbstractWriter localWriter, final WriteFuture<DataFrame> future) {
+        if (batchLingerFuture != null) {
+            batchLingerFuture.cancel(false);
+            batchLingerFuture = null;
+        }
+
+        final ByteBuffer toWrite = batch;
+        final List<CompletionHandlerWrapper> handlers = batchHandlers;
+        batch = null;
+        batchHandlers = null;
+
+        if (toWrite == null || toWrite.position() == 0) {
+            if (future != null) {
+                future.setResult(null);
+            }
+            return;
+        }
+
+        toWrite.flip();
+        localWriter.write(new ByteBuffer[]{toWrite}, new BatchCompletionHandler(handlers, future));
     }
 
     /**
-     * Converts the length given to the appropriate framing data: <ol> <li>0-125 one element that is the payload length.
-     * <li>up to 0xFFFF, 3 element array starting with 126 with the following 2 bytes interpreted as a 16 bit unsigned
-     * integer showing the payload length. <li>else 9 element array starting with 127 with the following 8 bytes
-     * interpreted as a 64-bit unsigned integer (the high bit must be 0) showing the payload length. </ol>
+     * Get scheduler used for delayed batch writes and write timeouts. Containers which do not provide one share a single daemon thread.
      *
-     * @param length the payload size
-     * @return the array
-     */
-    byte[] encodeLength(final long length) {
-        byte[] lengthBytes;
-        if (length <= 125) {
-            lengthBytes = new byte[1];
-            lengthBytes[0] = (byte) length;
+     * @return scheduled executor service.
+     */
+    private ScheduledExecutorService getScheduledExecutorService() {
+        if (container instanceof ExecutorServiceProvider) {
+            return ((ExecutorServiceProvider) container).getScheduledExecutorService();
+        }
+        return DefaultScheduler.INSTANCE;
+    }
+
+    /**
+     * Write all frames collected while batching was allowed.
+     *
+     * @return future completed when the batched frames are written.
+     */
+    public Future<DataFrame> flushBatch() {
+        final AbstractWriter localWriter = writer;
+        if (localWriter == null) {
+            throw new IllegalStateException("Connection is null");
+        }
+
+        final WriteFuture<DataFrame> future = new WriteFuture<DataFrame>();
+        if (frameTransformers.isEmpty()) {
+            synchronized (batchLock) {
+                flushBatchLocked(localWriter, future);
+            }
         } else {
-            byte[] b = TyrusWebSocketEngine.toArray(length);
-            if (length <= 0xFFFF) {
-                lengthBytes = new byte[3];
-                lengthBytes[0] = 126;
-                System.arraycopy(b, 6, lengthBytes, 1, 2);
-            } else {
-                lengthBytes = new byte[9];
-                lengthBytes[0] = 127;
-                System.arraycopy(b, 0, lengthBytes, 1, 8);
+            // the same lock order as in write
+            synchronized (transformLock) {
+                synchronized (batchLock) {
+                    flushBatchLocked(localWriter, future);
+                }
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Allow or disallow batching of outgoing frames. Frames batched so far are written when batching is disallowed.
+     *
+     * @param allowed {@code true} when outgoing frames can be batched.
+     * @return future completed when the batched frames are written, {@code null} when batching is allowed.
+     */
+    public Future<DataFrame> setBatchingAllowed(boolean allowed) {
+        if (allowed || frameTransformers.isEmpty()) {
+            synchronized (batchLock) {
+                batchingAllowed = allowed;
+            }
+            return allowed ? null : flushBatch();
+        }
+
+        // frames written directly once batching is disallowed are transformed after the batched ones,
+        // so the batch has to be written before any of them.
+        final AbstractWriter localWriter = writer;
+        if (localWriter == null) {
+            throw new IllegalStateException("Connection is null");
+        }
+
+        final WriteFuture<DataFrame> future = new WriteFuture<DataFrame>();
+        synchronized (transformLock) {
+            synchronized (batchLock) {
+                batchingAllowed = false;
+                flushBatchLocked(localWriter, future);
             }
         }
-        return lengthBytes;
+        return future;
+    }
+
+    /**
+     * Get the batching mode.
+     *
+     * @return {@code true} when outgoing frames can be batched.
+     */
+    public boolean getBatchingAllowed() {
+        return batchingAllowed;
+    }
+
+    /**
+     * Check whether the underlying {@link Writer} accepts more data without queueing it.
+     *
+     * @return {@code true} when frames can be written without being queued.
+     */
+    public boolean isWritable() {
+        final AbstractWriter localWriter = writer;
+        return localWriter != null && localWriter.isWritable();
+    }
+
+    /**
+     * Set the maximal size of the batch. Batch is written when it reaches this size, frames bigger than that are
+     * never batched.
+     *
+     * @param batchBufferSize batch size in bytes, {@link #DEFAULT_BATCH_BUFFER_SIZE} is used when not positive.
+     */
+    public void setBatchBufferSize(int batchBufferSize) {
+        synchronized (batchLock) {
+            this.batchBufferSize = batchBufferSize > 0 ? batchBufferSize : DEFAULT_BATCH_BUFFER_SIZE;
+        }
+    }
+
+    /**
+     * Set the time after which the batch is written even if it is not full and {@link #flushBatch()} was not called.
+     *
+     * @param lingerTimeMs linger time in milliseconds, batch is written only when full or explicitly flushed when
+     *                     not positive.
+     */
+    public void setBatchLingerTime(long lingerTimeMs) {
+        synchronized (batchLock) {
+            this.batchLingerTimeMs = lingerTimeMs;
+        }
+    }
+
+    public DataFrame unframe(ByteBuffer buffer) {
+        return parse(buffer);
     }
 
     void validate(final byte fragmentType, byte opcode) {
@@ -283,7 +631,8 @@ public final class ProtocolHandler {
     }
 
     public void doClose() {
-        final Writer localWriter = writer;
+        destroyFrameTransformers();
+        final AbstractWriter localWriter = writer;
         if (localWriter == null) {
             throw new IllegalStateException("Connection is null");
         }
@@ -295,55 +644,44 @@ public final class ProtocolHandler {
         }
     }
 
-    void utf8Decode(boolean finalFragment, byte[] data, DataFrame dataFrame) {
-        final ByteBuffer b = getByteBuffer(data);
-        int n = (int) (b.remaining() * currentDecoder.averageCharsPerByte());
-        CharBuffer cb = CharBuffer.allocate(n);
-        for (; ; ) {
-            CoderResult result = currentDecoder.decode(b, cb, finalFragment);
-            if (result.isUnderflow()) {
-                if (finalFragment) {
-                    currentDecoder.flush(cb);
-                    if (b.hasRemaining()) {
-                        throw new IllegalStateException("Final UTF-8 fragment received, but not all bytes consumed by decode process");
-                    }
-                    currentDecoder.reset();
-                } else {
-                    if (b.hasRemaining()) {
-                        remainder = b;
-                    }
-                }
-                cb.flip();
-                String res = cb.toString();
-                dataFrame.setPayload(res);
-                dataFrame.setPayload(Utf8Utils.encode(new StrictUtf8(), res));
-                break;
-            }
-            if (result.isOverflow()) {
-                CharBuffer tmp = CharBuffer.allocate(2 * n + 1);
-                cb.flip();
-                tmp.put(cb);
-                cb = tmp;
-                continue;
-            }
-            if (result.isError() || result.isMalformed()) {
-                throw new Utf8DecodingError("Illegal UTF-8 Sequence");
-            }
+    /**
+     * Validate text frame payload and set the text of the frame. The text is created lazily, only when
+     * {@link DataFrame#getTextPayload()} is called.
+     * <p/>
+     * Bytes of a character split between fragments are carried over to the next fragment.
+     *
+     * @param finalFragment {@code true} if the frame is the last fragment of the message.
+     * @param data          frame payload, position of the buffer is not changed.
+     * @param dataFrame     parsed frame.
+     */
+    void utf8Decode(boolean finalFragment, ByteBuffer data, DataFrame dataFrame) {
+        utf8Validator.validate(data);
+
+        ByteBuffer text = data.duplicate();
+        if (utf8CarryLength > 0) {
+            final byte[] joined = new byte[utf8CarryLength + data.remaining()];
+            System.arraycopy(utf8Carry, 0, joined, 0, utf8CarryLength);
+            text.get(joined, utf8CarryLength, data.remaining());
+            text = ByteBuffer.wrap(joined);
         }
-    }
 
-    ByteBuffer getByteBuffer(final byte[] data) {
-        if (remainder == null) {
-            return ByteBuffer.wrap(data);
+        final int pending = utf8Validator.getPending();
+        if (finalFragment) {
+            utf8Validator.reset();
+            utf8CarryLength = 0;
+            if (pending > 0) {
+                throw new Utf8DecodingError("Illegal UTF-8 Sequence");
+            }
         } else {
-            final int rem = remainder.remaining();
-            final byte[] orig = remainder.array();
-            byte[] b = new byte[rem + data.length];
-            System.arraycopy(orig, orig.length - rem, b, 0, rem);
-            System.arraycopy(data, 0, b, rem, data.length);
-            remainder = null;
-            return ByteBuffer.wrap(b);
+            final int textEnd = text.limit() - pending;
+            for (int i = 0; i < pending; i++) {
+                utf8Carry[i] = text.get(textEnd + i);
+            }
+            utf8CarryLength = pending;
+            text.limit(textEnd);
         }
+
+        dataFrame.setUtf8Payload(text);
     }
 
     /**
@@ -364,26 +702,126 @@ public final class ProtocolHandler {
         this.container = container;
     }
 
-    public byte[] frame(DataFrame frame) {
-        byte opcode = checkForLastFrame(frame, getOpcode(frame.getType()));
-        final byte[] bytes = frame.getType().getBytes(frame);
-        final byte[] lengthBytes = encodeLength(bytes.length);
+    /**
+     * Create the wire representation of given frame.
+     * <p/>
+     * Unmasked (server side) frames are returned as a header buffer followed by a view of the frame payload, so
+     * the payload is never copied. Masked (client side) frames need to transform the payload anyway, so the header
+     * and masked payload are written into one buffer.
+     *
+     * @param frame frame to be serialized.
+     * @return buffers to be written in the given order.
+     */
+    public ByteBuffer[] frame(DataFrame frame) {
+        final byte type = getOpcode(frame.getType());
+        final boolean firstFragment = outFragmentedType == 0;
+        byte opcode = checkForLastFrame(frame, type);
+        ByteBuffer payload = frame.getPayloadBuffer();
+
+        final List<FrameTransformer> transformers = frameTransformers;
+        if (!transformers.isEmpty() && !isControlFrame(type)) {
+            for (FrameTransformer transformer : transformers) {
+                payload = transformer.encode(payload, firstFragment, frame.isLast());
+                if (firstFragment) {
+                    opcode |= transformer.getRsvBits();
+                }
+            }
+        }
+        final int payloadLength = payload.remaining();
+        final int headerLength = getHeaderLength(payloadLength);
 
-        int length = 1 + lengthBytes.length + bytes.length + (maskData ? TyrusWebSocketEngine.MASK_SIZE : 0);
-        int payloadStart = 1 + lengthBytes.length + (maskData ? TyrusWebSocketEngine.MASK_SIZE : 0);
-        final byte[] packet = new byte[length];
-        packet[0] = opcode;
-        System.arraycopy(lengthBytes, 0, packet, 1, lengthBytes.length);
         if (maskData) {
-            Masker masker = new Masker();
-            packet[1] |= 0x80;
-            masker.mask(packet, payloadStart, bytes);
-            System.arraycopy(masker.getMask(), 0, packet, payloadStart - TyrusWebSocketEngine.MASK_SIZE,
-                    TyrusWebSocketEngine.MASK_SIZE);
+            final ByteBuffer packet = ByteBuffer.allocate(headerLength + payloadLength);
+            putHeader(packet, opcode, payloadLength);
+            synchronized (outgoingMasker) {
+                outgoingMasker.setMask(maskingKeyGenerator.nextInt());
+                packet.putInt(outgoingMasker.getMask());
+                outgoingMasker.mask(packet, payload);
+            }
+            packet.flip();
+            return new ByteBuffer[]{packet};
+        } else {
+            final ByteBuffer header = ByteBuffer.allocate(headerLength);
+            putHeader(header, opcode, payloadLength);
+            header.flip();
+            return new ByteBuffer[]{header, payload};
+        }
+    }
+
+    /**
+     * Get the wire representation of given frame, reusing prepared frame when possible.
+     *
+     * @param frame    frame to be serialized.
+     * @param prepared serialized frame, can be {@code null}.
+     * @return buffers to be written in the given order.
+     */
+    private ByteBuffer[] frame(DataFrame frame, PreparedFrame prepared) {
+        final ByteBuffer[] buffers;
+        if (prepared == null || maskData || outFragmentedType != 0 || !frameTransformers.isEmpty()) {
+            buffers = frame(frame);
         } else {
-            System.arraycopy(bytes, 0, packet, payloadStart, bytes.length);
+            buffers = prepared.getBuffers();
+        }
+
+        final EndpointMetrics localMetrics = metrics;
+        if (localMetrics != null) {
+            long length = 0;
+            for (ByteBuffer buffer : buffers) {
+                length += buffer.remaining();
+            }
+            localMetrics.onFrameSent(getOpcode(frame.getType()), length);
+        }
+        return buffers;
+    }
+
+    /**
+     * Compute frame header length (including masking key, if used) for given payload length.
+     *
+     * @param payloadLength payload length.
+     * @return header length in bytes.
+     */
+    int getHeaderLength(int payloadLength) {
+        return getHeaderLength(payloadLength, maskData);
+    }
+
+    static int getHeaderLength(int payloadLength, boolean masked) {
+        final int lengthBytes;
+        if (payloadLength <= 125) {
+            lengthBytes = 1;
+        } else if (payloadLength <= 0xFFFF) {
+            lengthBytes = 3;
+        } else {
+            lengthBytes = 9;
+        }
+        return 1 + lengthBytes + (masked ? TyrusWebSocketEngine.MASK_SIZE : 0);
+    }
+
+    /**
+     * Puts opcode and payload length to given buffer. The length is encoded as: <ol> <li>0-125 one byte that is
+     * the payload length. <li>up to 0xFFFF, 126 followed by 2 bytes interpreted as a 16 bit unsigned integer
+     * showing the payload length. <li>else 127 followed by 8 bytes interpreted as a 64-bit unsigned integer (the
+     * high bit must be 0) showing the payload length. </ol>
+     *
+     * @param buffer        target buffer.
+     * @param opcode        frame opcode including FIN bit.
+     * @param payloadLength payload length.
+     */
+    private void putHeader(ByteBuffer buffer, byte opcode, int payloadLength) {
+        putHeader(buffer, opcode, payloadLength, maskData);
+    }
+
+    static void putHeader(ByteBuffer buffer, byte opcode, int payloadLength, boolean masked) {
+        final byte maskBit = (byte) (masked ? 0x80 : 0x00);
+        buffer.put(opcode);
+        if (payloadLength <= 125) {
+            buffer.put((byte) (payloadLength | maskBit));
+        } else if (payloadLength <= 0xFFFF) {
+            buffer.put((byte) (126 | maskBit));
+            buffer.putShort((short) payloadLength);
+        } else {
+            buffer.put((byte) (127 | maskBit));
+            buffer.putLong(payloadLength);
         }
-        return packet;
     }
 
     DataFrame parse(ByteBuffer buffer) {
@@ -398,15 +836,14 @@ public final class ProtocolHandler {
                     }
 
                     byte opcode = buffer.get();
-                    boolean rsvBitSet = isBitSet(opcode, 6)
-                            || isBitSet(opcode, 5)
-                            || isBitSet(opcode, 4);
-                    if (rsvBitSet) {
+                    final int rsv = opcode & 0x70;
+                    if ((rsv & ~extensionRsvBits) != 0 || (rsv != 0 && isControlFrame(opcode))) {
                         throw new ProtocolError("RSV bit(s) incorrectly set.");
                     }
+                    state.rsv = rsv;
                     state.finalFragment = isBitSet(opcode, 7);
                     state.controlFrame = isControlFrame(opcode);
-                    state.opcode = (byte) (opcode & 0x7f);
+                    state.opcode = (byte) (opcode & 0x0f);
                     state.frame = valueOf(inFragmentedType, state.opcode);
                     if (!state.finalFragment && state.controlFrame) {
                         throw new ProtocolError("Fragmented control frame");
@@ -431,7 +868,6 @@ public final class ProtocolHandler {
                     byte lengthCode = buffer.get();
 
                     state.masked = (lengthCode & 0x80) == 0x80;
-                    state.masker = new Masker(buffer);
                     if (state.masked) {
                         lengthCode ^= 0x80;
                     }
@@ -452,8 +888,14 @@ public final class ProtocolHandler {
                             // Don't have enought bytes to read length
                             return null;
                         }
-                        state.masker.setBuffer(buffer);
-                        state.length = decodeLength(state.masker.unmask(lengthBytes));
+                        long length = 0;
+                        for (int i = 0; i < lengthBytes; i++) {
+                            length = (length << 8) | (buffer.get() & 0xFF);
+                        }
+                        if (length < 0) {
+                            throw new ProtocolError("Frame payload length exceeds 2^63 - 1 bytes.");
+                        }
+                        state.length = length;
                     }
                     state.state++;
                 case 2:
@@ -462,8 +904,7 @@ public final class ProtocolHandler {
                             // Don't have enough bytes to read mask
                             return null;
                         }
-                        state.masker.setBuffer(buffer);
-                        state.masker.readMask();
+                        state.masker.readMask(buffer);
                     }
                     state.state++;
                 case 3:
@@ -471,16 +912,23 @@ public final class ProtocolHandler {
                         return null;
                     }
 
-                    state.masker.setBuffer(buffer);
-                    final byte[] data = state.masker.unmask((int) state.length);
-                    if (data.length != state.length) {
-                        throw new ProtocolError(String.format("Data read (%s) is not the expected" +
-                                " size (%s)", data.length, state.length));
+                    // payload is unmasked in place and handed over as a slice of the read buffer, it is processed
+                    // before the buffer is reused.
+                    final ByteBuffer data = buffer.slice();
+                    data.limit((int) state.length);
+                    buffer.position(buffer.position() + (int) state.length);
+                    state.masker.unmask(data);
+                    final ByteBuffer payload = state.controlFrame ? data : decode(data);
+                    dataFrame = state.frame.create(state.finalFragment, payload);
+
+                    final EndpointMetrics localMetrics = metrics;
+                    if (localMetrics != null) {
+                        localMetrics.onFrameReceived(isContinuationFrame(state.opcode) ? inFragmentedType : state.opcode,
+                                getHeaderLength((int) state.length, !maskData) + state.length);
                     }
-                    dataFrame = state.frame.create(state.finalFragment, data);
 
                     if (!state.controlFrame && (isTextFrame(state.opcode) || inFragmentedType == 1)) {
-                        utf8Decode(state.finalFragment, data, dataFrame);
+                        utf8Decode(state.finalFragment, payload, dataFrame);
                     }
 
                     if (!state.controlFrame && state.finalFragment) {
@@ -507,6 +955,23 @@ public final class ProtocolHandler {
 
     }
 
+    /**
+     * Apply frame transformers to payload of an incoming data frame, in the reverse order of negotiation.
+     *
+     * @param payload frame payload.
+     * @return transformed payload.
+     */
+    private ByteBuffer decode(ByteBuffer payload) {
+        final List<FrameTransformer> transformers = frameTransformers;
+        final boolean firstFragment = !isContinuationFrame(state.opcode);
+        final int maxSize = maxMessageSize;
+        ByteBuffer result = payload;
+        for (int i = transformers.size() - 1; i >= 0; i--) {
+            result = transformers.get(i).decode(result, state.rsv, firstFragment, state.finalFragment, maxSize);
+        }
+        return result;
+    }
+
     boolean isControlFrame(byte opcode) {
         return (opcode & 0x08) == 0x08;
     }
@@ -523,7 +988,7 @@ public final class ProtocolHandler {
         return opcode == 1;
     }
 
-    private byte getOpcode(Frame type) {
+    static byte getOpcode(Frame type) {
         if (type instanceof TextFrame) {
             return 0x01;
         } else if (type instanceof BinaryFrame) {
@@ -543,31 +1008,102 @@ public final class ProtocolHandler {
         final int opcode = value & 0xF;
         switch (opcode) {
             case 0x00:
-                return new ContinuationFrame((fragmentType & 0x01) == 0x01);
+                return (fragmentType & 0x01) == 0x01 ? TEXT_CONTINUATION_FRAME : BINARY_CONTINUATION_FRAME;
             case 0x01:
-                return new TextFrame();
+                return TEXT_FRAME;
             case 0x02:
-                return new BinaryFrame();
+                return BINARY_FRAME;
             case 0x08:
-                return new ClosingFrame();
+                return CLOSING_FRAME;
             case 0x09:
-                return new PingFrame();
+                return PING_FRAME;
             case 0x0A:
-                return new PongFrame();
+                return PONG_FRAME;
             default:
                 throw new ProtocolError(String.format("Unknown frame type: %s, %s",
                         Integer.toHexString(opcode & 0xFF).toUpperCase(Locale.US), writer));
         }
     }
 
+    /**
+     * Handler of the batch write. Completes asynchronous sends of batched frames; when the batch cannot be written,
+     * frames of blocking sends were already reported as sent, so the connection is closed.
+     */
+    private class BatchCompletionHandler extends Writer.CompletionHandler<ByteBuffer[]> {
+
+        private final List<CompletionHandlerWrapper> handlers;
+        private final WriteFuture<DataFrame> future;
+
+        private BatchCompletionHandler(List<CompletionHandlerWrapper> handlers, WriteFuture<DataFrame> future) {
+            this.handlers = handlers == null ? Collections.<CompletionHandlerWrapper>emptyList() : handlers;
+            this.future = future;
+        }
+
+        @Override
+        public void cancelled() {
+            for (CompletionHandlerWrapper handler : handlers) {
+                handler.cancelled();
+            }
+            batchFailed(new IOException("Batch writing was cancelled."));
+        }
+
+        @Override
+        public void failed(Throwable throwable) {
+            for (CompletionHandlerWrapper handler : handlers) {
+                handler.failed(throwable);
+            }
+            batchFailed(throwable);
+        }
+
+        @Override
+        public void completed(ByteBuffer[] result) {
+            for (CompletionHandlerWrapper handler : handlers) {
+                handler.completed(result);
+            }
+            if (future != null) {
+                future.setResult(null);
+            }
+        }
+
+        private void batchFailed(Throwable throwable) {
+            if (future != null) {
+                future.setFailure(throwable);
+            }
+
+            LOGGER.log(Level.WARNING, "Batched frames could not be written, closing the connection.", throwable);
+            final WebSocket localWebSocket = webSocket;
+            if (localWebSocket != null) {
+                localWebSocket.close(CloseReason.CloseCodes.UNEXPECTED_CONDITION.getCode(), "Batched frames could not be written.");
+            }
+        }
+    }
+
+    /**
+     * Scheduler used when the container does not provide one, created on first use.
+     */
+    private static class DefaultScheduler {
+        private static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                final Thread thread = new Thread(r, "tyrus-protocol-scheduler");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     /**
      * Handler passed to the {@link org.glassfish.tyrus.spi.Writer}.
+     * <p/>
+     * Only the first result is reported, so a write which times out and completes later is reported as failed.
      */
-    private static class CompletionHandlerWrapper extends Writer.CompletionHandler<byte[]> {
+    private static class CompletionHandlerWrapper extends Writer.CompletionHandler<ByteBuffer[]> {
 
         private final Writer.CompletionHandler<DataFrame> frameCompletionHandler;
         private final WriteFuture<DataFrame> future;
         private final DataFrame frame;
+        private final AtomicBoolean done = new AtomicBoolean(false);
+        private volatile ScheduledFuture<?> timeout;
 
         private CompletionHandlerWrapper(Writer.CompletionHandler<DataFrame> frameCompletionHandler, WriteFuture<DataFrame> future, DataFrame frame) {
             this.frameCompletionHandler = frameCompletionHandler;
@@ -575,8 +1111,36 @@ public final class ProtocolHandler {
             this.frame = frame;
         }
 
+        /**
+         * Set the task failing the write when it does not complete in time.
+         *
+         * @param timeout scheduled timeout task, cancelled when the write completes.
+         */
+        void setTimeout(ScheduledFuture<?> timeout) {
+            this.timeout = timeout;
+            if (done.get()) {
+                timeout.cancel(false);
+            }
+        }
+
+        private boolean done() {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+
+            final ScheduledFuture<?> localTimeout = timeout;
+            if (localTimeout != null) {
+                localTimeout.cancel(false);
+            }
+            return true;
+        }
+
         @Override
         public void cancelled() {
+            if (!done()) {
+                return;
+            }
+
             if (frameCompletionHandler != null) {
                 frameCompletionHandler.cancelled();
             }
@@ -588,6 +1152,10 @@ public final class ProtocolHandler {
 
         @Override
         public void failed(Throwable throwable) {
+            if (!done()) {
+                return;
+            }
+
             if (frameCompletionHandler != null) {
                 frameCompletionHandler.failed(throwable);
             }
@@ -598,7 +1166,11 @@ public final class ProtocolHandler {
         }
 
         @Override
-        public void completed(byte[] result) {
+        public void completed(ByteBuffer[] result) {
+            if (!done()) {
+                return;
+            }
+
             if (frameCompletionHandler != null) {
                 frameCompletionHandler.completed(frame);
             }
@@ -609,7 +1181,7 @@ public final class ProtocolHandler {
         }
 
         @Override
-        public void updated(byte[] result) {
+        public void updated(ByteBuffer[] result) {
             if (frameCompletionHandler != null) {
                 frameCompletionHandler.updated(frame);
             }
@@ -622,9 +1194,10 @@ public final class ProtocolHandler {
         long length = -1;
         Frame frame;
         boolean masked;
-        Masker masker;
+        final Masker masker = new Masker();
         boolean finalFragment;
         boolean controlFrame;
+        int rsv;
         private byte lengthCode = -1;
 
         void recycle() {
@@ -633,9 +1206,10 @@ public final class ProtocolHandler {
             length = -1;
             lengthCode = -1;
             masked = false;
-            masker = null;
+            masker.reset();
             finalFragment = false;
             controlFrame = false;
+            rsv = 0;
             frame = null;
         }
     }
@@ -40,7 +40,7 @@
 
 package org.glassfish.tyrus.websockets;
 
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
@@ -55,6 +55,22 @@ class SecKey {
     private static final Random random = new SecureRandom();
 
     private static final int KEY_SIZE = 16;
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+    private static final byte[] SERVER_KEY_HASH = TyrusWebSocketEngine.SERVER_KEY_HASH.getBytes(ASCII);
+
+    /**
+     * SHA-1 digest is not thread safe and looking it up by name is expensive, so each thread keeps its own.
+     */
+    private static final ThreadLocal<MessageDigest> SHA1 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new HandshakeException(e.getMessage());
+            }
+        }
+    };
 
     /**
      * Security key string representation, which includes chars and spaces.
@@ -86,22 +102,17 @@ class SecKey {
      * @return server key.
      */
     public static SecKey generateServerKey(SecKey clientKey) throws HandshakeException {
-        String key = clientKey.getSecKey() + TyrusWebSocketEngine.SERVER_KEY_HASH;
-        final MessageDigest instance;
-        try {
-            instance = MessageDigest.getInstance("SHA-1");
-            instance.update(key.getBytes("UTF-8"));
-            final byte[] digest = instance.digest();
-            if (digest.length != 20) {
-                throw new HandshakeException("Invalid key length.  Should be 20: " + digest.length);
-            }
-
-            return new SecKey(Base64Utils.encodeToString(digest, false));
-        } catch (NoSuchAlgorithmException e) {
-            throw new HandshakeException(e.getMessage());
-        } catch (UnsupportedEncodingException e) {
-            throw new HandshakeException(e.getMessage());
+        final MessageDigest instance = SHA1.get();
+        instance.reset();
+        // key is base64 encoded, so it is ASCII
+        instance.update(clientKey.getSecKey().getBytes(ASCII));
+        instance.update(SERVER_KEY_HASH);
+        final byte[] digest = instance.digest();
+        if (digest.length != 20) {
+            throw new HandshakeException("Invalid key length.  Should be 20: " + digest.length);
         }
+
+        return new SecKey(Base64Utils.encodeToString(digest, false));
     }
 
     /**
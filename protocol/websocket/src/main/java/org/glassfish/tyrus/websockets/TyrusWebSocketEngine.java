@@ -56,7 +56,9 @@ import javax.websocket.DeploymentException;
 
 import org.glassfish.tyrus.spi.HandshakeRequest;
 import org.glassfish.tyrus.spi.Writer;
+import org.glassfish.tyrus.websockets.monitoring.EndpointMetrics;
 import org.glassfish.tyrus.websockets.uri.Match;
+import org.glassfish.tyrus.websockets.uri.PathRouter;
 
 /**
  * WebSockets engine implementation (singleton), which handles {@link WebSocketApplication}s registration, responsible
@@ -85,13 +87,14 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
     public static final String SERVER_KEY_HASH = "258EAFA5-E914-47DA-95CA-C5AB0DC85B11";
     public static final int MASK_SIZE = 4;
 
-    private static int BUFFER_STEP_SIZE = 256;
     private static final Logger LOGGER = Logger.getLogger(TyrusWebSocketEngine.WEBSOCKET);
 
     private final Set<WebSocketApplication> applications = Collections.newSetFromMap(new ConcurrentHashMap<WebSocketApplication, Boolean>());
+    private final PathRouter router = new PathRouter();
     private final Map<Writer, WebSocketHolder> webSocketHolderMap = new ConcurrentHashMap<Writer, WebSocketHolder>();
 
     private int incomingBufferSize = 4194315; // 4M (payload) + 11 (frame overhead)
+    private ByteBufferPool bufferPool = new ByteBufferPool();
 
     public TyrusWebSocketEngine() {
     }
@@ -152,7 +155,7 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
 
         final String requestPath = request.getRequestUri();
 
-        for (Match m : Match.getAllMatches(requestPath, applications)) {
+        for (Match m : router.getAllMatches(requestPath)) {
             final WebSocketApplication webSocketApplication = m.getWebSocketApplication();
 
             for (String name : m.getParameterNames()) {
@@ -194,6 +197,8 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
     public boolean upgrade(final Writer writer, HandshakeRequest request,
                            ResponseWriter responseWriter, UpgradeListener upgradeListener) throws HandshakeException {
         final WebSocketApplication app = getApplication(request);
+        final EndpointMetrics metrics = app == null ? null : app.getMetrics();
+        final long start = metrics == null ? 0 : System.nanoTime();
 
         WebSocket socket = null;
         try {
@@ -204,9 +209,13 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
                     return false;
                 }
                 protocolHandler.setWriter(writer);
+                protocolHandler.setMetrics(metrics);
                 socket = app.createSocket(protocolHandler, app);
                 setWebSocketHolder(writer, protocolHandler, null, socket, app);
                 protocolHandler.handshake(responseWriter, app, request);
+                if (metrics != null) {
+                    metrics.onHandshake(System.nanoTime() - start);
+                }
 
                 if (upgradeListener != null) {
                     upgradeListener.onUpgradeFinished();
@@ -217,6 +226,9 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
             }
         } catch (HandshakeException e) {
             LOGGER.log(Level.SEVERE, e.getMessage(), e);
+            if (metrics != null) {
+                metrics.onHandshakeFailed();
+            }
             if (socket != null) {
                 socket.close();
             }
@@ -230,31 +242,38 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
         try {
             if (data != null && data.hasRemaining()) {
 
+                // data are parsed directly from the incoming buffer and only the incomplete frame is kept
                 if (holder.buffer != null) {
                     data = appendBuffers(holder.buffer, data);
-                } else {
-                    int newSize = data.remaining();
-                    if (newSize > incomingBufferSize) {
-                        throw new IllegalArgumentException("Buffer overflow.");
-                    } else {
-                        final int roundedSize = (newSize % BUFFER_STEP_SIZE) > 0 ? ((newSize / BUFFER_STEP_SIZE) + 1) * BUFFER_STEP_SIZE : newSize;
-                        final ByteBuffer result = ByteBuffer.allocate(roundedSize > incomingBufferSize ? newSize : roundedSize);
-                        result.flip();
-                        data = appendBuffers(result, data);
-                    }
+                    holder.buffer = data;
                 }
 
                 do {
                     final DataFrame result = holder.handler.unframe(data);
                     if (result == null) {
-                        holder.buffer = data;
                         break;
                     } else {
                         result.respond(holder.webSocket);
                     }
                 } while (true);
+
+                if (holder.buffer != null) {
+                    if (!data.hasRemaining()) {
+                        holder.buffer = null;
+                        bufferPool.release(data);
+                    }
+                } else if (data.hasRemaining()) {
+                    if (data.remaining() > incomingBufferSize) {
+                        throw new IllegalArgumentException("Buffer overflow.");
+                    }
+                    final ByteBuffer buffer = bufferPool.acquire(data.remaining());
+                    buffer.put(data);
+                    buffer.flip();
+                    holder.buffer = buffer;
+                }
             }
         } catch (FramingException e) {
+            releaseBuffer(holder);
             holder.webSocket.onClose(new ClosingDataFrame(e.getClosingCode(), e.getMessage()));
         } catch (Exception wse) {
             if (holder.application.onError(holder.webSocket, wse)) {
@@ -282,12 +301,20 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
     }
 
     /**
-     * Concatenates two buffers into one. If buffer given as first argument has enough space for putting
-     * the other one, it will be done and the original buffer will be returned. Otherwise new buffer will
-     * be created.
+     * Set the pool of buffers holding incomplete frames.
      *
-     * @param buffer  first buffer.
-     * @param buffer1 second buffer.
+     * @param bufferPool buffer pool.
+     */
+    public void setBufferPool(ByteBufferPool bufferPool) {
+        this.bufferPool = bufferPool;
+    }
+
+    /**
+     * Appends data to the buffer. If the buffer has not enough space, bigger buffer is taken from the pool and
+     * the original one is returned to it.
+     *
+     * @param buffer  pooled buffer.
+     * @param buffer1 data to be appended.
      * @return concatenation.
      */
     private ByteBuffer appendBuffers(ByteBuffer buffer, ByteBuffer buffer1) {
@@ -313,17 +340,17 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
             buffer.put(buffer1);
             buffer.flip();
             return buffer;
-            // create new buffer
+            // take bigger buffer
         } else {
             int newSize = remaining + len;
             if (newSize > incomingBufferSize) {
                 throw new IllegalArgumentException("Buffer overflow.");
             } else {
-                final int roundedSize = (newSize % BUFFER_STEP_SIZE) > 0 ? ((newSize / BUFFER_STEP_SIZE) + 1) * BUFFER_STEP_SIZE : newSize;
-                final ByteBuffer result = ByteBuffer.allocate(roundedSize > incomingBufferSize ? newSize : roundedSize);
+                final ByteBuffer result = bufferPool.acquire(newSize);
                 result.put(buffer);
                 result.put(buffer1);
                 result.flip();
+                bufferPool.release(buffer);
                 return result;
             }
         }
@@ -337,18 +364,13 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
      * @throws DeploymentException when added applications responds to same path as some already registered application.
      */
     public void register(WebSocketApplication app) throws DeploymentException {
-        checkPath(app);
-        applications.add(app);
-    }
-
-    private void checkPath(WebSocketApplication app) throws DeploymentException {
-        for (WebSocketApplication webSocketApplication : applications) {
-            if (Match.isEquivalent(app.getPath(), webSocketApplication.getPath())) {
-                throw new DeploymentException(String.format(
-                        "Found Equivalent paths. Added path: '%s' is equivalent with '%s'.", app.getPath(),
-                        webSocketApplication.getPath()));
-            }
+        final WebSocketApplication equivalent = router.add(app);
+        if (equivalent != null) {
+            throw new DeploymentException(String.format(
+                    "Found Equivalent paths. Added path: '%s' is equivalent with '%s'.", app.getPath(),
+                    equivalent.getPath()));
         }
+        applications.add(app);
     }
 
     /**
@@ -359,6 +381,7 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
      */
     public void unregister(WebSocketApplication app) {
         applications.remove(app);
+        router.remove(app);
     }
 
 //    /**
@@ -400,13 +423,26 @@ public class TyrusWebSocketEngine implements org.glassfish.tyrus.spi.WebSocketEn
 
     public WebSocketHolder setWebSocketHolder(final Writer writer, ProtocolHandler handler, WebSocketRequest request, WebSocket socket, WebSocketApplication application) {
         final WebSocketHolder holder = new WebSocketHolder(handler, socket, (request == null ? null : handler.createClientHandShake(request)), application);
+        handler.setMaxMessageSize(incomingBufferSize);
 
         webSocketHolderMap.put(writer, holder);
         return holder;
     }
 
     public void removeConnection(Writer writer) {
-        webSocketHolderMap.remove(writer);
+        final WebSocketHolder holder = webSocketHolderMap.remove(writer);
+        if (holder != null) {
+            holder.handler.destroyFrameTransformers();
+            releaseBuffer(holder);
+        }
+    }
+
+    private void releaseBuffer(WebSocketHolder holder) {
+        final ByteBuffer buffer = holder.buffer;
+        if (buffer != null) {
+            holder.buffer = null;
+            bufferPool.release(buffer);
+        }
     }
 
     /**
@@ -0,0 +1,175 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental UTF-8 validator.
+ * <p/>
+ * Implemented as a DFA over input bytes (see <a href="http://bjoern.hoehrmann.de/utf-8/decoder/dfa/">Flexible and
+ * Economical UTF-8 Decoder</a>), which rejects overlong forms, surrogates and code points above U+10FFFF the same way
+ * as {@link StrictUtf8} does. Sequences split between fragments are carried over to the next call.
+ */
+final class Utf8Validator {
+
+    private static final int ACCEPT = 0;
+    private static final int REJECT = 12;
+
+    private static final byte[] TYPES = new byte[256];
+
+    private static final byte[] TRANSITIONS = {
+            0, 12, 24, 36, 60, 96, 84, 12, 12, 12, 48, 72,
+            12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12,
+            12, 0, 12, 12, 12, 12, 12, 0, 12, 0, 12, 12,
+            12, 24, 12, 12, 12, 12, 12, 24, 12, 24, 12, 12,
+            12, 12, 12, 12, 12, 12, 12, 24, 12, 12, 12, 12,
+            12, 24, 12, 12, 12, 12, 12, 12, 12, 24, 12, 12,
+            12, 12, 12, 12, 12, 12, 12, 36, 12, 36, 12, 12,
+            12, 36, 12, 12, 12, 12, 12, 36, 12, 36, 12, 12,
+            12, 36, 12, 12, 12, 12, 12, 12, 12, 12, 12, 12
+    };
+
+    static {
+        fill(0x00, 0x7F, 0);
+        fill(0x80, 0x8F, 1);
+        fill(0x90, 0x9F, 9);
+        fill(0xA0, 0xBF, 7);
+        fill(0xC0, 0xC1, 8);
+        fill(0xC2, 0xDF, 2);
+        fill(0xE0, 0xE0, 10);
+        fill(0xE1, 0xEC, 3);
+        fill(0xED, 0xED, 4);
+        fill(0xEE, 0xEF, 3);
+        fill(0xF0, 0xF0, 11);
+        fill(0xF1, 0xF3, 6);
+        fill(0xF4, 0xF4, 5);
+        fill(0xF5, 0xFF, 8);
+    }
+
+    private static void fill(int from, int to, int type) {
+        for (int i = from; i <= to; i++) {
+            TYPES[i] = (byte) type;
+        }
+    }
+
+    private int state = ACCEPT;
+    private int pending = 0;
+
+    /**
+     * Validate next part of the text.
+     *
+     * @param data   data.
+     * @param offset offset of the first byte to be validated.
+     * @param length number of bytes to be validated.
+     * @throws Utf8DecodingError when the data are not valid UTF-8.
+     */
+    void validate(byte[] data, int offset, int length) {
+        int s = state;
+        int p = pending;
+        final int end = offset + length;
+
+        for (int i = offset; i < end; i++) {
+            s = TRANSITIONS[s + TYPES[data[i] & 0xFF]];
+            if (s == ACCEPT) {
+                p = 0;
+            } else if (s == REJECT) {
+                reset();
+                throw new Utf8DecodingError("Illegal UTF-8 Sequence");
+            } else {
+                p++;
+            }
+        }
+
+        state = s;
+        pending = p;
+    }
+
+    /**
+     * Validate remaining bytes of the buffer, continuing the sequence left incomplete by the previous call. Position
+     * of the buffer is not changed.
+     *
+     * @param buffer bytes to be validated.
+     * @throws Utf8DecodingError when the data are not valid UTF-8.
+     */
+    void validate(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            validate(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+            return;
+        }
+
+        int s = state;
+        int p = pending;
+        final int end = buffer.limit();
+
+        for (int i = buffer.position(); i < end; i++) {
+            s = TRANSITIONS[s + TYPES[buffer.get(i) & 0xFF]];
+            if (s == ACCEPT) {
+                p = 0;
+            } else if (s == REJECT) {
+                reset();
+                throw new Utf8DecodingError("Illegal UTF-8 Sequence");
+            } else {
+                p++;
+            }
+        }
+
+        state = s;
+        pending = p;
+    }
+
+    /**
+     * Get number of trailing bytes which belong to a sequence not completed yet.
+     *
+     * @return number of bytes of incomplete sequence, {@code 0} when all validated bytes form whole characters.
+     */
+    int getPending() {
+        return pending;
+    }
+
+    /**
+     * Reset the state before validating new text.
+     */
+    void reset() {
+        state = ACCEPT;
+        pending = 0;
+    }
+}
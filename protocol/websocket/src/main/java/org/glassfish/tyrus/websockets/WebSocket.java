@@ -40,8 +40,11 @@
 
 package org.glassfish.tyrus.websockets;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.Future;
 
+import org.glassfish.tyrus.spi.Writer;
+
 /**
  * General WebSocket unit interface.
  *
@@ -100,6 +103,43 @@ public interface WebSocket {
      */
     Future<DataFrame> send(byte[] data);
 
+    /**
+     * <p>
+     * Send a binary frame to the remote end-point.
+     * </p>
+     * Remaining bytes of the buffer are written without copying, so the buffer must not be modified until
+     * the returned {@link Future} is done.
+     *
+     * @return {@link Future} which could be used to control/check the sending completion state.
+     */
+    Future<DataFrame> send(ByteBuffer data);
+
+    /**
+     * Send a text frame to the remote end-point, notifying given handler when the frame is written.
+     *
+     * @param data              text to be sent.
+     * @param completionHandler handler notified from the thread completing the write.
+     */
+    void send(String data, Writer.CompletionHandler<DataFrame> completionHandler);
+
+    /**
+     * Send a binary frame to the remote end-point, notifying given handler when the frame is written.
+     * Remaining bytes of the buffer are written without copying, so the buffer must not be modified until
+     * the handler is notified.
+     *
+     * @param data              data to be sent.
+     * @param completionHandler handler notified from the thread completing the write.
+     */
+    void send(ByteBuffer data, Writer.CompletionHandler<DataFrame> completionHandler);
+
+    /**
+     * Send a frame serialized in advance, notifying given handler when the frame is written.
+     *
+     * @param frame             prepared frame.
+     * @param completionHandler handler notified from the thread completing the write.
+     */
+    void send(PreparedFrame frame, Writer.CompletionHandler<DataFrame> completionHandler);
+
     /**
      * <p>
      * Sends a <code>ping</code> frame with the specified payload (if any).
@@ -156,6 +196,19 @@ public interface WebSocket {
      */
     Future<DataFrame> stream(boolean last, byte[] fragment, int off, int len);
 
+    /**
+     * <p>
+     * Sends a fragment of a complete message.
+     * </p>
+     * Remaining bytes of the buffer are written without copying, so the buffer must not be modified until
+     * the returned {@link Future} is done.
+     *
+     * @param last     boolean indicating if this message fragment is the last.
+     * @param fragment the binary fragment to send.
+     * @return {@link Future} which could be used to control/check the sending completion state.
+     */
+    Future<DataFrame> stream(boolean last, ByteBuffer fragment);
+
     /**
      * <p>
      * Closes this {@link WebSocket}.
@@ -283,4 +336,36 @@ public interface WebSocket {
      * @param timeoutMs timeout in milliseconds.
      */
     public abstract void setWriteTimeout(long timeoutMs);
+
+    /**
+     * Allow or disallow batching of outgoing messages.
+     *
+     * @param allowed      {@code true} when outgoing messages can be batched.
+     * @param bufferSize   maximal size of the batch in bytes, default is used when not positive.
+     * @param lingerTimeMs time after which the batch is written even if it is not full, batch is written only when
+     *                     full or explicitly flushed when not positive.
+     * @return future completed when the already batched messages are written, {@code null} when batching is allowed.
+     */
+    Future<DataFrame> setBatchingAllowed(boolean allowed, int bufferSize, long lingerTimeMs);
+
+    /**
+     * Get the batching mode.
+     *
+     * @return {@code true} when outgoing messages can be batched.
+     */
+    boolean getBatchingAllowed();
+
+    /**
+     * Check whether the underlying connection accepts more outgoing data without queueing it.
+     *
+     * @return {@code true} when messages can be sent without being queued.
+     */
+    boolean isWritable();
+
+    /**
+     * Write all batched messages.
+     *
+     * @return future completed when the batched messages are written.
+     */
+    Future<DataFrame> flushBatch();
 }
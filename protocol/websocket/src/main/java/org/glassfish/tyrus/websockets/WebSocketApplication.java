@@ -46,6 +46,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.glassfish.tyrus.spi.HandshakeRequest;
+import org.glassfish.tyrus.websockets.monitoring.EndpointMetrics;
 
 /**
  * Abstract server-side {@link WebSocket} application, which will handle
@@ -156,6 +157,15 @@ public abstract class WebSocketApplication implements WebSocketListener {
         return true;
     }
 
+    /**
+     * Get runtime statistics of this application.
+     *
+     * @return statistics to be updated by the runtime, {@code null} when monitoring is disabled.
+     */
+    public EndpointMetrics getMetrics() {
+        return null;
+    }
+
     /**
      * Invoked when server side handshake is ready to send response.
      * <p/>
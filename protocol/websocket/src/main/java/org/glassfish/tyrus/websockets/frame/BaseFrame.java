@@ -40,6 +40,8 @@
 
 package org.glassfish.tyrus.websockets.frame;
 
+import java.nio.ByteBuffer;
+
 import org.glassfish.tyrus.websockets.DataFrame;
 
 public abstract class BaseFrame implements Frame {
@@ -58,4 +60,9 @@ public abstract class BaseFrame implements Frame {
     public DataFrame create(boolean fin, byte[] data) {
         return new DataFrame(this, data, fin);
     }
+
+    @Override
+    public DataFrame create(boolean fin, ByteBuffer data) {
+        return new DataFrame(this, data, fin);
+    }
 }
@@ -40,6 +40,8 @@
 
 package org.glassfish.tyrus.websockets.frame;
 
+import java.nio.ByteBuffer;
+
 import org.glassfish.tyrus.websockets.ClosingDataFrame;
 import org.glassfish.tyrus.websockets.DataFrame;
 import org.glassfish.tyrus.websockets.WebSocket;
@@ -51,6 +53,13 @@ public class ClosingFrame extends BaseFrame {
         return new ClosingDataFrame(data);
     }
 
+    @Override
+    public DataFrame create(boolean fin, ByteBuffer data) {
+        final byte[] bytes = new byte[data.remaining()];
+        data.duplicate().get(bytes);
+        return new ClosingDataFrame(bytes);
+    }
+
     @Override
     public void respond(WebSocket socket, DataFrame frame) {
         socket.onClose((ClosingDataFrame) frame);
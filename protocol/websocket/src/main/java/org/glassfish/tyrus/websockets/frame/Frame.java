@@ -40,6 +40,8 @@
 
 package org.glassfish.tyrus.websockets.frame;
 
+import java.nio.ByteBuffer;
+
 import org.glassfish.tyrus.websockets.DataFrame;
 import org.glassfish.tyrus.websockets.WebSocket;
 
@@ -55,4 +57,16 @@ public interface Frame {
     byte[] getBytes(DataFrame dataFrame);
 
     DataFrame create(boolean fin, byte[] data);
+
+    /**
+     * Create frame backed by remaining bytes of provided buffer.
+     * <p/>
+     * The buffer is not copied; it is valid only until the frame is processed, so implementations have to copy the
+     * payload if they need it later.
+     *
+     * @param fin  {@code true} if this is the final fragment of a message.
+     * @param data frame payload.
+     * @return new frame.
+     */
+    DataFrame create(boolean fin, ByteBuffer data);
 }
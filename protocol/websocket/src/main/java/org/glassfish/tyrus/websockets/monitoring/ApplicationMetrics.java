@@ -0,0 +1,257 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets.monitoring;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Runtime statistics of one deployed application and its endpoints, published as MBeans in the platform
+ * {@link MBeanServer}.
+ * <p/>
+ * Monitoring is disabled unless the {@value #MONITORING_ENABLED} system property is set to {@code true}. Containers
+ * do not create any statistics then and components which record them only check for {@code null}.
+ * <p/>
+ * Application is registered as {@code org.glassfish.tyrus:type=Application,name="<context path>"}, each endpoint
+ * as {@code org.glassfish.tyrus:type=Endpoint,application="<context path>",name="<endpoint path>"}.
+ */
+public class ApplicationMetrics implements ApplicationMetricsMXBean {
+
+    /**
+     * System property; when set to {@code true}, deployed applications publish their runtime statistics.
+     */
+    public static final String MONITORING_ENABLED = "org.glassfish.tyrus.monitoring.enabled";
+
+    private static final String DOMAIN = "org.glassfish.tyrus";
+    private static final Logger LOGGER = Logger.getLogger(ApplicationMetrics.class.getName());
+
+    private final String name;
+    private final ConcurrentMap<String, EndpointMetrics> endpoints = new ConcurrentHashMap<String, EndpointMetrics>();
+    private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+    private boolean registered = false;
+
+    /**
+     * Create statistics of an application.
+     *
+     * @param name application name, usually its context path.
+     */
+    public ApplicationMetrics(String name) {
+        this.name = name == null ? "" : name;
+    }
+
+    /**
+     * Check whether monitoring is enabled.
+     *
+     * @return {@code true} when the {@value #MONITORING_ENABLED} system property is set to {@code true}.
+     */
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(MONITORING_ENABLED);
+    }
+
+    /**
+     * Get statistics of an endpoint, creating them when the endpoint was not seen yet.
+     *
+     * @param path endpoint path.
+     * @return endpoint statistics.
+     */
+    public EndpointMetrics getEndpointMetrics(String path) {
+        EndpointMetrics metrics = endpoints.get(path);
+        if (metrics == null) {
+            final EndpointMetrics newMetrics = new EndpointMetrics(path);
+            metrics = endpoints.putIfAbsent(path, newMetrics);
+            if (metrics == null) {
+                metrics = newMetrics;
+                synchronized (this) {
+                    if (registered) {
+                        register(newMetrics, endpointName(path));
+                    }
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Publish the application and its endpoints in the platform {@link MBeanServer}. Endpoints added later are
+     * published when they are created.
+     */
+    public synchronized void register() {
+        if (registered) {
+            return;
+        }
+        registered = true;
+
+        register(this, applicationName());
+        for (EndpointMetrics metrics : endpoints.values()) {
+            register(metrics, endpointName(metrics.getPath()));
+        }
+    }
+
+    /**
+     * Remove the application and its endpoints from the platform {@link MBeanServer}.
+     */
+    public synchronized void unregister() {
+        if (!registered) {
+            return;
+        }
+        registered = false;
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName objectName : registeredNames) {
+            try {
+                server.unregisterMBean(objectName);
+            } catch (JMException e) {
+                LOGGER.log(Level.FINE, String.format("MBean %s cannot be unregistered.", objectName), e);
+            }
+        }
+        registeredNames.clear();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public List<String> getEndpointPaths() {
+        return new ArrayList<String>(endpoints.keySet());
+    }
+
+    @Override
+    public long getOpenSessions() {
+        long result = 0;
+        for (EndpointMetrics metrics : endpoints.values()) {
+            result += metrics.getOpenSessions();
+        }
+        return result;
+    }
+
+    @Override
+    public long getSessionsOpened() {
+        long result = 0;
+        for (EndpointMetrics metrics : endpoints.values()) {
+            result += metrics.getSessionsOpened();
+        }
+        return result;
+    }
+
+    @Override
+    public long getMessagesReceived() {
+        long result = 0;
+        for (EndpointMetrics metrics : endpoints.values()) {
+            result += metrics.getTextMessagesReceived() + metrics.getBinaryMessagesReceived();
+        }
+        return result;
+    }
+
+    @Override
+    public long getBytesReceived() {
+        long result = 0;
+        for (EndpointMetrics metrics : endpoints.values()) {
+            result += metrics.getBytesReceived();
+        }
+        return result;
+    }
+
+    @Override
+    public long getBytesSent() {
+        long result = 0;
+        for (EndpointMetrics metrics : endpoints.values()) {
+            result += metrics.getBytesSent();
+        }
+        return result;
+    }
+
+    @Override
+    public long getErrors() {
+        long result = 0;
+        for (EndpointMetrics metrics : endpoints.values()) {
+            result += metrics.getErrors();
+        }
+        return result;
+    }
+
+    /**
+     * Get name under which the application is registered.
+     *
+     * @return object name of the application MBean.
+     */
+    public ObjectName applicationName() {
+        return objectName(String.format("%s:type=Application,name=%s", DOMAIN, ObjectName.quote(name)));
+    }
+
+    /**
+     * Get name under which an endpoint of the application is registered.
+     *
+     * @param path endpoint path.
+     * @return object name of the endpoint MBean.
+     */
+    public ObjectName endpointName(String path) {
+        return objectName(String.format("%s:type=Endpoint,application=%s,name=%s", DOMAIN, ObjectName.quote(name),
+                ObjectName.quote(path)));
+    }
+
+    private void register(Object mbean, ObjectName objectName) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(mbean, objectName);
+            registeredNames.add(objectName);
+        } catch (JMException e) {
+            LOGGER.log(Level.CONFIG, String.format("MBean %s cannot be registered.", objectName), e);
+        }
+    }
+
+    private static ObjectName objectName(String name) {
+        try {
+            return new ObjectName(name);
+        } catch (JMException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+}
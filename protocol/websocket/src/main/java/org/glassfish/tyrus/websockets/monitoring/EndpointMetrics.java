@@ -0,0 +1,296 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runtime statistics of one deployed endpoint.
+ * <p/>
+ * Instances are created by {@link ApplicationMetrics} only when monitoring is enabled; components which record
+ * statistics keep {@code null} otherwise and skip recording.
+ */
+public class EndpointMetrics implements EndpointMetricsMXBean {
+
+    private static final String[] FRAME_TYPES = {"text", "binary", "close", "ping", "pong"};
+
+    private final String path;
+
+    private final StripedCounter openSessions = new StripedCounter();
+    private final StripedCounter sessionsOpened = new StripedCounter();
+    private final StripedCounter handshakeFailures = new StripedCounter();
+    private final StripedCounter textMessagesReceived = new StripedCounter();
+    private final StripedCounter binaryMessagesReceived = new StripedCounter();
+    private final StripedCounter bytesReceived = new StripedCounter();
+    private final StripedCounter bytesSent = new StripedCounter();
+    private final StripedCounter errors = new StripedCounter();
+    private final StripedCounter[] framesReceived = newCounters(FRAME_TYPES.length);
+    private final StripedCounter[] framesSent = newCounters(FRAME_TYPES.length);
+    private final ConcurrentMap<Integer, StripedCounter> closeCodes = new ConcurrentHashMap<Integer, StripedCounter>();
+
+    private final LatencyHistogram handshakeLatency = new LatencyHistogram();
+    private final LatencyHistogram messageProcessingTime = new LatencyHistogram();
+
+    /**
+     * Create statistics of an endpoint.
+     *
+     * @param path endpoint path.
+     */
+    public EndpointMetrics(String path) {
+        this.path = path;
+    }
+
+    /**
+     * Record completed opening handshake.
+     *
+     * @param nanos handshake duration in nanoseconds.
+     */
+    public void onHandshake(long nanos) {
+        handshakeLatency.record(nanos);
+    }
+
+    /**
+     * Record failed opening handshake.
+     */
+    public void onHandshakeFailed() {
+        handshakeFailures.increment();
+    }
+
+    /**
+     * Record opened session.
+     */
+    public void onSessionOpened() {
+        sessionsOpened.increment();
+        openSessions.increment();
+    }
+
+    /**
+     * Record closed session.
+     *
+     * @param closeCode close code of the session.
+     */
+    public void onSessionClosed(int closeCode) {
+        openSessions.decrement();
+
+        StripedCounter counter = closeCodes.get(closeCode);
+        if (counter == null) {
+            final StripedCounter newCounter = new StripedCounter();
+            counter = closeCodes.putIfAbsent(closeCode, newCounter);
+            if (counter == null) {
+                counter = newCounter;
+            }
+        }
+        counter.increment();
+    }
+
+    /**
+     * Record message or message part received by the endpoint, before it is passed to the message handlers.
+     *
+     * @param text {@code true} for text messages.
+     * @param last {@code true} when the whole message or its last part was received.
+     */
+    public void onMessageReceived(boolean text, boolean last) {
+        if (last) {
+            (text ? textMessagesReceived : binaryMessagesReceived).increment();
+        }
+    }
+
+    /**
+     * Record time the endpoint spent processing a message or message part.
+     *
+     * @param nanos processing time in nanoseconds.
+     */
+    public void onMessageProcessed(long nanos) {
+        messageProcessingTime.record(nanos);
+    }
+
+    /**
+     * Record error raised while processing a message.
+     */
+    public void onError() {
+        errors.increment();
+    }
+
+    /**
+     * Record received frame.
+     *
+     * @param opcode frame opcode, continuation frames have the opcode of the message they belong to.
+     * @param length frame length including header.
+     */
+    public void onFrameReceived(int opcode, long length) {
+        bytesReceived.add(length);
+        final int index = frameTypeIndex(opcode);
+        if (index >= 0) {
+            framesReceived[index].increment();
+        }
+    }
+
+    /**
+     * Record sent frame.
+     *
+     * @param opcode frame opcode, continuation frames have the opcode of the message they belong to.
+     * @param length frame length including header.
+     */
+    public void onFrameSent(int opcode, long length) {
+        bytesSent.add(length);
+        final int index = frameTypeIndex(opcode);
+        if (index >= 0) {
+            framesSent[index].increment();
+        }
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public long getOpenSessions() {
+        return openSessions.sum();
+    }
+
+    @Override
+    public long getSessionsOpened() {
+        return sessionsOpened.sum();
+    }
+
+    @Override
+    public long getHandshakeFailures() {
+        return handshakeFailures.sum();
+    }
+
+    @Override
+    public long getTextMessagesReceived() {
+        return textMessagesReceived.sum();
+    }
+
+    @Override
+    public long getBinaryMessagesReceived() {
+        return binaryMessagesReceived.sum();
+    }
+
+    @Override
+    public long getBytesReceived() {
+        return bytesReceived.sum();
+    }
+
+    @Override
+    public long getBytesSent() {
+        return bytesSent.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public Map<String, Long> getFramesReceived() {
+        return toMap(framesReceived);
+    }
+
+    @Override
+    public Map<String, Long> getFramesSent() {
+        return toMap(framesSent);
+    }
+
+    @Override
+    public Map<Integer, Long> getCloseCodes() {
+        final Map<Integer, Long> result = new TreeMap<Integer, Long>();
+        for (Map.Entry<Integer, StripedCounter> entry : closeCodes.entrySet()) {
+            result.put(entry.getKey(), entry.getValue().sum());
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, Long> getHandshakeLatencyMicros() {
+        return handshakeLatency.getSummary(TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public Map<String, Long> getMessageProcessingTimeMicros() {
+        return messageProcessingTime.getSummary(TimeUnit.MICROSECONDS);
+    }
+
+    @Override
+    public String toString() {
+        return "EndpointMetrics{" + "path='" + path + '\'' + ", openSessions=" + openSessions + '}';
+    }
+
+    private static int frameTypeIndex(int opcode) {
+        switch (opcode) {
+            case 0x01:
+                return 0;
+            case 0x02:
+                return 1;
+            case 0x08:
+                return 2;
+            case 0x09:
+                return 3;
+            case 0x0A:
+                return 4;
+            default:
+                return -1;
+        }
+    }
+
+    private static Map<String, Long> toMap(StripedCounter[] counters) {
+        final Map<String, Long> result = new LinkedHashMap<String, Long>();
+        for (int i = 0; i < counters.length; i++) {
+            result.put(FRAME_TYPES[i], counters[i].sum());
+        }
+        return result;
+    }
+
+    private static StripedCounter[] newCounters(int length) {
+        final StripedCounter[] counters = new StripedCounter[length];
+        for (int i = 0; i < length; i++) {
+            counters[i] = new StripedCounter();
+        }
+        return counters;
+    }
+}
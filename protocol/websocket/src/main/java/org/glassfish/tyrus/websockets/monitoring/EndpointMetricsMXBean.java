@@ -0,0 +1,149 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets.monitoring;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link EndpointMetrics}.
+ */
+public interface EndpointMetricsMXBean {
+
+    /**
+     * Get path of the endpoint.
+     *
+     * @return endpoint path.
+     */
+    String getPath();
+
+    /**
+     * Get number of currently open sessions.
+     *
+     * @return number of open sessions.
+     */
+    long getOpenSessions();
+
+    /**
+     * Get number of sessions opened since the endpoint was deployed.
+     *
+     * @return number of opened sessions.
+     */
+    long getSessionsOpened();
+
+    /**
+     * Get number of handshakes which were not completed because of an error.
+     *
+     * @return number of failed handshakes.
+     */
+    long getHandshakeFailures();
+
+    /**
+     * Get number of received text messages.
+     *
+     * @return number of text messages.
+     */
+    long getTextMessagesReceived();
+
+    /**
+     * Get number of received binary messages.
+     *
+     * @return number of binary messages.
+     */
+    long getBinaryMessagesReceived();
+
+    /**
+     * Get number of received bytes, including frame headers.
+     *
+     * @return number of received bytes.
+     */
+    long getBytesReceived();
+
+    /**
+     * Get number of sent bytes, including frame headers.
+     *
+     * @return number of sent bytes.
+     */
+    long getBytesSent();
+
+    /**
+     * Get number of errors raised while processing messages.
+     *
+     * @return number of errors.
+     */
+    long getErrors();
+
+    /**
+     * Get number of received frames per frame type. Continuation frames are counted as frames of the message
+     * they belong to.
+     *
+     * @return number of frames keyed by {@code text}, {@code binary}, {@code close}, {@code ping} and {@code pong}.
+     */
+    Map<String, Long> getFramesReceived();
+
+    /**
+     * Get number of sent frames per frame type. Continuation frames are counted as frames of the message they
+     * belong to.
+     *
+     * @return number of frames keyed by {@code text}, {@code binary}, {@code close}, {@code ping} and {@code pong}.
+     */
+    Map<String, Long> getFramesSent();
+
+    /**
+     * Get number of closed sessions per close code.
+     *
+     * @return number of closed sessions keyed by close code.
+     */
+    Map<Integer, Long> getCloseCodes();
+
+    /**
+     * Get opening handshake latency, from routing the request to writing the response.
+     *
+     * @return count, mean, percentiles and maximum in microseconds.
+     */
+    Map<String, Long> getHandshakeLatencyMicros();
+
+    /**
+     * Get time spent in the endpoint processing received messages and message parts.
+     *
+     * @return count, mean, percentiles and maximum in microseconds.
+     */
+    Map<String, Long> getMessageProcessingTimeMicros();
+}
@@ -0,0 +1,200 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets.monitoring;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Histogram of durations with bounded relative error.
+ * <p/>
+ * Values are counted in buckets which split every power of two range into eight buckets of equal width, so the
+ * value reported for a percentile is at most 12.5% higher than the recorded one. Values smaller than eight are
+ * counted exactly, values bigger than 2^40 ns (about 18 minutes) are counted in the last bucket. Recording is lock
+ * free and, once the thread's stripe exists, does not allocate.
+ * <p/>
+ * Like {@link StripedCounter}, threads record to separate stripes selected by their id, each stripe having its own
+ * bucket array created on first use, so threads recording at once do not compete for the same cache lines.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXPONENT) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes =
+            new AtomicReferenceArray<AtomicLongArray>(StripedCounter.STRIPES);
+    private final StripedCounter count = new StripedCounter();
+    private final StripedCounter total = new StripedCounter();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a duration.
+     *
+     * @param nanos duration in nanoseconds, negative values are recorded as zero.
+     */
+    public void record(long nanos) {
+        final long value = nanos < 0 ? 0 : (nanos > MAX_VALUE ? MAX_VALUE : nanos);
+
+        buckets(StripedCounter.stripe()).incrementAndGet(bucket(value));
+        count.increment();
+        total.add(value);
+
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
+        }
+    }
+
+    /**
+     * Get number of recorded values.
+     *
+     * @return number of recorded values.
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the biggest recorded value.
+     *
+     * @return biggest recorded value in nanoseconds, {@code 0} when nothing was recorded.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the mean of recorded values.
+     *
+     * @return mean in nanoseconds, {@code 0} when nothing was recorded.
+     */
+    public long getMean() {
+        final long localCount = count.sum();
+        return localCount == 0 ? 0 : total.sum() / localCount;
+    }
+
+    /**
+     * Get the value below which given percentage of recorded values fall.
+     *
+     * @param percentile percentile, between {@code 0} and {@code 100}.
+     * @return highest value of the bucket containing the percentile in nanoseconds, {@code 0} when nothing was
+     *         recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long localCount = 0;
+        final long[] snapshot = new long[BUCKETS];
+        for (int stripe = 0; stripe < stripes.length(); stripe++) {
+            final AtomicLongArray buckets = stripes.get(stripe);
+            if (buckets != null) {
+                for (int i = 0; i < BUCKETS; i++) {
+                    final long bucketCount = buckets.get(i);
+                    snapshot[i] += bucketCount;
+                    localCount += bucketCount;
+                }
+            }
+        }
+        if (localCount == 0) {
+            return 0;
+        }
+
+        final long rank = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * localCount));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValue(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /**
+     * Get summary of the histogram.
+     *
+     * @param unit unit of the returned values.
+     * @return count, mean, 50th, 90th, 99th and 99.9th percentile and maximum in given unit.
+     */
+    public Map<String, Long> getSummary(TimeUnit unit) {
+        final Map<String, Long> summary = new LinkedHashMap<String, Long>();
+        summary.put("count", getCount());
+        summary.put("mean", unit.convert(getMean(), TimeUnit.NANOSECONDS));
+        summary.put("p50", unit.convert(getValueAtPercentile(50), TimeUnit.NANOSECONDS));
+        summary.put("p90", unit.convert(getValueAtPercentile(90), TimeUnit.NANOSECONDS));
+        summary.put("p99", unit.convert(getValueAtPercentile(99), TimeUnit.NANOSECONDS));
+        summary.put("p999", unit.convert(getValueAtPercentile(99.9), TimeUnit.NANOSECONDS));
+        summary.put("max", unit.convert(getMax(), TimeUnit.NANOSECONDS));
+        return summary;
+    }
+
+    private AtomicLongArray buckets(int stripe) {
+        final AtomicLongArray buckets = stripes.get(stripe);
+        if (buckets != null) {
+            return buckets;
+        }
+        stripes.compareAndSet(stripe, null, new AtomicLongArray(BUCKETS));
+        return stripes.get(stripe);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        final int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        final int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        final long lowest = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
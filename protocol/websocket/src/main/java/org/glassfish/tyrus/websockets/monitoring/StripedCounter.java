@@ -0,0 +1,148 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets.monitoring;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * Counter updated from many threads.
+ * <p/>
+ * Uncontended updates go to a single value. When an update fails because of contention, the counter is expanded to
+ * cells padded to separate cache lines and each thread updates the cell selected by its id, so threads do not
+ * compete for the same cache line. The value is the sum of all cells, reading it is not atomic with respect to
+ * concurrent updates.
+ */
+public final class StripedCounter {
+
+    static final int STRIPES = stripes();
+
+    // one cell per 64 byte cache line.
+    private static final int PADDING = 8;
+
+    private static final AtomicReferenceFieldUpdater<StripedCounter, AtomicLongArray> CELLS_UPDATER =
+            AtomicReferenceFieldUpdater.newUpdater(StripedCounter.class, AtomicLongArray.class, "cells");
+
+    private final AtomicLong base = new AtomicLong();
+    private volatile AtomicLongArray cells;
+
+    /**
+     * Add given value to the counter.
+     *
+     * @param value value to be added, can be negative.
+     */
+    public void add(long value) {
+        AtomicLongArray localCells = cells;
+        if (localCells == null) {
+            final long current = base.get();
+            if (base.compareAndSet(current, current + value)) {
+                return;
+            }
+            if (STRIPES == 1) {
+                base.addAndGet(value);
+                return;
+            }
+            CELLS_UPDATER.compareAndSet(this, null, new AtomicLongArray(STRIPES * PADDING));
+            localCells = cells;
+        }
+        localCells.getAndAdd(index(), value);
+    }
+
+    /**
+     * Add one to the counter.
+     */
+    public void increment() {
+        add(1);
+    }
+
+    /**
+     * Subtract one from the counter.
+     */
+    public void decrement() {
+        add(-1);
+    }
+
+    /**
+     * Get the current value.
+     *
+     * @return sum of all updates.
+     */
+    public long sum() {
+        long sum = base.get();
+        final AtomicLongArray localCells = cells;
+        if (localCells != null) {
+            for (int i = 0; i < STRIPES; i++) {
+                sum += localCells.get(i * PADDING);
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return Long.toString(sum());
+    }
+
+    private static int index() {
+        return stripe() * PADDING;
+    }
+
+    /**
+     * Get the stripe of the current thread.
+     *
+     * @return stripe index, lower than {@link #STRIPES}.
+     */
+    static int stripe() {
+        final long id = Thread.currentThread().getId();
+        final int hash = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (hash >>> 16) & (STRIPES - 1);
+    }
+
+    private static int stripes() {
+        final int processors = Math.min(Runtime.getRuntime().availableProcessors(), 64);
+        int stripes = 1;
+        while (stripes < processors) {
+            stripes <<= 1;
+        }
+        return stripes;
+    }
+}
@@ -81,7 +81,7 @@ public class Match {
      *
      * @param webSocketApplication {@link WebSocketApplication} instance.
      */
-    private Match(WebSocketApplication webSocketApplication) {
+    Match(WebSocketApplication webSocketApplication) {
         this.webSocketApplication = webSocketApplication;
     }
 
@@ -303,11 +303,11 @@ public class Match {
         }
     }
 
-    private static boolean isVariable(String segment) {
+    static boolean isVariable(String segment) {
         return segment.startsWith("{") && segment.endsWith("}");
     }
 
-    private static String getVariableName(String segment) {
+    static String getVariableName(String segment) {
         return segment.substring(1, segment.length() - 1);
     }
 }
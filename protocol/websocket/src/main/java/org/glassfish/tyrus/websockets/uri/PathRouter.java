@@ -0,0 +1,192 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets.uri;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.glassfish.tyrus.websockets.WebSocketApplication;
+import org.glassfish.tyrus.websockets.uri.internal.PathSegment;
+import org.glassfish.tyrus.websockets.uri.internal.UriComponent;
+
+/**
+ * Routes request paths to {@link WebSocketApplication}s using a trie of path segments built when applications are
+ * added.
+ * <p/>
+ * Each level of the trie corresponds to one path segment. Literal segments are looked up by value, all path
+ * template variables of one level share a single node, so equivalent paths end in the same node. Matching a request
+ * path visits literal nodes before variable nodes, which produces the matches in the same order as
+ * {@link Match#getAllMatches(String, java.util.Set)} sorted by {@link MatchComparator}, without visiting applications
+ * whose paths do not share the segments.
+ * <p/>
+ * Matching is thread safe, modifications are serialized.
+ */
+public final class PathRouter {
+
+    private final Node root = new Node();
+
+    /**
+     * Add application to the router.
+     *
+     * @param application application to be added.
+     * @return already added application with equivalent path, in which case the given application is not added;
+     *         {@code null} when the application was added.
+     */
+    public synchronized WebSocketApplication add(WebSocketApplication application) {
+        final String[] segments = getSegments(application.getPath());
+        final String[] parameterNames = new String[segments.length];
+
+        Node node = root;
+        for (int i = 0; i < segments.length; i++) {
+            final String segment = segments[i];
+            if (Match.isVariable(segment)) {
+                parameterNames[i] = Match.getVariableName(segment);
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                Node child = node.literals.get(segment);
+                if (child == null) {
+                    child = new Node();
+                    node.literals.put(segment, child);
+                }
+                node = child;
+            }
+        }
+
+        if (node.application != null) {
+            return node.application;
+        }
+
+        node.parameterNames = parameterNames;
+        node.application = application;
+        return null;
+    }
+
+    /**
+     * Remove application from the router.
+     *
+     * @param application application to be removed.
+     * @return {@code true} when the application was removed, {@code false} when it was not added.
+     */
+    public synchronized boolean remove(WebSocketApplication application) {
+        final String[] segments = getSegments(application.getPath());
+
+        Node node = root;
+        for (int i = 0; i < segments.length && node != null; i++) {
+            node = Match.isVariable(segments[i]) ? node.variable : node.literals.get(segments[i]);
+        }
+
+        if (node == null || node.application != application) {
+            return false;
+        }
+
+        // the node is left in place, paths are usually re-registered on redeploy
+        node.application = null;
+        node.parameterNames = null;
+        return true;
+    }
+
+    /**
+     * Get all applications matching the request path, in order of match preference, best match first.
+     *
+     * @param incoming request path.
+     * @return list of matches, empty when no application matches the path.
+     */
+    public List<Match> getAllMatches(String incoming) {
+        final String[] segments = getSegments(incoming);
+        if (segments.length == 0) {
+            return Collections.emptyList();
+        }
+
+        final List<Match> result = new ArrayList<Match>(1);
+        collect(root, segments, 0, result);
+        return result;
+    }
+
+    private static void collect(Node node, String[] segments, int depth, List<Match> result) {
+        if (depth == segments.length) {
+            final WebSocketApplication application = node.application;
+            final String[] parameterNames = node.parameterNames;
+            if (application != null && parameterNames != null) {
+                final Match match = new Match(application);
+                for (int i = 0; i < parameterNames.length; i++) {
+                    if (parameterNames[i] != null) {
+                        match.addParameter(parameterNames[i], segments[i], i);
+                    }
+                }
+                result.add(match);
+            }
+            return;
+        }
+
+        final Node literal = node.literals.get(segments[depth]);
+        if (literal != null) {
+            collect(literal, segments, depth + 1, result);
+        }
+
+        final Node variable = node.variable;
+        if (variable != null) {
+            collect(variable, segments, depth + 1, result);
+        }
+    }
+
+    private static String[] getSegments(String path) {
+        final List<PathSegment> pathSegments = UriComponent.decodePath(path, true);
+        final String[] segments = new String[pathSegments.size()];
+        int i = 0;
+        for (PathSegment segment : pathSegments) {
+            segments[i++] = segment.getPath();
+        }
+        return segments;
+    }
+
+    private static final class Node {
+        private final Map<String, Node> literals = new ConcurrentHashMap<String, Node>();
+        private volatile Node variable;
+        private volatile WebSocketApplication application;
+        private volatile String[] parameterNames;
+    }
+}
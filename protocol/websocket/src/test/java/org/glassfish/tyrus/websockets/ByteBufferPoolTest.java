@@ -0,0 +1,117 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link ByteBufferPool}.
+ */
+public class ByteBufferPoolTest {
+
+    @Test
+    public void sizeClasses() {
+        final ByteBufferPool pool = new ByteBufferPool();
+
+        assertEquals(ByteBufferPool.MIN_BUFFER_SIZE, pool.acquire(1).capacity());
+        assertEquals(512, pool.acquire(257).capacity());
+        assertEquals(1024, pool.acquire(1024).capacity());
+        assertEquals(100000, pool.acquire(100000).capacity());
+    }
+
+    @Test
+    public void reuse() {
+        final ByteBufferPool pool = new ByteBufferPool();
+
+        final ByteBuffer buffer = pool.acquire(300);
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        final ByteBuffer reused = pool.acquire(400);
+        assertSame(buffer, reused);
+        assertEquals(0, reused.position());
+        assertEquals(reused.capacity(), reused.limit());
+    }
+
+    @Test
+    public void limits() {
+        final ByteBufferPool pool = new ByteBufferPool(true, 1024, 1);
+
+        final ByteBuffer first = pool.acquire(1024);
+        final ByteBuffer second = pool.acquire(1024);
+        assertTrue(first.isDirect());
+
+        pool.release(first);
+        pool.release(second);
+        assertSame(first, pool.acquire(1024));
+        assertNotSame(second, pool.acquire(1024));
+
+        final ByteBuffer big = pool.acquire(2048);
+        pool.release(big);
+        assertNotSame(big, pool.acquire(2048));
+    }
+
+    @Test
+    public void totalCapacityLimit() {
+        final ByteBufferPool pool = new ByteBufferPool(false, 1024, 10, 1536);
+
+        final ByteBuffer first = pool.acquire(1024);
+        final ByteBuffer second = pool.acquire(512);
+        final ByteBuffer third = pool.acquire(512);
+
+        pool.release(first);
+        pool.release(second);
+        pool.release(third);
+        assertSame(first, pool.acquire(1024));
+        assertSame(second, pool.acquire(512));
+        assertNotSame(third, pool.acquire(512));
+
+        // capacity of acquired buffers is available again
+        pool.release(third);
+        assertSame(third, pool.acquire(512));
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests {@link Masker}.
+ */
+public class MaskerTest {
+
+    private static final MaskingKeyGenerator FIXED_KEY = new MaskingKeyGenerator() {
+        @Override
+        public int nextInt() {
+            return 0x01020304;
+        }
+    };
+
+    @Test
+    public void maskMatchesRfc() {
+        for (int length = 0; length < 35; length++) {
+            final byte[] payload = payload(length);
+            final ByteBuffer target = ByteBuffer.allocate(length);
+
+            new Masker(FIXED_KEY).mask(target, ByteBuffer.wrap(payload));
+
+            final byte[] key = {1, 2, 3, 4};
+            for (int i = 0; i < length; i++) {
+                assertEquals("Byte " + i + " of " + length, (byte) (payload[i] ^ key[i % 4]), target.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void littleEndianSource() {
+        final byte[] payload = payload(21);
+        final ByteBuffer expected = ByteBuffer.allocate(payload.length);
+        final ByteBuffer target = ByteBuffer.allocate(payload.length);
+
+        new Masker(FIXED_KEY).mask(expected, ByteBuffer.wrap(payload));
+        new Masker(FIXED_KEY).mask(target, ByteBuffer.wrap(payload).order(ByteOrder.LITTLE_ENDIAN));
+
+        assertArrayEquals(expected.array(), target.array());
+    }
+
+    @Test
+    public void reusedMasker() {
+        final byte[] payload = payload(13);
+        final ByteBuffer expected = ByteBuffer.allocate(payload.length);
+        new Masker(FIXED_KEY).mask(expected, ByteBuffer.wrap(payload));
+
+        final Masker masker = new Masker();
+        masker.setMask(0x05060708);
+        masker.mask(ByteBuffer.allocate(3), ByteBuffer.wrap(payload(3)));
+
+        final ByteBuffer target = ByteBuffer.allocate(payload.length);
+        masker.setMask(FIXED_KEY.nextInt());
+        masker.mask(target, ByteBuffer.wrap(payload));
+
+        assertArrayEquals(expected.array(), target.array());
+    }
+
+    @Test
+    public void unmask() {
+        for (int length = 0; length < 35; length++) {
+            final byte[] payload = payload(length);
+            final Masker masker = new Masker(DefaultMaskingKeyGenerator.INSTANCE);
+            final ByteBuffer frame = ByteBuffer.allocate(4 + length);
+            frame.putInt(masker.getMask());
+            masker.mask(frame, ByteBuffer.wrap(payload));
+            frame.flip();
+
+            final Masker unmasker = new Masker();
+            unmasker.readMask(frame);
+            unmasker.unmask(frame);
+            final byte[] unmasked = new byte[length];
+            frame.get(unmasked);
+            assertArrayEquals(payload, unmasked);
+        }
+    }
+
+    private static byte[] payload(int length) {
+        final byte[] payload = new byte[length];
+        for (int i = 0; i < length; i++) {
+            payload[i] = (byte) (i * 31 + 7);
+        }
+        return payload;
+    }
+}
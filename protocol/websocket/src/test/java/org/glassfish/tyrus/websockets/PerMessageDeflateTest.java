@@ -0,0 +1,354 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import org.glassfish.tyrus.spi.AbstractWriter;
+
+import org.glassfish.tyrus.websockets.frame.BinaryFrame;
+import org.glassfish.tyrus.websockets.frame.TextFrame;
+
+import org.junit.Test;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests {@link PerMessageDeflate}.
+ */
+public class PerMessageDeflateTest {
+
+    private static final String MESSAGE = "Lorem ipsum dolor sit amet, Lorem ipsum dolor sit amet, Lorem ipsum dolor sit amet.";
+    private static final int MAX_SIZE = ProtocolHandler.DEFAULT_MAX_MESSAGE_SIZE;
+
+    @Test
+    public void supported() {
+        // tests run on Java 7 or newer
+        assertTrue(PerMessageDeflate.SUPPORTED);
+    }
+
+    @Test
+    public void negotiation() {
+        assertNotNull(PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME)));
+
+        final Extension offer = offer(PerMessageDeflate.CLIENT_NO_CONTEXT_TAKEOVER, PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER);
+        offer.getParameters().add(new Extension.Parameter(PerMessageDeflate.CLIENT_MAX_WINDOW_BITS, null));
+        final PerMessageDeflate accepted = PerMessageDeflate.accept(offer);
+        assertNotNull(accepted);
+        assertEquals("permessage-deflate; server_no_context_takeover; client_no_context_takeover",
+                accepted.getExtension().toString());
+
+        final Extension smallWindow = new Extension(PerMessageDeflate.NAME);
+        smallWindow.getParameters().add(new Extension.Parameter(PerMessageDeflate.SERVER_MAX_WINDOW_BITS, "10"));
+        assertNull(PerMessageDeflate.accept(smallWindow));
+        assertNull(PerMessageDeflate.accept(offer("unknown")));
+        assertNull(PerMessageDeflate.accept(offer(PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER, PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER)));
+
+        try {
+            final Extension response = new Extension(PerMessageDeflate.NAME);
+            response.getParameters().add(new Extension.Parameter(PerMessageDeflate.CLIENT_MAX_WINDOW_BITS, "9"));
+            PerMessageDeflate.fromResponse(response);
+            fail("HandshakeException expected.");
+        } catch (HandshakeException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void roundTrip() {
+        roundTrip(new Extension(PerMessageDeflate.NAME));
+    }
+
+    @Test
+    public void roundTripNoContextTakeover() {
+        roundTrip(offer(PerMessageDeflate.CLIENT_NO_CONTEXT_TAKEOVER, PerMessageDeflate.SERVER_NO_CONTEXT_TAKEOVER));
+    }
+
+    @Test
+    public void fragmentedMessage() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        final PerMessageDeflate client = PerMessageDeflate.fromResponse(server.getExtension());
+        final byte[] message = MESSAGE.getBytes();
+
+        final ByteBuffer first = client.encode(ByteBuffer.wrap(message, 0, 10), true, false);
+        final ByteBuffer second = client.encode(ByteBuffer.wrap(message, 10, message.length - 10), false, false);
+        final ByteBuffer last = client.encode(ByteBuffer.allocate(0), false, true);
+        assertTrue(last.remaining() > 0);
+
+        final ByteBuffer result = ByteBuffer.allocate(message.length);
+        result.put(server.decode(first, 0x40, true, false, MAX_SIZE));
+        result.put(server.decode(second, 0, false, false, MAX_SIZE));
+        result.put(server.decode(last, 0, false, true, MAX_SIZE));
+        assertArrayEquals(message, result.array());
+    }
+
+    @Test
+    public void uncompressedMessage() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        final ByteBuffer payload = ByteBuffer.wrap(MESSAGE.getBytes());
+
+        assertEquals(payload, server.decode(payload, 0, true, true, MAX_SIZE));
+    }
+
+    @Test(expected = ProtocolError.class)
+    public void rsvOnContinuationFrame() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        server.decode(ByteBuffer.wrap(MESSAGE.getBytes()), 0, true, false, MAX_SIZE);
+        server.decode(ByteBuffer.wrap(MESSAGE.getBytes()), 0x40, false, true, MAX_SIZE);
+    }
+
+    @Test(expected = ProtocolError.class)
+    public void invalidData() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        server.decode(ByteBuffer.wrap(new byte[]{(byte) 0xFF, (byte) 0xFF, (byte) 0xFF}), 0x40, true, true, MAX_SIZE);
+    }
+
+    @Test
+    public void messageTooBig() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        final PerMessageDeflate client = PerMessageDeflate.fromResponse(server.getExtension());
+
+        // 16MB of zeros compress to few kilobytes
+        final ByteBuffer compressed = client.encode(ByteBuffer.allocate(16 * 1024 * 1024), true, true);
+        assertTrue(compressed.remaining() < 65536);
+
+        try {
+            server.decode(compressed, 0x40, true, true, 65536);
+            fail("ProtocolError expected.");
+        } catch (ProtocolError e) {
+            assertEquals(1009, e.getClosingCode());
+        }
+    }
+
+    @Test
+    public void fragmentedMessageTooBig() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        final PerMessageDeflate client = PerMessageDeflate.fromResponse(server.getExtension());
+        final int limit = 1000;
+
+        final ByteBuffer first = client.encode(ByteBuffer.allocate(limit), true, false);
+        final ByteBuffer second = client.encode(ByteBuffer.allocate(1), false, true);
+
+        assertEquals(limit, server.decode(first, 0x40, true, false, limit).remaining());
+        try {
+            server.decode(second, 0, false, true, limit);
+            fail("ProtocolError expected.");
+        } catch (ProtocolError e) {
+            assertEquals(1009, e.getClosingCode());
+        }
+    }
+
+    @Test
+    public void messageSizeLimitResetOnNextMessage() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        final PerMessageDeflate client = PerMessageDeflate.fromResponse(server.getExtension());
+        final byte[] message = MESSAGE.getBytes();
+
+        for (int i = 0; i < 3; i++) {
+            final ByteBuffer compressed = client.encode(ByteBuffer.wrap(message), true, true);
+            assertArrayEquals(message, toArray(server.decode(compressed, 0x40, true, true, message.length)));
+        }
+    }
+
+    @Test
+    public void protocolHandlerMessageTooBig() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        final PerMessageDeflate client = PerMessageDeflate.fromResponse(server.getExtension());
+        final ProtocolHandler clientHandler = new ProtocolHandler(true);
+        final ProtocolHandler serverHandler = new ProtocolHandler(false);
+        clientHandler.setFrameTransformers(Collections.<FrameTransformer>singletonList(client));
+        serverHandler.setFrameTransformers(Collections.<FrameTransformer>singletonList(server));
+        serverHandler.setMaxMessageSize(MESSAGE.length() - 1);
+
+        try {
+            serverHandler.unframe(join(clientHandler.frame(new DataFrame(new TextFrame(), MESSAGE))));
+            fail("ProtocolError expected.");
+        } catch (ProtocolError e) {
+            assertEquals(1009, e.getClosingCode());
+        }
+    }
+
+    @Test
+    public void protocolHandler() {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        final PerMessageDeflate client = PerMessageDeflate.fromResponse(server.getExtension());
+        final ProtocolHandler clientHandler = new ProtocolHandler(true);
+        final ProtocolHandler serverHandler = new ProtocolHandler(false);
+        clientHandler.setFrameTransformers(Collections.<FrameTransformer>singletonList(client));
+        serverHandler.setFrameTransformers(Collections.<FrameTransformer>singletonList(server));
+
+        for (int i = 0; i < 3; i++) {
+            final ByteBuffer text = join(clientHandler.frame(new DataFrame(new TextFrame(), MESSAGE)));
+            assertEquals(0x40, text.get(0) & 0x70);
+            assertTrue(text.remaining() < MESSAGE.length());
+            assertEquals(MESSAGE, serverHandler.unframe(text).getTextPayload());
+
+            final byte[] binary = MESSAGE.getBytes();
+            final ByteBuffer frame = join(serverHandler.frame(new DataFrame(new BinaryFrame(), binary)));
+            assertArrayEquals(binary, clientHandler.unframe(frame).getBytes());
+        }
+    }
+
+    @Test
+    public void batchingToggledConcurrently() throws Exception {
+        final PerMessageDeflate server = PerMessageDeflate.accept(new Extension(PerMessageDeflate.NAME));
+        final PerMessageDeflate client = PerMessageDeflate.fromResponse(server.getExtension());
+        final ProtocolHandler clientHandler = new ProtocolHandler(true);
+        final ProtocolHandler serverHandler = new ProtocolHandler(false);
+        clientHandler.setFrameTransformers(Collections.<FrameTransformer>singletonList(client));
+        serverHandler.setFrameTransformers(Collections.<FrameTransformer>singletonList(server));
+
+        final ByteArrayOutputStream wire = new ByteArrayOutputStream();
+        clientHandler.setWriter(new AbstractWriter() {
+            @Override
+            public void write(byte[] bytes, CompletionHandler<byte[]> completionHandler) {
+                synchronized (wire) {
+                    wire.write(bytes, 0, bytes.length);
+                }
+                completionHandler.completed(bytes);
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+
+        final int threads = 4;
+        final int messages = 500;
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] senders = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            final int sender = i;
+            senders[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < messages; j++) {
+                        clientHandler.send(sender + ":" + j + ":" + MESSAGE.substring(j % MESSAGE.length()));
+                    }
+                }
+            };
+            senders[i].start();
+        }
+
+        start.countDown();
+        boolean running = true;
+        while (running) {
+            clientHandler.setBatchingAllowed(true);
+            clientHandler.setBatchingAllowed(false);
+            running = false;
+            for (Thread sender : senders) {
+                running |= sender.isAlive();
+            }
+        }
+        clientHandler.setBatchingAllowed(false);
+
+        // frames compressed out of order would not inflate to the original messages
+        final ByteBuffer received = ByteBuffer.wrap(wire.toByteArray());
+        final int[] next = new int[threads];
+        while (received.hasRemaining()) {
+            final String[] message = serverHandler.unframe(received).getTextPayload().split(":", 3);
+            final int sender = Integer.parseInt(message[0]);
+            final int j = Integer.parseInt(message[1]);
+            assertEquals(next[sender]++, j);
+            assertEquals(MESSAGE.substring(j % MESSAGE.length()), message[2]);
+        }
+        for (int i = 0; i < threads; i++) {
+            assertEquals(messages, next[i]);
+        }
+    }
+
+    private static void roundTrip(Extension offer) {
+        final PerMessageDeflate server = PerMessageDeflate.accept(offer);
+        final PerMessageDeflate client = PerMessageDeflate.fromResponse(server.getExtension());
+        final byte[] message = MESSAGE.getBytes();
+
+        for (int i = 0; i < 3; i++) {
+            final ByteBuffer compressed = client.encode(ByteBuffer.wrap(message), true, true);
+            assertTrue(compressed.remaining() < message.length);
+            assertArrayEquals(message, toArray(server.decode(compressed, 0x40, true, true, MAX_SIZE)));
+
+            final ByteBuffer response = server.encode(ByteBuffer.wrap(message), true, true);
+            assertArrayEquals(message, toArray(client.decode(response, 0x40, true, true, MAX_SIZE)));
+        }
+
+        server.destroy();
+        client.destroy();
+    }
+
+    private static Extension offer(String... parameters) {
+        final Extension extension = new Extension(PerMessageDeflate.NAME);
+        for (String parameter : parameters) {
+            extension.getParameters().add(new Extension.Parameter(parameter, null));
+        }
+        return extension;
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        final byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private static ByteBuffer join(ByteBuffer[] buffers) {
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+        final ByteBuffer result = ByteBuffer.allocate(length);
+        for (ByteBuffer buffer : buffers) {
+            result.put(buffer);
+        }
+        result.flip();
+        return result;
+    }
+}
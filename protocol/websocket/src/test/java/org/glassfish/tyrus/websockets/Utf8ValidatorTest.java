@@ -0,0 +1,105 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+import org.glassfish.tyrus.websockets.frame.TextFrame;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests UTF-8 validation of text frames.
+ */
+public class Utf8ValidatorTest {
+
+    private static final String TEXT = "a\u00e9\u20ac\ud834\udd1eb";
+
+    @Test
+    public void fragmentedText() {
+        final byte[] bytes = TEXT.getBytes(Charset.forName("UTF-8"));
+
+        for (int split = 0; split <= bytes.length; split++) {
+            final ProtocolHandler handler = new ProtocolHandler(false);
+            final byte[] first = new byte[split];
+            final byte[] second = new byte[bytes.length - split];
+            System.arraycopy(bytes, 0, first, 0, first.length);
+            System.arraycopy(bytes, split, second, 0, second.length);
+
+            final DataFrame firstFrame = new DataFrame(new TextFrame(), first, false);
+            handler.utf8Decode(false, ByteBuffer.wrap(first), firstFrame);
+            final DataFrame secondFrame = new DataFrame(new TextFrame(), second, true);
+            handler.utf8Decode(true, ByteBuffer.wrap(second), secondFrame);
+
+            assertEquals("Split at " + split, TEXT, firstFrame.getTextPayload() + secondFrame.getTextPayload());
+        }
+    }
+
+    @Test
+    public void invalidSequences() {
+        final int[][] invalid = {
+                {0xC0, 0x80},             // overlong
+                {0xE0, 0x80, 0x80},       // overlong
+                {0xED, 0xA0, 0x80},       // surrogate
+                {0xF4, 0x90, 0x80, 0x80}, // above U+10FFFF
+                {0x80},                   // unexpected continuation
+                {0xE2, 0x82},             // truncated
+                {0xFF}
+        };
+
+        for (int[] sequence : invalid) {
+            final byte[] bytes = new byte[sequence.length];
+            for (int i = 0; i < sequence.length; i++) {
+                bytes[i] = (byte) sequence[i];
+            }
+
+            try {
+                new ProtocolHandler(false).utf8Decode(true, ByteBuffer.wrap(bytes), new DataFrame(new TextFrame(), bytes));
+                fail("Sequence accepted: " + TyrusWebSocketEngine.toString(bytes));
+            } catch (Utf8DecodingError e) {
+                // expected
+            }
+        }
+    }
+}
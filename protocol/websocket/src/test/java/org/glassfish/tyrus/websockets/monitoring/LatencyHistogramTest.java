@@ -0,0 +1,150 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets.monitoring;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void testEmpty() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMean());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getValueAtPercentile(99));
+    }
+
+    @Test
+    public void testBuckets() {
+        long previousHighest = -1;
+        for (int bucket = 0; bucket < 300; bucket++) {
+            final long highest = LatencyHistogram.highestValue(bucket);
+            assertTrue(highest > previousHighest);
+            assertEquals(bucket, LatencyHistogram.bucket(highest));
+            assertEquals(bucket, LatencyHistogram.bucket(previousHighest + 1));
+            previousHighest = highest;
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500500, histogram.getMean());
+        assertEquals(1000000, histogram.getMax());
+        assertWithin(500000, histogram.getValueAtPercentile(50));
+        assertWithin(990000, histogram.getValueAtPercentile(99));
+        assertEquals(1000000, histogram.getValueAtPercentile(100));
+
+        final Map<String, Long> summary = histogram.getSummary(TimeUnit.MICROSECONDS);
+        assertEquals(Long.valueOf(1000), summary.get("count"));
+        assertEquals(Long.valueOf(1000), summary.get("max"));
+    }
+
+    @Test
+    public void testOutOfRange() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-1);
+        histogram.record(Long.MAX_VALUE);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getValueAtPercentile(50));
+        assertEquals(histogram.getMax(), histogram.getValueAtPercentile(100));
+    }
+
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        final int threads = 8;
+        final int updates = 100000;
+        final LatencyHistogram histogram = new LatencyHistogram();
+        final CountDownLatch start = new CountDownLatch(1);
+        final Thread[] workers = new Thread[threads];
+
+        for (int i = 0; i < threads; i++) {
+            final long value = (i + 1) * 1000;
+            workers[i] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < updates; j++) {
+                        histogram.record(value);
+                    }
+                }
+            };
+            workers[i].start();
+        }
+
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        assertEquals((long) threads * updates, histogram.getCount());
+        assertEquals(threads * 1000, histogram.getMax());
+        assertWithin(1000, histogram.getValueAtPercentile(100.0 / threads));
+        assertWithin(4000, histogram.getValueAtPercentile(50));
+        assertEquals(threads * 1000, histogram.getValueAtPercentile(100));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(String.format("%d is not within 12.5%% of %d", actual, expected),
+                actual >= expected && actual <= expected + expected / 8);
+    }
+}
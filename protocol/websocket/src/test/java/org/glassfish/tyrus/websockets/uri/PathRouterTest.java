@@ -0,0 +1,125 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.websockets.uri;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.glassfish.tyrus.websockets.WebSocketApplication;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests {@link PathRouter}.
+ */
+public class PathRouterTest {
+
+    private static final String[] PATHS = {
+            "/a", "/{var1}", "/a/b", "/{var1}/b", "/a/{var2}", "/{var1}/{var2}", "/a/b/c", "/a/{var2}/{var3}",
+            "/a/{var2}/c", "/{var1}/d/{var3}", "/b/{var2}/c", "/a/b/"
+    };
+
+    private static final String[] REQUESTS = {
+            "/a", "/x", "/a/b", "/x/b", "/a/y", "/x/y", "/a/b/c", "/a/d/c", "/a/x/y", "/b/d/c", "/x/d/y", "/",
+            "/a/b/", "/a/b/c/d", "/a%20b/c"
+    };
+
+    @Test
+    public void sameOrderAsMatch() {
+        final Set<WebSocketApplication> applications = new LinkedHashSet<WebSocketApplication>();
+        final PathRouter router = new PathRouter();
+        for (String path : PATHS) {
+            final TestWebSocketApplication application = new TestWebSocketApplication(path);
+            applications.add(application);
+            assertNull(router.add(application));
+        }
+
+        for (String request : REQUESTS) {
+            final List<Match> expected = Match.getAllMatches(request, applications);
+            final List<Match> actual = router.getAllMatches(request);
+
+            assertEquals(request, describe(expected), describe(actual));
+        }
+    }
+
+    @Test
+    public void parameters() {
+        final PathRouter router = new PathRouter();
+        router.add(new TestWebSocketApplication("/chat/{room}/{user}"));
+
+        final List<Match> matches = router.getAllMatches("/chat/lobby/duke");
+        assertEquals(1, matches.size());
+        assertEquals("lobby", matches.get(0).getParameterValue("room"));
+        assertEquals("duke", matches.get(0).getParameterValue("user"));
+        assertEquals(2, matches.get(0).getParameterNames().size());
+    }
+
+    @Test
+    public void equivalentPaths() {
+        final PathRouter router = new PathRouter();
+        final TestWebSocketApplication application = new TestWebSocketApplication("/a/{var1}/c");
+
+        assertNull(router.add(application));
+        assertSame(application, router.add(new TestWebSocketApplication("/a/{other}/c")));
+        assertNull(router.add(new TestWebSocketApplication("/a/b/c")));
+
+        assertFalse(router.remove(new TestWebSocketApplication("/a/{var1}/c")));
+        assertTrue(router.remove(application));
+        assertEquals(0, router.getAllMatches("/a/x/c").size());
+        assertNull(router.add(new TestWebSocketApplication("/a/{other}/c")));
+        assertEquals("x", router.getAllMatches("/a/x/c").get(0).getParameterValue("other"));
+    }
+
+    private static List<String> describe(List<Match> matches) {
+        final List<String> result = new ArrayList<String>();
+        for (Match match : matches) {
+            result.add(match.toString());
+        }
+        return result;
+    }
+}
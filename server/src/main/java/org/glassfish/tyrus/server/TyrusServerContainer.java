@@ -64,6 +64,7 @@ import org.glassfish.tyrus.core.ErrorCollector;
 import org.glassfish.tyrus.core.TyrusEndpointWrapper;
 import org.glassfish.tyrus.spi.EndpointWrapper;
 import org.glassfish.tyrus.spi.ServerContainer;
+import org.glassfish.tyrus.websockets.monitoring.ApplicationMetrics;
 
 /**
  * Server Container Implementation.
@@ -78,6 +79,7 @@ public class TyrusServerContainer extends BaseContainer implements WebSocketCont
     private final ServerApplicationConfig configuration;
     private final Set<EndpointWrapper> endpoints = new HashSet<EndpointWrapper>();
     private final ErrorCollector collector;
+    private ApplicationMetrics metrics;
     private final ComponentProviderService componentProvider;
 
     private long defaultMaxSessionIdleTimeout = 0;
@@ -117,6 +119,7 @@ public class TyrusServerContainer extends BaseContainer implements WebSocketCont
     public void start() throws IOException, DeploymentException {
         // start the underlying server
         server.start();
+        metrics = ApplicationMetrics.isEnabled() ? new ApplicationMetrics(contextPath) : null;
         try {
             // deploy all the annotated endpoints
             for (Class<?> endpointClass : configuration.getAnnotatedEndpointClasses(null)) {
@@ -143,9 +146,16 @@ public class TyrusServerContainer extends BaseContainer implements WebSocketCont
             this.stop();
             throw collector.composeComprehensiveException();
         }
+
+        if (metrics != null) {
+            metrics.register();
+        }
     }
 
     private void deploy(TyrusEndpointWrapper wrapper) throws DeploymentException {
+        if (metrics != null) {
+            wrapper.setMetrics(metrics.getEndpointMetrics(wrapper.getEndpointPath()));
+        }
         server.register(wrapper);
         endpoints.add(wrapper);
     }
@@ -158,6 +168,10 @@ public class TyrusServerContainer extends BaseContainer implements WebSocketCont
             this.server.unregister(wsa);
             Logger.getLogger(getClass().getName()).fine("Closing down : " + wsa);
         }
+        if (metrics != null) {
+            metrics.unregister();
+        }
+        stopIdleTimeoutWheel();
         server.stop();
     }
 
@@ -82,8 +82,9 @@ public class TyrusServerEndpointConfigurator extends ServerEndpointConfig.Config
         if (requested != null) {
             for (Extension requestedExtension : requested) {
                 for (Extension extension : installed) {
-                    if (extension.equals(requestedExtension)) {
+                    if (extension.getName().equals(requestedExtension.getName())) {
                         result.add(requestedExtension);
+                        break;
                     }
                 }
             }
@@ -0,0 +1,145 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.spi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * {@link Writer} with optional operations implemented on top of {@link #write(byte[], CompletionHandler)}.
+ * <p/>
+ * Containers able to do better (for example write several buffers without copying them) override the particular
+ * methods. Containers implementing just {@link Writer} are still supported, see {@link #wrap(Writer)}.
+ */
+public abstract class AbstractWriter implements Writer {
+
+    /**
+     * Write buffers to underlying connection as one gathering write.
+     * <p/>
+     * Buffers are written in the given order, from their current positions to their limits. Callers must not modify
+     * them until the completion handler is notified.
+     * <p/>
+     * Default implementation copies the buffers to one array and writes it using
+     * {@link #write(byte[], CompletionHandler)}.
+     *
+     * @param buffers           buffers to write.
+     * @param completionHandler completion handler in case there is a need to track progress.
+     */
+    public void write(final ByteBuffer[] buffers, final CompletionHandler<ByteBuffer[]> completionHandler) {
+        int length = 0;
+        for (ByteBuffer buffer : buffers) {
+            length += buffer.remaining();
+        }
+
+        final byte[] bytes = new byte[length];
+        int offset = 0;
+        for (ByteBuffer buffer : buffers) {
+            final int remaining = buffer.remaining();
+            buffer.duplicate().get(bytes, offset, remaining);
+            offset += remaining;
+        }
+
+        write(bytes, completionHandler == null ? null : new CompletionHandler<byte[]>() {
+            @Override
+            public void cancelled() {
+                completionHandler.cancelled();
+            }
+
+            @Override
+            public void failed(Throwable throwable) {
+                completionHandler.failed(throwable);
+            }
+
+            @Override
+            public void completed(byte[] result) {
+                completionHandler.completed(buffers);
+            }
+
+            @Override
+            public void updated(byte[] result) {
+                completionHandler.updated(buffers);
+            }
+        });
+    }
+
+    /**
+     * Check whether the underlying connection accepts more data without queueing it.
+     * <p/>
+     * Writes are still accepted when this returns {@code false}, but callers producing data faster than the
+     * peer reads it should wait for completion of already submitted writes before submitting new ones.
+     * <p/>
+     * Default implementation always returns {@code true}.
+     *
+     * @return {@code true} when data can be written without being queued.
+     */
+    public boolean isWritable() {
+        return true;
+    }
+
+    /**
+     * Get {@link AbstractWriter} writing to given {@link Writer}.
+     *
+     * @param writer writer to be adapted.
+     * @return the writer itself when it already is an {@link AbstractWriter}, adapter delegating to it otherwise.
+     */
+    public static AbstractWriter wrap(final Writer writer) {
+        if (writer == null || writer instanceof AbstractWriter) {
+            return (AbstractWriter) writer;
+        }
+
+        return new AbstractWriter() {
+            @Override
+            public void write(byte[] bytes, CompletionHandler<byte[]> completionHandler) {
+                writer.write(bytes, completionHandler);
+            }
+
+            @Override
+            public void close() throws IOException {
+                writer.close();
+            }
+
+            @Override
+            public String toString() {
+                return writer.toString();
+            }
+        };
+    }
+}
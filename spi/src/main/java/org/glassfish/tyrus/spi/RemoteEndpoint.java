@@ -41,9 +41,12 @@ package org.glassfish.tyrus.spi;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
 import javax.websocket.CloseReason;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
 
 /**
  * Subset of {@link javax.websocket.RemoteEndpoint} interface which should be implemented
@@ -67,6 +70,56 @@ public abstract class RemoteEndpoint {
      */
     public abstract Future<?> sendBinary(ByteBuffer data) throws IOException;
 
+    /**
+     * Send a text message without blocking. The handler is notified when the message is transmitted
+     * or when sending fails.
+     * <p/>
+     * The default implementation sends the message using {@link #sendText(String)} and waits for the returned
+     * future before notifying the handler, containers should override it to send without blocking.
+     *
+     * @param text    the message to be sent.
+     * @param handler the handler notified about the result.
+     */
+    public void sendText(String text, SendHandler handler) {
+        try {
+            notifyHandler(sendText(text), handler);
+        } catch (IOException e) {
+            handler.onResult(new SendResult(e));
+        }
+    }
+
+    /**
+     * Send a binary message without blocking. The handler is notified when the message is transmitted
+     * or when sending fails. The buffer must not be modified until the handler is notified.
+     * <p/>
+     * The default implementation sends the message using {@link #sendBinary(ByteBuffer)} and waits for the returned
+     * future before notifying the handler, containers should override it to send without blocking.
+     *
+     * @param data    the message to be sent.
+     * @param handler the handler notified about the result.
+     */
+    public void sendBinary(ByteBuffer data, SendHandler handler) {
+        try {
+            notifyHandler(sendBinary(data), handler);
+        } catch (IOException e) {
+            handler.onResult(new SendResult(e));
+        }
+    }
+
+    private static void notifyHandler(Future<?> future, SendHandler handler) {
+        try {
+            if (future != null) {
+                future.get();
+            }
+            handler.onResult(new SendResult());
+        } catch (ExecutionException e) {
+            handler.onResult(new SendResult(e.getCause()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handler.onResult(new SendResult(e));
+        }
+    }
+
     /**
      * Send a text message in pieces, blocking until all of the message has been transmitted. The runtime
      * reads the message in order. Non-final pieces are sent with isLast set to false. The final piece
@@ -117,4 +170,46 @@ public abstract class RemoteEndpoint {
      * @param timeoutMs timeout in milliseconds.
      */
     public abstract void setWriteTimeout(long timeoutMs);
+
+    /**
+     * Allow or disallow batching of outgoing messages. Containers which do not support batching send messages
+     * right away.
+     *
+     * @param allowed      {@code true} when outgoing messages can be batched.
+     * @param bufferSize   maximal size of the batch in bytes, container default is used when not positive.
+     * @param lingerTimeMs time after which the batch is sent even if it is not full, batch is sent only when
+     *                     full or explicitly flushed when not positive.
+     * @return future completed when the already batched messages are sent, can be {@code null}.
+     */
+    public Future<?> setBatchingAllowed(boolean allowed, int bufferSize, long lingerTimeMs) throws IOException {
+        return null;
+    }
+
+    /**
+     * Get the batching mode.
+     *
+     * @return {@code true} when outgoing messages can be batched.
+     */
+    public boolean getBatchingAllowed() {
+        return false;
+    }
+
+    /**
+     * Send all batched messages.
+     *
+     * @return future completed when the batched messages are sent, can be {@code null}.
+     */
+    public Future<?> flushBatch() throws IOException {
+        return null;
+    }
+
+    /**
+     * Check whether the container accepts more outgoing data without queueing it. Containers which do not
+     * track outgoing data are always writable.
+     *
+     * @return {@code true} when messages can be sent without being queued.
+     */
+    public boolean isWritable() {
+        return true;
+    }
 }
@@ -0,0 +1,212 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.test.e2e;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.EndpointConfig;
+import javax.websocket.OnMessage;
+import javax.websocket.OnOpen;
+import javax.websocket.SendHandler;
+import javax.websocket.SendResult;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.core.RemoteEndpointWrapper;
+import org.glassfish.tyrus.server.Server;
+import org.glassfish.tyrus.test.e2e.bean.TestEndpoint;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests batching of outgoing messages.
+ */
+public class BatchingTest {
+
+    private static final int MESSAGES = 10;
+
+    private final ClientEndpointConfig cec = ClientEndpointConfig.Builder.create().build();
+
+    @Test
+    public void testFlushBatch() throws Exception {
+        Server server = new Server(TestEndpoint.class);
+
+        final CountDownLatch messageLatch = new CountDownLatch(MESSAGES);
+
+        try {
+            server.start();
+            final Session session = ClientManager.createClient().connectToServer(new TestEndpointAdapter() {
+
+                @Override
+                public void onOpen(Session session) {
+                    session.addMessageHandler(new TestTextMessageHandler(this));
+                }
+
+                @Override
+                public void onMessage(String message) {
+                    messageLatch.countDown();
+                }
+            }, cec, new URI("ws://localhost:8025/websockets/tests/echo"));
+
+            session.getBasicRemote().setBatchingAllowed(true);
+            assertTrue(session.getBasicRemote().getBatchingAllowed());
+
+            for (int i = 0; i < MESSAGES; i++) {
+                session.getBasicRemote().sendText("message " + i);
+            }
+
+            assertFalse(messageLatch.await(500, TimeUnit.MILLISECONDS));
+            assertEquals(MESSAGES, messageLatch.getCount());
+
+            session.getBasicRemote().flushBatch();
+
+            assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testAsyncSendCompletedWithBatch() throws Exception {
+        Server server = new Server(TestEndpoint.class);
+
+        final CountDownLatch messageLatch = new CountDownLatch(MESSAGES);
+        final CountDownLatch sentLatch = new CountDownLatch(MESSAGES);
+        final AtomicInteger failures = new AtomicInteger();
+
+        try {
+            server.start();
+            final Session session = ClientManager.createClient().connectToServer(new TestEndpointAdapter() {
+
+                @Override
+                public void onOpen(Session session) {
+                    session.addMessageHandler(new TestTextMessageHandler(this));
+                }
+
+                @Override
+                public void onMessage(String message) {
+                    messageLatch.countDown();
+                }
+            }, cec, new URI("ws://localhost:8025/websockets/tests/echo"));
+
+            session.getAsyncRemote().setBatchingAllowed(true);
+
+            for (int i = 0; i < MESSAGES; i++) {
+                session.getAsyncRemote().sendText("message " + i, new SendHandler() {
+                    @Override
+                    public void onResult(SendResult result) {
+                        if (!result.isOK()) {
+                            failures.incrementAndGet();
+                        }
+                        sentLatch.countDown();
+                    }
+                });
+            }
+
+            assertFalse("Batched messages are not sent before the batch is written.",
+                    sentLatch.await(500, TimeUnit.MILLISECONDS));
+            assertEquals(MESSAGES, sentLatch.getCount());
+
+            session.getAsyncRemote().flushBatch();
+
+            assertTrue(sentLatch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, failures.get());
+            assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void testLingerTime() throws Exception {
+        Server server = new Server(LingeringEndpoint.class);
+
+        final CountDownLatch messageLatch = new CountDownLatch(MESSAGES);
+
+        try {
+            server.start();
+            final Session session = ClientManager.createClient().connectToServer(new TestEndpointAdapter() {
+
+                @Override
+                public void onOpen(Session session) {
+                    session.addMessageHandler(new TestTextMessageHandler(this));
+                }
+
+                @Override
+                public void onMessage(String message) {
+                    messageLatch.countDown();
+                }
+            }, cec, new URI("ws://localhost:8025/websockets/tests/lingering"));
+
+            session.getBasicRemote().sendText("start");
+
+            assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+        } finally {
+            server.stop();
+        }
+    }
+
+    @ServerEndpoint(value = "/lingering")
+    public static class LingeringEndpoint {
+
+        @OnOpen
+        public void onOpen(Session session, EndpointConfig config) throws IOException {
+            config.getUserProperties().put(RemoteEndpointWrapper.BATCH_LINGER_TIME, 50);
+            session.getBasicRemote().setBatchingAllowed(true);
+        }
+
+        @OnMessage
+        public void onMessage(String message, Session session) throws IOException {
+            for (int i = 0; i < MESSAGES; i++) {
+                session.getBasicRemote().sendText(message + " " + i);
+            }
+        }
+    }
+}
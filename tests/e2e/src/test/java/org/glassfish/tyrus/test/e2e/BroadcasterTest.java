@@ -57,6 +57,7 @@ import javax.websocket.Session;
 import javax.websocket.server.ServerEndpoint;
 
 import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.core.TyrusSession;
 import org.glassfish.tyrus.server.Server;
 
 import org.junit.Ignore;
@@ -113,6 +114,40 @@ public class BroadcasterTest {
         }
     }
 
+    @Test
+    public void testTyrusSessionBroadcast() throws Exception {
+        final CountDownLatch messageLatch = new CountDownLatch(3);
+        Server server = new Server(TyrusBroadcastEndpoint.class);
+
+        try {
+            server.start();
+            final ClientManager client = ClientManager.createClient();
+            Session session = null;
+            for (int i = 0; i < 3; i++) {
+                session = client.connectToServer(new TestEndpointAdapter() {
+                    @Override
+                    public void onOpen(Session session) {
+                        session.addMessageHandler(new TestTextMessageHandler(this));
+                    }
+
+                    @Override
+                    public void onMessage(String message) {
+                        if (SENT_MESSAGE.equals(message)) {
+                            messageLatch.countDown();
+                        }
+                    }
+                }, cec, new URI("ws://localhost:8025/websockets/tests/tyrusbroadcast"));
+            }
+
+            session.getBasicRemote().sendText(SENT_MESSAGE);
+
+            assertTrue("Timeout reached. Message latch value: " + messageLatch.getCount(),
+                    messageLatch.await(5, TimeUnit.SECONDS));
+        } finally {
+            server.stop();
+        }
+    }
+
     private static class TEndpointAdapter extends TestEndpointAdapter {
         private final CountDownLatch messageLatch;
         public RemoteEndpoint.Basic peer;
@@ -159,4 +194,13 @@ public class BroadcasterTest {
             }
         }
     }
+
+    @ServerEndpoint(value = "/tyrusbroadcast")
+    public static class TyrusBroadcastEndpoint {
+
+        @OnMessage
+        public void message(String message, Session session) {
+            ((TyrusSession) session).broadcast(message);
+        }
+    }
 }
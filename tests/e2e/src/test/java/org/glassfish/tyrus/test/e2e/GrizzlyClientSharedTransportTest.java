@@ -0,0 +1,131 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.test.e2e;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.server.Server;
+
+import org.junit.Test;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that client connections opened by one {@link ClientManager} share a transport.
+ */
+public class GrizzlyClientSharedTransportTest {
+
+    private static final int CONNECTIONS = 50;
+
+    @ServerEndpoint(value = "/sharedtransport")
+    public static class SharedTransportEchoEndpoint {
+
+        @OnMessage
+        public String onMessage(String message) {
+            return message;
+        }
+    }
+
+    @Test
+    public void testConnectionsShareTransport() throws Exception {
+        Server server = new Server(SharedTransportEchoEndpoint.class);
+
+        try {
+            server.start();
+            final ClientManager client = ClientManager.createClient();
+
+            final Session first = connectAndEcho(client);
+            final int threadsBefore = Thread.activeCount();
+
+            final List<Session> sessions = new ArrayList<Session>();
+            for (int i = 0; i < CONNECTIONS; i++) {
+                sessions.add(connectAndEcho(client));
+            }
+
+            // a transport per connection would start at least one selector and one worker thread for each of them
+            final int threadsAfter = Thread.activeCount();
+            assertTrue("Threads before: " + threadsBefore + ", after: " + threadsAfter,
+                    threadsAfter - threadsBefore < CONNECTIONS);
+
+            first.close();
+            for (Session session : sessions) {
+                session.close();
+            }
+
+            // the transport is started again after the last connection released it
+            connectAndEcho(client).close();
+        } finally {
+            server.stop();
+        }
+    }
+
+    private Session connectAndEcho(ClientManager client) throws Exception {
+        final CountDownLatch messageLatch = new CountDownLatch(1);
+
+        final Session session = client.connectToServer(new Endpoint() {
+            @Override
+            public void onOpen(Session session, EndpointConfig config) {
+                session.addMessageHandler(new MessageHandler.Whole<String>() {
+                    @Override
+                    public void onMessage(String message) {
+                        messageLatch.countDown();
+                    }
+                });
+            }
+        }, ClientEndpointConfig.Builder.create().build(), new URI("ws://localhost:8025/websockets/tests/sharedtransport"));
+
+        session.getBasicRemote().sendText("Do or do not. There is no try.");
+        assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+        return session;
+    }
+}
@@ -40,10 +40,13 @@
 
 package org.glassfish.tyrus.test.e2e;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.Future;
 
+import org.glassfish.tyrus.spi.Writer;
 import org.glassfish.tyrus.websockets.ClosingDataFrame;
 import org.glassfish.tyrus.websockets.DataFrame;
+import org.glassfish.tyrus.websockets.PreparedFrame;
 import org.glassfish.tyrus.websockets.WebSocket;
 import org.glassfish.tyrus.websockets.WebSocketListener;
 
@@ -74,6 +77,27 @@ class MockWebSocketClient implements WebSocket {
         return null;
     }
 
+    @Override
+    public Future<DataFrame> send(ByteBuffer data) {
+        return null;
+    }
+
+    @Override
+    public void send(String data, Writer.CompletionHandler<DataFrame> completionHandler) {
+        listener.onMessage(this, data);
+        completionHandler.completed(null);
+    }
+
+    @Override
+    public void send(ByteBuffer data, Writer.CompletionHandler<DataFrame> completionHandler) {
+        completionHandler.completed(null);
+    }
+
+    @Override
+    public void send(PreparedFrame frame, Writer.CompletionHandler<DataFrame> completionHandler) {
+        completionHandler.completed(null);
+    }
+
     @Override
     public GrizzlyFuture<DataFrame> sendPing(byte[] bytes) {
         return null;
@@ -95,6 +119,11 @@ class MockWebSocketClient implements WebSocket {
         return null;
     }
 
+    @Override
+    public Future<DataFrame> stream(boolean last, ByteBuffer fragment) {
+        return null;
+    }
+
     @Override
     public void close() {
     }
@@ -148,4 +177,24 @@ class MockWebSocketClient implements WebSocket {
     @Override
     public void setWriteTimeout(long timeoutMs) {
     }
+
+    @Override
+    public Future<DataFrame> setBatchingAllowed(boolean allowed, int bufferSize, long lingerTimeMs) {
+        return null;
+    }
+
+    @Override
+    public boolean getBatchingAllowed() {
+        return false;
+    }
+
+    @Override
+    public boolean isWritable() {
+        return true;
+    }
+
+    @Override
+    public Future<DataFrame> flushBatch() {
+        return null;
+    }
 }
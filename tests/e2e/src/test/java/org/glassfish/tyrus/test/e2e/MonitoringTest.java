@@ -0,0 +1,170 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.test.e2e;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.server.Server;
+import org.glassfish.tyrus.websockets.monitoring.ApplicationMetrics;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests statistics published as MBeans when monitoring is enabled.
+ */
+public class MonitoringTest {
+
+    private static final int MESSAGES = 10;
+
+    @ServerEndpoint(value = "/monitored")
+    public static class MonitoredEndpoint {
+
+        @OnMessage
+        public String onMessage(String message) {
+            return message;
+        }
+    }
+
+    @Test
+    public void testEndpointStatistics() throws Exception {
+        final MBeanServer mBeanServer = ManagementFactory.getPlatformMBeanServer();
+        final ObjectName endpointPattern = new ObjectName("org.glassfish.tyrus:type=Endpoint,*");
+
+        System.setProperty(ApplicationMetrics.MONITORING_ENABLED, "true");
+        Server server = new Server(MonitoredEndpoint.class);
+
+        try {
+            server.start();
+
+            final Set<ObjectName> names = mBeanServer.queryNames(endpointPattern, null);
+            assertEquals(1, names.size());
+            final ObjectName endpointName = names.iterator().next();
+
+            final CountDownLatch messageLatch = new CountDownLatch(MESSAGES);
+            ClientManager client = ClientManager.createClient();
+            final Session session = client.connectToServer(new Endpoint() {
+                @Override
+                public void onOpen(final Session session, EndpointConfig config) {
+                    session.addMessageHandler(new MessageHandler.Whole<String>() {
+                        @Override
+                        public void onMessage(String message) {
+                            messageLatch.countDown();
+                        }
+                    });
+                }
+            }, ClientEndpointConfig.Builder.create().build(), new URI("ws://localhost:8025/websockets/tests/monitored"));
+
+            for (int i = 0; i < MESSAGES; i++) {
+                session.getBasicRemote().sendText("Do or do not. There is no try.");
+            }
+            assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+
+            assertEquals(1L, mBeanServer.getAttribute(endpointName, "OpenSessions"));
+            assertEquals(1L, mBeanServer.getAttribute(endpointName, "SessionsOpened"));
+            assertEquals((long) MESSAGES, mBeanServer.getAttribute(endpointName, "TextMessagesReceived"));
+            assertEquals((long) MESSAGES, get((TabularData) mBeanServer.getAttribute(endpointName, "FramesReceived"), "text"));
+            assertEquals((long) MESSAGES, get((TabularData) mBeanServer.getAttribute(endpointName, "FramesSent"), "text"));
+            assertTrue((Long) mBeanServer.getAttribute(endpointName, "BytesReceived") > 0);
+            assertEquals(1L, get((TabularData) mBeanServer.getAttribute(endpointName, "HandshakeLatencyMicros"), "count"));
+
+            // processing time is recorded after the handler returns, which can be after the reply was received
+            long deadline = System.currentTimeMillis() + 5000;
+            while (get((TabularData) mBeanServer.getAttribute(endpointName, "MessageProcessingTimeMicros"), "count") != MESSAGES
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals((long) MESSAGES, get((TabularData) mBeanServer.getAttribute(endpointName, "MessageProcessingTimeMicros"), "count"));
+
+            session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Bye."));
+
+            deadline = System.currentTimeMillis() + 5000;
+            while ((Long) mBeanServer.getAttribute(endpointName, "OpenSessions") != 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertEquals(0L, mBeanServer.getAttribute(endpointName, "OpenSessions"));
+            assertEquals(1L, get((TabularData) mBeanServer.getAttribute(endpointName, "CloseCodes"),
+                    CloseReason.CloseCodes.GOING_AWAY.getCode()));
+        } finally {
+            server.stop();
+            System.clearProperty(ApplicationMetrics.MONITORING_ENABLED);
+        }
+
+        assertTrue(mBeanServer.queryNames(endpointPattern, null).isEmpty());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        Server server = new Server(MonitoredEndpoint.class);
+
+        try {
+            server.start();
+            assertTrue(ManagementFactory.getPlatformMBeanServer().queryNames(
+                    new ObjectName("org.glassfish.tyrus:*"), null).isEmpty());
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static long get(TabularData data, Object key) {
+        final CompositeData row = data.get(new Object[]{key});
+        return (Long) row.get("value");
+    }
+}
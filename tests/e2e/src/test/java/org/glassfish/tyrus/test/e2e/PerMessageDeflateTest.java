@@ -0,0 +1,168 @@
+/*
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS HEADER.
+ *
+ * Copyright (c) 2013 Oracle and/or its affiliates. All rights reserved.
+ *
+ * The contents of this file are subject to the terms of either the GNU
+ * General Public License Version 2 only ("GPL") or the Common Development
+ * and Distribution License("CDDL") (collectively, the "License").  You
+ * may not use this file except in compliance with the License.  You can
+ * obtain a copy of the License at
+ * http://glassfish.java.net/public/CDDL+GPL_1_1.html
+ * or packager/legal/LICENSE.txt.  See the License for the specific
+ * language governing permissions and limitations under the License.
+ *
+ * When distributing the software, include this License Header Notice in each
+ * file and include the License file at packager/legal/LICENSE.txt.
+ *
+ * GPL Classpath Exception:
+ * Oracle designates this particular file as subject to the "Classpath"
+ * exception as provided by Oracle in the GPL Version 2 section of the License
+ * file that accompanied this code.
+ *
+ * Modifications:
+ * If applicable, add the following below the License Header, with the fields
+ * enclosed by brackets [] replaced by your own identifying information:
+ * "Portions Copyright [year] [name of copyright owner]"
+ *
+ * Contributor(s):
+ * If you wish your version of this file to be governed by only the CDDL or
+ * only the GPL Version 2, indicate your decision by adding "[Contributor]
+ * elects to include this software in this distribution under the [CDDL or GPL
+ * Version 2] license."  If you don't indicate a single choice of license, a
+ * recipient has the option to distribute your version of this file under
+ * either the CDDL, the GPL Version 2 or to extend the choice of license to
+ * its licensees as provided above.  However, if you add GPL Version 2 code
+ * and therefore, elected the GPL Version 2 license, then the option applies
+ * only if the new code is made subject to such option by the copyright
+ * holder.
+ */
+
+package org.glassfish.tyrus.test.e2e;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.websocket.ClientEndpointConfig;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.Extension;
+import javax.websocket.MessageHandler;
+import javax.websocket.OnMessage;
+import javax.websocket.Session;
+import javax.websocket.server.ServerEndpoint;
+import javax.websocket.server.ServerEndpointConfig;
+
+import org.glassfish.tyrus.client.ClientManager;
+import org.glassfish.tyrus.core.TyrusExtension;
+import org.glassfish.tyrus.server.Server;
+
+import org.junit.Test;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests echo of compressed messages with negotiated {@code permessage-deflate} extension.
+ */
+public class PerMessageDeflateTest {
+
+    private static final int MESSAGES = 10;
+
+    @ServerEndpoint(value = "/deflate", configurator = DeflateServerConfigurator.class)
+    public static class DeflateEndpoint {
+
+        @OnMessage
+        public String onMessage(String message) {
+            return message;
+        }
+
+        @OnMessage
+        public ByteBuffer onMessage(ByteBuffer message) {
+            return message;
+        }
+    }
+
+    public static class DeflateServerConfigurator extends ServerEndpointConfig.Configurator {
+        @Override
+        public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+            return requested;
+        }
+    }
+
+    @Test
+    public void testEcho() throws Exception {
+        testEcho(Collections.<Extension.Parameter>emptyList());
+    }
+
+    @Test
+    public void testEchoNoContextTakeover() throws Exception {
+        testEcho(Collections.<Extension.Parameter>singletonList(new TyrusExtension.TyrusParameter("client_no_context_takeover", null)));
+    }
+
+    private void testEcho(List<Extension.Parameter> parameters) throws Exception {
+        Server server = new Server(DeflateEndpoint.class);
+
+        try {
+            server.start();
+
+            final ClientEndpointConfig clientConfiguration = ClientEndpointConfig.Builder.create()
+                    .extensions(Collections.<Extension>singletonList(new TyrusExtension("permessage-deflate", parameters))).build();
+
+            final StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 1000; i++) {
+                sb.append("Always pass on what you have learned. ");
+            }
+            final String text = sb.toString();
+            final byte[] binary = text.getBytes("UTF-8");
+
+            final CountDownLatch messageLatch = new CountDownLatch(2 * MESSAGES);
+            final StringBuilder errors = new StringBuilder();
+
+            ClientManager client = ClientManager.createClient();
+            client.connectToServer(new Endpoint() {
+                @Override
+                public void onOpen(final Session session, EndpointConfig config) {
+                    session.addMessageHandler(new MessageHandler.Whole<String>() {
+                        @Override
+                        public void onMessage(String message) {
+                            if (!text.equals(message)) {
+                                errors.append("Unexpected text message. ");
+                            }
+                            messageLatch.countDown();
+                        }
+                    });
+                    session.addMessageHandler(new MessageHandler.Whole<ByteBuffer>() {
+                        @Override
+                        public void onMessage(ByteBuffer message) {
+                            final byte[] bytes = new byte[message.remaining()];
+                            message.get(bytes);
+                            if (!ByteBuffer.wrap(binary).equals(ByteBuffer.wrap(bytes))) {
+                                errors.append("Unexpected binary message. ");
+                            }
+                            messageLatch.countDown();
+                        }
+                    });
+
+                    try {
+                        for (int i = 0; i < MESSAGES; i++) {
+                            session.getBasicRemote().sendText(text);
+                            session.getBasicRemote().sendBinary(ByteBuffer.wrap(binary));
+                        }
+                    } catch (IOException e) {
+                        errors.append(e.getMessage());
+                    }
+                }
+            }, clientConfiguration, new URI("ws://localhost:8025/websockets/tests/deflate"));
+
+            assertTrue(messageLatch.await(5, TimeUnit.SECONDS));
+            assertEquals("", errors.toString());
+        } finally {
+            server.stop();
+        }
+    }
+}